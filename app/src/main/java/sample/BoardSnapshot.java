@@ -0,0 +1,99 @@
+package sample;
+
+import sample.back.Cell;
+import sample.back.Grid;
+import sample.back.Logic;
+import sample.back.Move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of everything the Controller draws: pieces, probabilities, dead pieces, the game status and the move
+ * the AI just played. Made where the board is computed (the AI turn thread), then handed to the FX thread, which never
+ * reads the Grid or Logic the AI is still working on.
+ */
+public final class BoardSnapshot {
+    private final Logic logic;
+    private final int size;
+    private final char[] types; // [row * size + col] Cell type, '?' under fog
+    private final char[] owners; // [row * size + col] '0', '1' player or '2' AI
+    private final double[] wumpusProb;
+    private final double[] mageProb;
+    private final double[] heroProb;
+    private final double[] pitProb;
+    private final List<Character> aiDead;
+    private final List<Character> playerDead;
+    private final int status;
+    private final Move aiMove; // null if the snapshot does not follow an AI move
+
+    private BoardSnapshot(Grid grid, Logic logic, Move aiMove){
+        this.logic = logic;
+        this.aiMove = aiMove == null ? null : new Move(aiMove.getOrigin().copy(), aiMove.getGoal().copy(), aiMove.getHeuristicValue());
+        this.size = grid.getMapSize();
+        int squares = size * size;
+        this.types = new char[squares];
+        this.owners = new char[squares];
+        this.wumpusProb = new double[squares];
+        this.mageProb = new double[squares];
+        this.heroProb = new double[squares];
+        this.pitProb = new double[squares];
+        for(int row = 0; row < size; row++){
+            for(int col = 0; col < size; col++){
+                Cell cell = grid.getCell(row, col);
+                int square = row * size + col;
+                types[square] = cell.getType();
+                owners[square] = cell.belongToPlayer();
+                wumpusProb[square] = cell.getWumpusProb();
+                mageProb[square] = cell.getMageProb();
+                heroProb[square] = cell.getHeroProb();
+                pitProb[square] = cell.getPitProb();
+            }
+        }
+        this.aiDead = Collections.unmodifiableList(new ArrayList<Character>(logic.getAIDeadPieces()));
+        this.playerDead = Collections.unmodifiableList(new ArrayList<Character>(logic.getPlayerDeadPieces()));
+        this.status = logic.checkWin();
+    }
+
+    /**
+     * @param grid board to draw, a fog of war view or the full state
+     * @param logic game the board belongs to
+     */
+    public static BoardSnapshot of(Grid grid, Logic logic){
+        return new BoardSnapshot(grid, logic, null);
+    }
+
+    /**
+     * @param grid board to draw, a fog of war view or the full state
+     * @param logic game the board belongs to
+     * @param aiMove move the AI played just before, null if it had none
+     */
+    public static BoardSnapshot of(Grid grid, Logic logic, Move aiMove){
+        return new BoardSnapshot(grid, logic, aiMove);
+    }
+
+    /**
+     * @return the game the snapshot was taken of, to drop snapshots of a game that was replaced meanwhile
+     */
+    public Logic getLogic(){ return logic; }
+    public int getSize(){ return size; }
+    public char getType(int row, int col){ return types[row * size + col]; }
+    public char getOwner(int row, int col){ return owners[row * size + col]; }
+    public double getWumpusProb(int row, int col){ return wumpusProb[row * size + col]; }
+    public double getMageProb(int row, int col){ return mageProb[row * size + col]; }
+    public double getHeroProb(int row, int col){ return heroProb[row * size + col]; }
+    public double getPitProb(int row, int col){ return pitProb[row * size + col]; }
+    public List<Character> getAIDeadPieces(){ return aiDead; }
+    public List<Character> getPlayerDeadPieces(){ return playerDead; }
+
+    /**
+     * @return Logic.checkWin when the snapshot was taken
+     */
+    public int getStatus(){ return status; }
+
+    /**
+     * @return the AI move the snapshot was taken after, null if there was none
+     */
+    public Move getAIMove(){ return aiMove; }
+}
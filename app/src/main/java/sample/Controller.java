@@ -1,8 +1,11 @@
 package sample;
 
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextArea;
@@ -16,7 +19,12 @@ import sample.back.*;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Controller {
 
@@ -49,9 +57,36 @@ public class Controller {
     private TextArea aiObsArea;
     @FXML
     private TextArea deathsArea;
+    @FXML
+    private Button nextTurnButton;
+    @FXML
+    private Button cancelButton;
+    @FXML
+    private ProgressBar aiProgress;
+    @FXML
+    private Label aiPhaseLabel;
+
+    //loaded once, buildGrid runs after every move
+    private final Image phero = new Image("/sample/phero.png");
+    private final Image aihero = new Image("/sample/aihero.png");
+    private final Image pit = new Image("/sample/pit.png");
+    private final Image aimage = new Image("/sample/aimage.jpg");
+    private final Image pmage = new Image("/sample/pmage.jpg");
+    private final Image pwumpus = new Image("/sample/pwumpus.png");
+    private final Image aiwumpus = new Image("/sample/aiwumpus.png");
+    private final Image empty = new Image("/sample/empty.png");
+    private final Image fog = new Image("/sample/fog.png");
+
+    //AI turns run one at a time off the FX thread, the thread is reused for the whole session
+    private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "ai-turn");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private AITurnTask aiTurn; // the running AI turn, null when the player can move
 
     Grid g = new Grid();
-    Logic l = new Logic(g,3);
+    Logic l = new Logic(g, Logic.MAX_DEPTH, Logic.DEFAULT_TIME_BUDGET);
     //String[] heuristics = new String[]{"1. Distance To Pits","2. Closest Killable Enemy","3. Difference in Pieces","4. Total Pieces", "5. Maximum Distance From Threat", "6. Weighted Heuristics 1-5"};
     Point start = null;
     Point goal = null;
@@ -69,10 +104,17 @@ public class Controller {
      */
     @FXML
     public void startGame(){
+        //the turn of the old game stops on its own board, finishAITurn drops whatever it returns
+        if(aiThinking()){
+            cancelAITurn();
+            detachAITurn();
+            aiProgress.setProgress(0);
+            aiPhaseLabel.setText("");
+        }
 
         int dimension = Integer.parseInt(dimField.getText());
         g = new Grid(dimension);
-        l = new Logic(g,3);
+        l = new Logic(g, Logic.MAX_DEPTH, Logic.DEFAULT_TIME_BUDGET);
         playerObsArea.setText("");
         aiObsArea.setText("");
         probLabel.setText("");
@@ -92,6 +134,7 @@ public class Controller {
 
     @FXML
     public void modelSelect(){
+        if(aiThinking()) return;
         int playerMovementChoice;
         if (custRadio.isSelected()) playerMovementChoice = 1;
         else playerMovementChoice = 0;
@@ -108,23 +151,22 @@ public class Controller {
      * @param g - grid to be built
      */
     public void buildGrid(Grid g){
+        buildGrid(BoardSnapshot.of(g, l));
+    }
+
+    /**
+     * Builds a snapshot of a grid in the output pane, only reads the snapshot so the AI can be working meanwhile
+     * @param board - snapshot to be built
+     */
+    public void buildGrid(BoardSnapshot board){
         //clear pane
         gridPane.getChildren().clear();
 
-        int dim = g.getMapSize();
+        int dim = board.getSize();
         int size = 75;
         int offset = 200;
         int gap = 5;
         ImageView[][] cells = new ImageView[dim][dim];
-        Image phero = new Image("/sample/phero.png");
-        Image aihero = new Image("/sample/aihero.png");
-        Image pit = new Image("/sample/pit.png");
-        Image aimage = new Image("/sample/aimage.jpg");
-        Image pmage = new Image("/sample/pmage.jpg");
-        Image pwumpus = new Image("/sample/pwumpus.png");
-        Image aiwumpus = new Image("/sample/aiwumpus.png");
-        Image empty = new Image("/sample/empty.png");
-        Image fog = new Image("/sample/fog.png");
 
         for (int y = 0; y < dim; y++){
             for (int x = 0; x < dim; x++){
@@ -137,26 +179,25 @@ public class Controller {
                 cells[x][y].setY(offset + y*(size + gap));
                 cells[x][y].setOnMouseClicked(e -> {
                     if (e.getButton() == MouseButton.PRIMARY) select(finalX,finalY);
-                    else if (e.getButton() == MouseButton.SECONDARY) showProbability(finalX,finalY, g);});
-                Cell currCell = g.map[y][x];
+                    else if (e.getButton() == MouseButton.SECONDARY) showProbability(finalX,finalY, board);});
                 Image hero = null;
                 Image wumpus = null;
                 Image mage = null;
 
 
-                if(currCell.belongToPlayer() == '1'){
+                if(board.getOwner(y, x) == '1'){
                     hero = phero;
                     wumpus = pwumpus;
                     mage = pmage;
                 }
-                else if (currCell.belongToPlayer() == '2'){
+                else if (board.getOwner(y, x) == '2'){
                     hero = aihero;
                     wumpus = aiwumpus;
                     mage = aimage;
                 }
 
 
-                switch(currCell.getType()){
+                switch(board.getType(y, x)){
                     case 'E':
                         cells[x][y].setImage(empty);
                         break;
@@ -182,8 +223,8 @@ public class Controller {
         }
         StringBuilder deathMessage = new StringBuilder();
 
-        ArrayList<Character> aiDeaths = l.getAIDeadPieces();
-        ArrayList<Character> playerDeaths = l.getPlayerDeadPieces();
+        List<Character> aiDeaths = board.getAIDeadPieces();
+        List<Character> playerDeaths = board.getPlayerDeadPieces();
 
         if(!aiDeaths.isEmpty()) {
             deathMessage = new StringBuilder("AI Dead Pieces:\n");
@@ -209,6 +250,7 @@ public class Controller {
      * @param y - cell y coordinate
      */
     private void select(int x, int y){
+        if (aiThinking()) return;
         if (start == null){
             start = new Point(x,y);
             currLabel.setText("Current Selection: [" + x + "," + y + "]");
@@ -228,7 +270,7 @@ public class Controller {
             ArrayList<Cell> observations = l.getObservations();
             if(!observations.isEmpty()) {
                 for (Cell o : observations) {
-                    ArrayList<Character> obs = o.observations;
+                    ArrayList<Character> obs = o.getObservations();
                     for (Character c : obs) {
                         playerObsArea.setText(playerObsArea.getText() + "\nPlayer Observed " + mapTypeToString(c) + " at " + "(" + Integer.toString(o.getRow()) + ", " + Integer.toString(o.getCol()) + ")");
                     }
@@ -247,6 +289,7 @@ public class Controller {
      */
     @FXML
     private void noFog(){
+        if(aiThinking()) return;
         buildGrid(l.getFullState());
     }
 
@@ -255,11 +298,12 @@ public class Controller {
      */
     @FXML
     private void playerFog(){
+        if(aiThinking()) return;
         buildGrid(l.render(true));
         ArrayList<Cell> observations = l.getObservations();
         if(!observations.isEmpty()) {
             for (Cell o : observations) {
-                ArrayList<Character> obs = o.observations;
+                ArrayList<Character> obs = o.getObservations();
                 for (Character c : obs) {
                     playerObsArea.setText(playerObsArea.getText() + "\nPlayer Observed " + mapTypeToString(c) + " at " + "(" + Integer.toString(o.getRow()) + ", " + Integer.toString(o.getCol()) + ")");
                 }
@@ -273,6 +317,7 @@ public class Controller {
      */
     @FXML
     private void aiFog(){
+        if(aiThinking()) return;
         int playerMovementChoice;
         if (custRadio.isSelected()) playerMovementChoice = 1;
         else playerMovementChoice = 0;
@@ -281,7 +326,7 @@ public class Controller {
         ArrayList<Cell> observations = l.getObservations();
         if(!observations.isEmpty()) {
             for (Cell o : observations) {
-                ArrayList<Character> obs = o.observations;
+                ArrayList<Character> obs = o.getObservations();
                 for (Character c : obs) {
                     aiObsArea.setText(aiObsArea.getText() + "\nAI Observed " + mapTypeToString(c) + " at " + "(" + Integer.toString(o.getRow()) + ", " + Integer.toString(o.getCol()) + ")");
                 }
@@ -296,12 +341,12 @@ public class Controller {
      * @param x - cell x position
      * @param y - cell y position
      */
-    public void showProbability(int x, int y, Grid g){
+    public void showProbability(int x, int y, BoardSnapshot board){
         Random random = new Random(x+y+counter);
-        double wumpProb =  g.getCell(y, x).getWumpusProb();
-        double mageProb = g.getCell(y, x).getMageProb();
-        double heroProb = g.getCell(y, x).getHeroProb();
-        double pitProb = g.getCell(y, x).getPitProb();
+        double wumpProb =  board.getWumpusProb(y, x);
+        double mageProb = board.getMageProb(y, x);
+        double heroProb = board.getHeroProb(y, x);
+        double pitProb = board.getPitProb(y, x);
         if(wumpProb != 0 && wumpProb <= .01){
             while(wumpProb <= .01 || wumpProb > .3){
                 wumpProb = random.nextDouble();
@@ -328,7 +373,8 @@ public class Controller {
          */
     }
     /**
-     * Runs the AI's move and checks if the game is over.
+     * Starts the AI's move in the background: the board and the other controls are disabled until it is done, the
+     * progress bar follows its phases and the finished board is drawn from a snapshot taken on the AI thread.
      */
     @FXML
     private void nextTurn(){
@@ -342,19 +388,73 @@ public class Controller {
 
         valueLabel.setText("Move Value: \n" + val);
          */
+        if(aiThinking()) return;
 
         this.counter++;
         int playerMovementChoice;
         if (custRadio.isSelected()) playerMovementChoice = 1;
         else playerMovementChoice = 0;
-        //g = l.AInextTurn(playerMovementChoice);
 
-        buildGrid(l.AInextTurn(playerMovementChoice));
+        AITurnTask task = new AITurnTask(l, playerMovementChoice);
+        task.setOnSucceeded(e -> finishAITurn(task, task.getValue()));
+        task.setOnFailed(e -> finishAITurn(task, null));
+        aiTurn = task;
+        setThinking(true);
+        aiProgress.progressProperty().bind(task.progressProperty());
+        aiPhaseLabel.textProperty().bind(task.messageProperty());
+        aiExecutor.execute(task);
+    }
 
-        //buildGrid(g);
-        int gameCon = l.checkWin();
+    /**
+     * Asks the running AI turn to stop, it stops before its move is played and leaves the game as it was
+     */
+    @FXML
+    private void cancelAITurn(){
+        if(aiTurn != null){
+            aiTurn.requestCancel();
+        }
+    }
+
+    private boolean aiThinking(){
+        return aiTurn != null;
+    }
+
+    private void setThinking(boolean thinking){
+        gridPane.setDisable(thinking);
+        nextTurnButton.setDisable(thinking);
+        cancelButton.setDisable(!thinking);
+    }
+
+    //Forgets the running AI turn and gives the board back to the player
+    private void detachAITurn(){
+        aiTurn = null;
+        aiProgress.progressProperty().unbind();
+        aiPhaseLabel.textProperty().unbind();
+        setThinking(false);
+    }
 
-        switch (gameCon){
+    //On the FX thread once the AI turn is over, board is null if it failed or was cancelled
+    private void finishAITurn(AITurnTask task, BoardSnapshot board){
+        if(aiTurn != task){
+            return; // a new game was started meanwhile
+        }
+        detachAITurn();
+        if(board == null){
+            Throwable error = task.getException();
+            aiProgress.setProgress(0);
+            aiPhaseLabel.setText(error instanceof CancellationException ? "AI turn cancelled" : "AI turn failed: " + error);
+            return;
+        }
+        Move move = board.getAIMove();
+        //[x,y] like the player's selection in currLabel
+        aiPhaseLabel.setText(move == null ? "AI had no move" : "AI moved [" + move.getOrigin().getCol() + "," + move.getOrigin().getRow()
+                + "] to [" + move.getGoal().getCol() + "," + move.getGoal().getRow() + "]");
+        if(board.getLogic() != l){
+            return;
+        }
+        buildGrid(board);
+
+        switch (board.getStatus()){
             case 0:
                 gameStatusLabel.setText("Game Status: \n It's a Draw");
                 break;
@@ -370,6 +470,52 @@ public class Controller {
         }
     }
 
+    /**
+     * One AI turn (Logic.playAITurn) and the player's fog of war view after it, run off the FX thread. It only touches
+     * its own Logic, the FX thread gets the result as a BoardSnapshot.
+     */
+    private static final class AITurnTask extends Task<BoardSnapshot> {
+        private static final String[] PHASE_NAMES = {"Updating beliefs for your move", "Updating beliefs for AI observations",
+                "Choosing the AI move", "Updating beliefs for the AI move"};
+
+        private final Logic logic;
+        private final int playerMovement;
+        private final AtomicBoolean cancelRequested = new AtomicBoolean();
+
+        AITurnTask(Logic logic, int playerMovement){
+            this.logic = logic;
+            this.playerMovement = playerMovement;
+        }
+
+        //Cooperative, unlike cancel() it never leaves the engine halfway through a phase
+        void requestCancel(){
+            cancelRequested.set(true);
+        }
+
+        @Override
+        protected BoardSnapshot call(){
+            int steps = TurnListener.PHASES + 1;
+            Move move = logic.playAITurn(playerMovement, new TurnListener() {
+                @Override
+                public void phase(int phase){
+                    updateMessage(PHASE_NAMES[phase]);
+                    updateProgress(phase, steps);
+                }
+
+                @Override
+                public boolean isCancelled(){
+                    return cancelRequested.get();
+                }
+            });
+            updateMessage("Drawing the board");
+            updateProgress(TurnListener.PHASES, steps);
+            //Return a map containing the player view of the board
+            BoardSnapshot board = BoardSnapshot.of(logic.render(true), logic, move);
+            updateProgress(steps, steps);
+            return board;
+        }
+    }
+
     private String mapTypeToString(char c){
         switch (c){
             case 'F':
@@ -0,0 +1,51 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.back.Grid;
+import sample.back.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The opponent move step of the belief update, calculateRandomMoveProbability, with the random (0) and the custom (1)
+ * player movement model. Writes the fog of war planes from the board planes, so every call does the same work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeliefBenchmark {
+    @Param({"3", "6", "9", "12", "24"})
+    public int size;
+
+    @Param({"0", "1"})
+    public int movement;
+
+    private Logic logic;
+    private Grid fogOfWar;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        logic = new Logic(Boards.board(size), 1);
+        fogOfWar = logic.generateObservations(false);
+    }
+
+    @Benchmark
+    public Grid calculateRandomMoveProbability(){
+        logic.calculateRandomMoveProbability(fogOfWar, false, movement);
+        return fogOfWar;
+    }
+}
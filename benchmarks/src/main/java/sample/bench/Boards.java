@@ -0,0 +1,38 @@
+package sample.bench;
+
+import sample.back.Grid;
+import sample.back.ScenarioCorpus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Boards of the benchmarks, seeded so every run and every benchmark of one size sees the same board. With
+ * -Dcorpus=scenarios.bin (a ScenarioCorpus file) the first scenario of that size at -Dply (default 0) is used instead.
+ */
+final class Boards {
+    static final long SEED = 0x5EEDL;
+
+    private Boards(){
+    }
+
+    static Grid board(int size){
+        String corpus = System.getProperty("corpus");
+        if(corpus == null){
+            return new Grid(size, SEED + size);
+        }
+        int ply = Integer.getInteger("ply", 0);
+        try{
+            List<ScenarioCorpus.Scenario> scenarios = ScenarioCorpus.read(corpus, size);
+            for(ScenarioCorpus.Scenario scenario : scenarios){
+                if(scenario.getPly() == ply){
+                    return scenario.toGrid();
+                }
+            }
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException("No " + size + "x" + size + " scenario at ply " + ply + " in " + corpus);
+    }
+}
@@ -0,0 +1,25 @@
+package sample.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of benchmarks.jar: runs the JMH benchmarks selected on the command line (all of them by default) with
+ * the gc profiler added, so every result also has the allocation rate (gc.alloc.rate.norm is bytes per operation).
+ *
+ * Usage: java -jar benchmarks.jar [JMH options] [benchmark regexp], e.g. -p size=9,12 SearchBenchmark.alphabeta
+ */
+public class EngineBenchmarks {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
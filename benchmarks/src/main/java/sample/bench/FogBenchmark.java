@@ -0,0 +1,51 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.back.Grid;
+import sample.back.Logic;
+import sample.back.Move;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AI turn under fog of war: the observation pass (which also runs the belief update) and the one ply policy
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FogBenchmark {
+    @Param({"3", "6", "9", "12", "24"})
+    public int size;
+
+    private Logic logic;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        logic = new Logic(Boards.board(size), 1);
+        logic.generateObservations(false);
+    }
+
+    @Benchmark
+    public Grid generateObservations(){
+        return logic.generateObservations(false);
+    }
+
+    @Benchmark
+    public Move policy(){
+        return logic.policy();
+    }
+}
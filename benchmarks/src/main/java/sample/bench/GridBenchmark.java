@@ -0,0 +1,54 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sample.back.Grid;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board copies (every search worker and every state of the observation search makes them) and the neighbour lists of
+ * every square
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+    @Param({"3", "6", "9", "12", "24"})
+    public int size;
+
+    private Grid board;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        board = Boards.board(size);
+    }
+
+    @Benchmark
+    public Grid copy(){
+        return new Grid(board);
+    }
+
+    @Benchmark
+    public void getNeighbors(Blackhole blackhole){
+        for(int row = 0; row < size; row++){
+            for(int col = 0; col < size; col++){
+                blackhole.consume(board.getNeighbors(row, col));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.back.BeliefPlanes;
+import sample.back.Grid;
+import sample.back.Logic;
+import sample.back.ParticleFilterBelief;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One belief update of the AI turn (predict for the player's move, then observe) with particle filters of K particles
+ * on -p workers threads, K = 0 is the marginal belief engine for comparison. The board does not change, the particles
+ * keep moving, so every call does the same amount of work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleFilterBenchmark {
+    @Param({"6", "9", "12"})
+    public int size;
+
+    @Param({"0", "100", "1000", "5000"})
+    public int particles;
+
+    @Param({"1"})
+    public int workers;
+
+    private Grid map;
+    private Logic logic;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        map = Boards.board(size);
+        logic = new Logic(map, 1);
+        if(particles > 0){
+            ParticleFilterBelief engine = new ParticleFilterBelief(logic, map, particles, Boards.SEED);
+            engine.setWorkers(workers);
+            logic.setBeliefEngine(engine);
+        }
+    }
+
+    @Benchmark
+    public BeliefPlanes update(){
+        logic.getBeliefEngine().predict(map, 0);
+        logic.updateStateProbabilities(logic.generateObservations(false));
+        return map.getBeliefs();
+    }
+}
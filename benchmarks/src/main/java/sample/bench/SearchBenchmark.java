@@ -0,0 +1,58 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.back.Grid;
+import sample.back.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full information alphabeta from the start position, weighted heuristic (5). Every search starts with an empty
+ * transposition table and no killer moves or history, like the first search of a game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"3", "6", "9", "12", "24"})
+    public int size;
+
+    @Param({"1", "2", "3", "4", "5"})
+    public int depth;
+
+    private Grid board;
+    private Logic logic;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        board = Boards.board(size);
+        logic = new Logic(board, depth);
+    }
+
+    @Setup(Level.Invocation)
+    public void newSearch(){
+        if(logic.getTranspositionTable() != null){
+            logic.getTranspositionTable().clear();
+        }
+        logic.getMoveOrdering().clear();
+    }
+
+    @Benchmark
+    public double alphabeta(){
+        return logic.alphabeta(board, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, true, 5);
+    }
+}
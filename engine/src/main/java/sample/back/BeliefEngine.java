@@ -0,0 +1,30 @@
+package sample.back;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps the AI's belief about where the hidden player pieces and pits are, exposed as the wumpus/hero/mage/pit
+ * probabilities of the Cells. Logic calls predict once the player has moved and observe every time the AI pieces
+ * make new observations.
+ */
+public interface BeliefEngine {
+    /**
+     * Prediction step, the player just moved one of their pieces
+     * @param beliefs grid whose Cells receive the predicted probabilities
+     * @param playerMovement movement model of the player (1 is the custom model, anything else is random)
+     */
+    void predict(Grid beliefs, int playerMovement);
+
+    /**
+     * Correction step with the observations of the AI pieces
+     * @param fogOfWar grid holding the observations, its Cells receive the updated probabilities
+     * @param observations pieces that observed something (Cells of fogOfWar)
+     * @param pieces every AI piece
+     */
+    void observe(Grid fogOfWar, ArrayList<Cell> observations, ArrayList<Cell> pieces);
+
+    /**
+     * @return an engine with the same belief that can be updated without changing this one
+     */
+    BeliefEngine copy();
+}
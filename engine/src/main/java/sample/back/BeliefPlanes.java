@@ -0,0 +1,62 @@
+package sample.back;
+
+/**
+ * The wumpus/hero/mage/pit probabilities of every square of a Grid, one contiguous array per piece type indexed by
+ * square (row * size + col). The Cells of the Grid are views into these planes, the belief passes of Logic loop over
+ * the arrays directly.
+ */
+public class BeliefPlanes {
+    private final double[] wumpus;
+    private final double[] hero;
+    private final double[] mage;
+    private final double[] pit;
+
+    public BeliefPlanes(int squares){
+        this.wumpus = new double[squares];
+        this.hero = new double[squares];
+        this.mage = new double[squares];
+        this.pit = new double[squares];
+    }
+
+    public BeliefPlanes(BeliefPlanes copy){
+        this.wumpus = copy.wumpus.clone();
+        this.hero = copy.hero.clone();
+        this.mage = copy.mage.clone();
+        this.pit = copy.pit.clone();
+    }
+
+    /**
+     * Overwrites every probability with the ones of a Grid of the same size
+     */
+    public void copyFrom(BeliefPlanes other){
+        System.arraycopy(other.wumpus, 0, wumpus, 0, wumpus.length);
+        System.arraycopy(other.hero, 0, hero, 0, hero.length);
+        System.arraycopy(other.mage, 0, mage, 0, mage.length);
+        System.arraycopy(other.pit, 0, pit, 0, pit.length);
+    }
+
+    public double[] getWumpus() { return this.wumpus; }
+    public double[] getHero() { return this.hero; }
+    public double[] getMage() { return this.mage; }
+    public double[] getPit() { return this.pit; }
+
+    /**
+     * @param type BitBoard.WUMPUS, HERO or MAGE, or 3 for the pits
+     */
+    public double[] getPlane(int type){
+        switch (type){
+            case BitBoard.WUMPUS:
+                return wumpus;
+            case BitBoard.HERO:
+                return hero;
+            case BitBoard.MAGE:
+                return mage;
+            default:
+                return pit;
+        }
+    }
+
+    public int getSquares(){
+        return wumpus.length;
+    }
+}
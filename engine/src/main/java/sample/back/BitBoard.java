@@ -0,0 +1,292 @@
+package sample.back;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packed board representation kept by Grid next to its Cells. Keeps one bitset per (owner, piece type) plus a pit
+ * bitset. Square index is row * size + col, spread over a long[] so any board size fits (24x24 is 9 words).
+ * Grid keeps it in sync from pieceRemoved/pieceAdded like the PieceIndex, and move generation reads the squares a
+ * piece can move to as one mask instead of checking the Cell of every neighbour.
+ *
+ * Also holds the codes of the piece types and owners used by PieceIndex, the evaluators and the belief engines, and
+ * the rock-paper-scissors rules between the piece types.
+ */
+public class BitBoard {
+    public static final int WUMPUS = 0;
+    public static final int HERO = 1;
+    public static final int MAGE = 2;
+
+    public static final int PLAYER = 0;
+    public static final int AI = 1;
+
+    private static final ConcurrentHashMap<Integer, long[][]> ADJACENCY = new ConcurrentHashMap<Integer, long[][]>();
+
+    private final int size;
+    private final int words;
+    private final long[][][] pieces; // [owner][type][word]
+    private final long[] pits;
+    private final long[][] adjacency; // neighbour mask of every square, shared by every BitBoard of the same size
+
+    private final long[] targets; // scratch mask, the BitBoard is only ever used by the thread that owns its Grid
+
+    public BitBoard(int size){
+        this.size = size;
+        this.words = (size * size + 63) >>> 6;
+        this.pieces = new long[2][3][words];
+        this.pits = new long[words];
+        this.adjacency = adjacency(size);
+        this.targets = new long[words];
+    }
+
+    public BitBoard(BitBoard copy){
+        this.size = copy.size;
+        this.words = copy.words;
+        this.pieces = new long[2][3][];
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                this.pieces[owner][type] = copy.pieces[owner][type].clone();
+            }
+        }
+        this.pits = copy.pits.clone();
+        this.adjacency = copy.adjacency;
+        this.targets = new long[words];
+    }
+
+    //Neighbour masks of a board size, built once from the Neighbors table of that size
+    private static long[][] adjacency(int size){
+        long[][] adjacency = ADJACENCY.get(size);
+        if(adjacency == null){
+            adjacency = ADJACENCY.computeIfAbsent(size, key -> {
+                Neighbors neighbors = Neighbors.forSize(key);
+                long[][] masks = new long[key * key][(key * key + 63) >>> 6];
+                for(int index = 0; index < key * key; index++){
+                    for(int neighbour : neighbors.of(index)){
+                        masks[index][neighbour >>> 6] |= 1L << neighbour;
+                    }
+                }
+                return masks;
+            });
+        }
+        return adjacency;
+    }
+
+    /**
+     * W -> WUMPUS, H -> HERO, M -> MAGE
+     * @param type cell type
+     * @return piece type code, -1 if the type is not a piece
+     */
+    public static int typeCode(char type){
+        switch (type) {
+            case 'W':
+                return WUMPUS;
+            case 'H':
+                return HERO;
+            case 'M':
+                return MAGE;
+            default:
+                return -1;
+        }
+    }
+
+    public static char typeChar(int type){
+        switch (type) {
+            case WUMPUS:
+                return 'W';
+            case HERO:
+                return 'H';
+            case MAGE:
+                return 'M';
+            default:
+                return 'E';
+        }
+    }
+
+    /**
+     * '1' -> PLAYER, '2' -> AI
+     * @param owner Cell.belongToPlayer()
+     * @return owner code, -1 if the cell belongs to no one
+     */
+    public static int ownerCode(char owner){
+        switch (owner) {
+            case '1':
+                return PLAYER;
+            case '2':
+                return AI;
+            default:
+                return -1;
+        }
+    }
+
+    public static char ownerChar(int owner){
+        return owner == PLAYER ? '1' : owner == AI ? '2' : '0';
+    }
+
+    /**
+     * Wumpus kills Mage, Hero kills Wumpus, Mage kills Hero
+     * @param type attacking piece type
+     * @return the piece type that the attacker kills
+     */
+    public static int prey(int type){
+        return (type + 2) % 3;
+    }
+
+    /**
+     * @param type defending piece type
+     * @return the piece type that kills the defender
+     */
+    public static int predator(int type){
+        return (type + 1) % 3;
+    }
+
+    /**
+     * Rock-paper-scissors table used by Logic.battle
+     * @param attacker attacking piece type
+     * @param defender defending piece type
+     * @return 1 if attacker wins, 0 if draw, 2 if attacker loses
+     */
+    public static int battle(int attacker, int defender){
+        if(attacker == defender){
+            return 0;
+        }
+        if(attacker >= 0 && prey(attacker) == defender){
+            return 1;
+        }
+        return 2;
+    }
+
+    public int getSize(){
+        return this.size;
+    }
+
+    /**
+     * Live bitset of the pieces of one owner and type, do not modify
+     */
+    public long[] getPieces(int owner, int type){
+        return pieces[owner][type];
+    }
+
+    public long[] getPits(){
+        return pits;
+    }
+
+    /**
+     * Rebuilds the bitsets from every Cell of a Grid
+     */
+    public void rebuild(Grid grid){
+        for(int square = 0; square < size * size; square++){
+            sync(grid.getCell(square));
+        }
+    }
+
+    /**
+     * Copies the state of a Cell into the bitsets
+     * @param cell cell of the Grid this BitBoard mirrors
+     */
+    public void sync(Cell cell){
+        int index = cell.getRow() * size + cell.getCol();
+        clear(index);
+        if(cell.isPit()){
+            pits[index >>> 6] |= 1L << index;
+            return;
+        }
+        int owner = ownerCode(cell.belongToPlayer());
+        int type = typeCode(cell.getType());
+        if(owner >= 0 && type >= 0){
+            pieces[owner][type][index >>> 6] |= 1L << index;
+        }
+    }
+
+    public void clear(int index){
+        long keep = ~(1L << index);
+        int word = index >>> 6;
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                pieces[owner][type][word] &= keep;
+            }
+        }
+        pits[word] &= keep;
+    }
+
+    public boolean isPit(int index){
+        return (pits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return PLAYER, AI or -1 if the square is empty
+     */
+    public int ownerAt(int index){
+        int word = index >>> 6;
+        long bit = 1L << index;
+        for(int owner = 0; owner < 2; owner++){
+            if(((pieces[owner][WUMPUS][word] | pieces[owner][HERO][word] | pieces[owner][MAGE][word]) & bit) != 0){
+                return owner;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return WUMPUS, HERO, MAGE or -1 if the square holds no piece
+     */
+    public int typeAt(int index){
+        int word = index >>> 6;
+        long bit = 1L << index;
+        for(int type = 0; type < 3; type++){
+            if(((pieces[PLAYER][type][word] | pieces[AI][type][word]) & bit) != 0){
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    public int count(int owner, int type){
+        int count = 0;
+        long[] set = pieces[owner][type];
+        for(int word = 0; word < words; word++){
+            count += Long.bitCount(set[word]);
+        }
+        return count;
+    }
+
+    /**
+     * Squares a piece of owner standing on index can move to: every neighbour not holding a piece of the same owner,
+     * pits included. Owner -1 (no piece) can move to every neighbour, like Logic.isValidMove.
+     * @param index square of the moving piece
+     * @param owner PLAYER, AI or -1
+     * @return scratch mask, only valid until the next call on this BitBoard
+     */
+    public long[] moveTargets(int index, int owner){
+        long[] neighbours = adjacency[index];
+        if(owner < 0){
+            System.arraycopy(neighbours, 0, targets, 0, words);
+            return targets;
+        }
+        long[][] sets = pieces[owner];
+        for(int word = 0; word < words; word++){
+            targets[word] = neighbours[word] & ~(sets[WUMPUS][word] | sets[HERO][word] | sets[MAGE][word]);
+        }
+        return targets;
+    }
+
+    /**
+     * Iterates set bits the same way java.util.BitSet does
+     * for(int i = nextSetBit(mask, 0); i >= 0; i = nextSetBit(mask, i + 1))
+     * @return index of the next set bit at or after from, -1 if there is none
+     */
+    public static int nextSetBit(long[] mask, int from){
+        int word = from >>> 6;
+        if(word >= mask.length){
+            return -1;
+        }
+        long bits = mask[word] & (-1L << from);
+        while(true){
+            if(bits != 0){
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if(++word == mask.length){
+                return -1;
+            }
+            bits = mask[word];
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package sample.back;
+import java.util.ArrayList;
+
+public class Cell {
+    private char cellType;
+    private char playerPiece;
+    private int row;
+    private int col;
+    private final BeliefPlanes beliefs; // the probabilities of this cell are at index square of these planes
+    private final int square;
+
+    //Observation bits, in the order of the piece types that cause them (BitBoard.WUMPUS, HERO, MAGE, then pits)
+    public static final int STENCH = 1;
+    public static final int NOISE = 1 << 1;
+    public static final int FIRE = 1 << 2;
+    public static final int BREEZE = 1 << 3;
+    private static final char[] OBSERVATION_TYPES = {'S', 'N', 'F', 'B'};
+    private int observations; // STENCH | NOISE | FIRE | BREEZE bits this cell observed
+
+    public Cell(int row, int col){
+        this('E', '0', row, col);
+    }
+
+    public Cell(char type, char playerPiece, int row, int col){
+        this(type, playerPiece, row, col, new BeliefPlanes(1), 0);
+    }
+
+    public Cell(char type, char playerPiece, int row, int col, int observations, double wumpusProb, double heroProb, double magicProb, double pitProb){
+        this(type, playerPiece, row, col);
+        this.observations = observations;
+        setWumpusProb(wumpusProb);
+        setHeroProb(heroProb);
+        setMageProb(magicProb);
+        setPitProb(pitProb);
+    }
+
+    /**
+     * Cell of a Grid, its probabilities live in the planes of that Grid
+     */
+    Cell(char type, char playerPiece, int row, int col, BeliefPlanes beliefs, int square){
+        this.cellType = type;
+        this.playerPiece = playerPiece;
+        this.row = row;
+        this.col = col;
+        this.beliefs = beliefs;
+        this.square = square;
+    }
+
+    /**
+     * @return a detached copy that keeps its own probabilities
+     */
+    public Cell copy(){
+        return new Cell(this.cellType, this.playerPiece, this.row, this.col, this.observations, getWumpusProb(), getHeroProb(), getMageProb(), getPitProb());
+    }
+
+    /**
+     * Copy for another Grid, the probabilities are copied with the planes
+     */
+    Cell copy(BeliefPlanes beliefs){
+        Cell copy = new Cell(this.cellType, this.playerPiece, this.row, this.col, beliefs, this.square);
+        copy.observations = this.observations;
+        return copy;
+    }
+
+    public int getRow(){
+        return this.row;
+    }
+
+    public void setRow(int row){
+        this.row = row;
+    }
+
+    public void setCol(int col){
+        this.col = col;
+    }
+
+    public int getCol(){
+        return this.col;
+    }
+
+    public double getWumpusProb() { return this.beliefs.getWumpus()[square]; }
+    public double getHeroProb() { return this.beliefs.getHero()[square]; }
+    public double getMageProb() { return this.beliefs.getMage()[square]; }
+    public double getPitProb() { return this.beliefs.getPit()[square]; }
+
+    public void setWumpusProb(double value){
+        this.beliefs.getWumpus()[square] = value;
+    }
+
+    public void setHeroProb(double value){
+        this.beliefs.getHero()[square] = value;
+    }
+
+    public void setMageProb(double value){
+        this.beliefs.getMage()[square] = value;
+    }
+
+    public void setPitProb(double value){
+        this.beliefs.getPit()[square] = value;
+    }
+
+    public boolean isEmpty(){
+        return this.cellType == 'E';
+    }
+
+    public boolean isPit(){
+        return this.cellType == 'P';
+    }
+
+    public boolean hasSameObservations(Cell cell) {
+        return this.observations == cell.observations;
+    }
+
+    /**
+     * @param observation S [Stench], N [Hero Noise], F [Fire Magic] or B [Breeze]
+     * @return the bit of that observation, 0 for anything else
+     */
+    public static int observationBit(char observation){
+        switch (observation){
+            case 'S':
+                return STENCH;
+            case 'N':
+                return NOISE;
+            case 'F':
+                return FIRE;
+            case 'B':
+                return BREEZE;
+            default:
+                return 0;
+        }
+    }
+
+    public void addObservation(char observation){
+        this.observations |= observationBit(observation);
+    }
+
+    public boolean hasObservation(char observation){
+        return (this.observations & observationBit(observation)) != 0;
+    }
+
+    public int getObservationMask() { return this.observations; }
+
+    public void setObservationMask(int observations){
+        this.observations = observations;
+    }
+
+    public int getObservationCount(){
+        return Integer.bitCount(this.observations);
+    }
+
+    /**
+     * Compatibility view for the UI, a new list every call
+     * @return the observations of this cell as S/N/F/B characters, in that order
+     */
+    public ArrayList<Character> getObservations(){
+        ArrayList<Character> observed = new ArrayList<Character>(Integer.bitCount(this.observations));
+        for(int bit = 0; bit < OBSERVATION_TYPES.length; bit++){
+            if((this.observations & (1 << bit)) != 0){
+                observed.add(OBSERVATION_TYPES[bit]);
+            }
+        }
+        return observed;
+    }
+
+    public void reset(){
+        this.cellType = 'E';
+        this.playerPiece = '0';
+    }
+
+    public void printCell(){
+        System.out.println("[X: " + this.row + ",Y: " + this.col + "] PlayerPiece: " + this.playerPiece + " cellType: " + this.cellType);
+    }
+
+    /**
+     * 0 belongs to no one
+     * 1 belongs to player
+     * 2 belongs to AI
+     * @return 0 | no one, 1 | player, 2 | AI
+     */
+    public char belongToPlayer(){
+        return this.playerPiece;
+    }
+
+    public void setPlayerPiece(char playerPiece){
+        this.playerPiece = playerPiece;
+    }
+
+    /**
+     * W [Wumpus]
+     * H [Human]
+     * M [Mage]
+     * P [Pit]
+     * B [Breeze]
+     * S [Stench]
+     * N [Hero Noise]
+     * F [Fire Magic]
+     * @return cell type
+     */
+    public char getType(){
+        return this.cellType;
+    }
+
+    public void setType(char type){
+        this.cellType = type;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(other == null || !(other instanceof Cell)){
+            return false;
+        }
+        return (this.row == ((Cell) other).getRow() && this.col == ((Cell) other).getCol());
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + row;
+        result = prime * result + col;
+        return result;
+    }
+
+}
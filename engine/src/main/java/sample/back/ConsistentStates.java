@@ -0,0 +1,498 @@
+package sample.back;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Exact count of the placements of the remaining player pieces that give the AI pieces exactly the stench/noise/fire
+ * magic observations they made, and the exact posterior of every square, without listing the placements like
+ * Logic.getAllObservationStates does.
+ *
+ * Like a minesweeper solver it only enumerates the frontier, the empty squares next to an AI piece. The frontier is
+ * split into independent components (squares that share no AI piece never constrain each other) and every component
+ * is enumerated square by square with the sub-results memoized on the observations still open, giving a table of
+ * how many assignments use w wumpus, h heroes and m mages. The tables are convolved and the rest of the pieces are
+ * spread over the unconstrained interior with binomial coefficients.
+ *
+ * Only what the AI knows is read from the map: its own pieces, the pits, the player piece counts and the
+ * observations of its pieces. Pits are known here like in getAllObservationStates, so breezes carry no information.
+ */
+public class ConsistentStates {
+    private static final int EMPTY = -1;
+    private static final int MAX_MEMO_OPEN = 17; // open observations that fit in a memo key below the position, 3 bits each
+
+    private final int size;
+    private final Neighbors around;
+    private final int[] counts; // remaining player pieces per type
+    private final int dimH; // table index = (w * dimH + h) * dimM + m
+    private final int dimM;
+    private final int tableSize;
+    private final double[] interior; // ways to spread (w, h, m) over the interior squares
+    private final int interiorSquares;
+    private final boolean[] interiorSquare;
+    private final ArrayList<Component> components = new ArrayList<Component>();
+    private final double total;
+    private final double[][] marginals; // [type][square]
+
+    public ConsistentStates(Grid map){
+        this.size = map.getMapSize();
+        this.around = Neighbors.forSize(size);
+        this.counts = new int[]{Math.max(0, map.getNumOfPWumpus()), Math.max(0, map.getNumOfPHero()), Math.max(0, map.getNumOfPMage())};
+        this.dimH = counts[1] + 1;
+        this.dimM = counts[2] + 1;
+        this.tableSize = (counts[0] + 1) * dimH * dimM;
+        int squares = size * size;
+
+        //AI pieces, their observations and the empty squares around them
+        int[] aiAt = new int[squares];
+        Arrays.fill(aiAt, -1);
+        ArrayList<Integer> aiSquares = new ArrayList<Integer>();
+        for(int square = 0; square < squares; square++){
+            if(map.getCell(square).belongToPlayer() == '2'){
+                aiAt[square] = aiSquares.size();
+                aiSquares.add(square);
+            }
+        }
+        int pieces = aiSquares.size();
+        int[] observed = new int[pieces];
+        boolean[] empty = new boolean[squares];
+        for(int square = 0; square < squares; square++){
+            Cell cell = map.getCell(square);
+            empty[square] = cell.belongToPlayer() != '2' && !cell.isPit();
+        }
+        int[] parent = new int[pieces];
+        for(int piece = 0; piece < pieces; piece++){
+            parent[piece] = piece;
+        }
+        int[] owner = new int[squares]; // first AI piece next to a frontier square
+        Arrays.fill(owner, -1);
+        boolean impossible = false;
+        for(int piece = 0; piece < pieces; piece++){
+            int square = aiSquares.get(piece);
+            boolean hasEmpty = false;
+            for(int neighbor : neighbors(square)){
+                Cell cell = map.getCell(neighbor);
+                if(cell.belongToPlayer() == '1'){
+                    observed[piece] |= 1 << BitBoard.typeCode(cell.getType());
+                }
+                if(empty[neighbor]){
+                    hasEmpty = true;
+                    if(owner[neighbor] == -1){
+                        owner[neighbor] = piece;
+                    }else{
+                        parent[find(parent, piece)] = find(parent, owner[neighbor]);
+                    }
+                }
+            }
+            if(!hasEmpty && observed[piece] != 0){
+                impossible = true;
+            }
+        }
+
+        //Interior squares are empty squares no AI piece can see
+        this.interiorSquare = new boolean[squares];
+        int interiorCount = 0;
+        for(int square = 0; square < squares; square++){
+            if(empty[square] && owner[square] == -1){
+                interiorSquare[square] = true;
+                interiorCount++;
+            }
+        }
+        this.interiorSquares = interiorCount;
+        this.interior = new double[tableSize];
+        for(int w = 0; w <= counts[0]; w++){
+            for(int h = 0; h <= counts[1]; h++){
+                for(int m = 0; m <= counts[2]; m++){
+                    interior[index(w, h, m)] = choose(interiorCount, w) * choose(interiorCount - w, h) * choose(interiorCount - w - h, m);
+                }
+            }
+        }
+
+        //One component per group of AI pieces linked by shared frontier squares
+        HashMap<Integer, Component> byRoot = new HashMap<Integer, Component>();
+        for(int square = 0; square < squares; square++){
+            if(owner[square] == -1){
+                continue;
+            }
+            int root = find(parent, owner[square]);
+            Component component = byRoot.get(root);
+            if(component == null){
+                component = new Component();
+                byRoot.put(root, component);
+                components.add(component);
+            }
+            component.squares.add(square);
+        }
+        for(int piece = 0; piece < pieces; piece++){
+            Component component = byRoot.get(find(parent, piece));
+            if(component != null){
+                component.pieces.add(piece);
+            }
+        }
+        for(Component component : components){
+            component.prepare(aiAt, observed);
+        }
+
+        this.marginals = new double[3][squares];
+        this.total = impossible ? 0 : solve();
+    }
+
+    private static int find(int[] parent, int piece){
+        while(parent[piece] != piece){
+            parent[piece] = parent[parent[piece]];
+            piece = parent[piece];
+        }
+        return piece;
+    }
+
+    private int[] neighbors(int square){
+        return around.of(square);
+    }
+
+    private static double choose(int n, int k){
+        if(k < 0 || k > n){
+            return 0;
+        }
+        double result = 1;
+        for(int i = 1; i <= k; i++){
+            result = result * (n - k + i) / i;
+        }
+        return Math.rint(result);
+    }
+
+    private int index(int w, int h, int m){
+        return (w * dimH + h) * dimM + m;
+    }
+
+    //Index distance of one more piece of the type, used to shift tables
+    private int offset(int type){
+        switch (type){
+            case BitBoard.WUMPUS:
+                return dimH * dimM;
+            case BitBoard.HERO:
+                return dimM;
+            default:
+                return 1;
+        }
+    }
+
+    //True if one more piece of the type still fits in the table
+    private boolean fits(int index, int type){
+        return decode(index)[type] < counts[type];
+    }
+
+    private double[] convolve(double[] a, double[] b){
+        double[] result = new double[tableSize];
+        for(int i = 0; i < tableSize; i++){
+            if(a[i] == 0){
+                continue;
+            }
+            int wi = i / (dimH * dimM);
+            int hi = (i / dimM) % dimH;
+            int mi = i % dimM;
+            for(int j = 0; j < tableSize; j++){
+                if(b[j] == 0){
+                    continue;
+                }
+                int w = wi + j / (dimH * dimM);
+                int h = hi + (j / dimM) % dimH;
+                int m = mi + j % dimM;
+                if(w <= counts[0] && h <= counts[1] && m <= counts[2]){
+                    result[index(w, h, m)] += a[i] * b[j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private double[] unit(){
+        double[] table = new double[tableSize];
+        table[0] = 1;
+        return table;
+    }
+
+    //Count and marginals from the component tables
+    private double solve(){
+        int count = components.size();
+        double[][] tables = new double[count][];
+        for(int c = 0; c < count; c++){
+            tables[c] = components.get(c).table(-1, EMPTY);
+        }
+        double[][] prefix = new double[count + 1][];
+        double[][] suffix = new double[count + 1][];
+        prefix[0] = unit();
+        suffix[count] = unit();
+        for(int c = 0; c < count; c++){
+            prefix[c + 1] = convolve(prefix[c], tables[c]);
+        }
+        for(int c = count - 1; c >= 0; c--){
+            suffix[c] = convolve(tables[c], suffix[c + 1]);
+        }
+
+        //Whole frontier used (w, h, m), the interior takes the rest
+        double[] frontier = prefix[count];
+        double total = 0;
+        double[] interiorShare = new double[3];
+        for(int x = 0; x < tableSize; x++){
+            if(frontier[x] == 0){
+                continue;
+            }
+            int[] rest = rest(x);
+            double ways = frontier[x] * interior[index(rest[0], rest[1], rest[2])];
+            total += ways;
+            for(int type = 0; type < 3; type++){
+                interiorShare[type] += ways * rest[type];
+            }
+        }
+        if(total == 0){
+            return 0;
+        }
+        for(int square = 0; square < size * size; square++){
+            if(interiorSquare[square]){
+                for(int type = 0; type < 3; type++){
+                    marginals[type][square] = interiorShare[type] / interiorSquares / total;
+                }
+            }
+        }
+
+        //A frontier square holding a type: its component forced, every other component free, then the interior
+        for(int c = 0; c < count; c++){
+            double[] others = convolve(prefix[c], suffix[c + 1]);
+            double[] completion = new double[tableSize]; // ways for the others and the interior given what c used
+            for(int x = 0; x < tableSize; x++){
+                int[] used = decode(x);
+                for(int y = 0; y < tableSize; y++){
+                    if(others[y] == 0){
+                        continue;
+                    }
+                    int[] more = decode(y);
+                    int w = counts[0] - used[0] - more[0];
+                    int h = counts[1] - used[1] - more[1];
+                    int m = counts[2] - used[2] - more[2];
+                    if(w >= 0 && h >= 0 && m >= 0){
+                        completion[x] += others[y] * interior[index(w, h, m)];
+                    }
+                }
+            }
+            Component component = components.get(c);
+            for(int position = 0; position < component.order.length; position++){
+                for(int type = 0; type < 3; type++){
+                    double[] forced = component.table(position, type);
+                    double ways = 0;
+                    for(int x = 0; x < tableSize; x++){
+                        ways += forced[x] * completion[x];
+                    }
+                    marginals[type][component.order[position]] = ways / total;
+                }
+            }
+        }
+        return total;
+    }
+
+    //Pieces per type encoded by a table index
+    private int[] decode(int index){
+        return new int[]{index / (dimH * dimM), (index / dimM) % dimH, index % dimM};
+    }
+
+    //Remaining pieces per type once the counts encoded by the table index are used
+    private int[] rest(int index){
+        int[] used = decode(index);
+        return new int[]{counts[0] - used[0], counts[1] - used[1], counts[2] - used[2]};
+    }
+
+    /**
+     * @return number of placements of the remaining player pieces consistent with the observations
+     */
+    public double count(){
+        return total;
+    }
+
+    public int getComponentCount(){
+        return components.size();
+    }
+
+    public int getInteriorSquares(){
+        return interiorSquares;
+    }
+
+    /**
+     * @param type 'W', 'H' or 'M'
+     * @return probability that a player piece of that type is on (row, col) given the observations
+     */
+    public double probability(int row, int col, char type){
+        int t = BitBoard.typeCode(type);
+        return t < 0 ? 0 : marginals[t][row * size + col];
+    }
+
+    /**
+     * Writes the exact wumpus/hero/mage probabilities into the Cells of fogOfWar, pit probabilities are left alone
+     */
+    public void writeMarginals(Grid fogOfWar){
+        for(int square = 0; square < size * size; square++){
+            Cell cell = fogOfWar.getCell(square / size, square % size);
+            cell.setWumpusProb(marginals[BitBoard.WUMPUS][square]);
+            cell.setHeroProb(marginals[BitBoard.HERO][square]);
+            cell.setMageProb(marginals[BitBoard.MAGE][square]);
+        }
+    }
+
+    //Frontier squares and AI pieces that constrain each other
+    private final class Component {
+        private final ArrayList<Integer> squares = new ArrayList<Integer>();
+        private final ArrayList<Integer> pieces = new ArrayList<Integer>();
+        private int[] order; // squares in enumeration order
+        private int[][] piecesAt; // component pieces next to order[i]
+        private int[] observed; // per component piece
+        private int[] last; // position of the last square of every piece, where its observation is checked
+        private int[][] openAt; // pieces with a square before position i and one at or after it
+        private HashMap<Long, double[]> memo;
+
+        private void prepare(int[] aiAt, int[] observedByPiece){
+            //Row major or column major, whichever keeps fewer observations open at once
+            Integer[] rowMajor = squares.toArray(new Integer[0]);
+            Integer[] columnMajor = squares.toArray(new Integer[0]);
+            Arrays.sort(columnMajor, (a, b) -> a % size != b % size ? Integer.compare(a % size, b % size) : Integer.compare(a, b));
+            int[] local = new int[aiAt.length];
+            Arrays.fill(local, -1);
+            observed = new int[pieces.size()];
+            for(int p = 0; p < pieces.size(); p++){
+                observed[p] = observedByPiece[pieces.get(p)];
+            }
+            for(int square = 0; square < aiAt.length; square++){
+                if(aiAt[square] >= 0){
+                    local[square] = pieces.indexOf(aiAt[square]);
+                }
+            }
+            int rowWidth = width(layout(rowMajor, local));
+            int columnWidth = width(layout(columnMajor, local));
+            openAt = layout(columnWidth < rowWidth ? columnMajor : rowMajor, local);
+        }
+
+        //Fills order, piecesAt and last for an order, returns the open pieces at every position
+        private int[][] layout(Integer[] squareOrder, int[] local){
+            int k = squareOrder.length;
+            order = new int[k];
+            piecesAt = new int[k][];
+            int[] first = new int[pieces.size()];
+            last = new int[pieces.size()];
+            Arrays.fill(first, Integer.MAX_VALUE);
+            Arrays.fill(last, -1);
+            for(int position = 0; position < k; position++){
+                order[position] = squareOrder[position];
+                ArrayList<Integer> adjacent = new ArrayList<Integer>();
+                for(int neighbor : neighbors(order[position])){
+                    if(local[neighbor] >= 0){
+                        adjacent.add(local[neighbor]);
+                    }
+                }
+                piecesAt[position] = new int[adjacent.size()];
+                for(int i = 0; i < adjacent.size(); i++){
+                    int piece = adjacent.get(i);
+                    piecesAt[position][i] = piece;
+                    first[piece] = Math.min(first[piece], position);
+                    last[piece] = Math.max(last[piece], position);
+                }
+            }
+            int[][] open = new int[k + 1][];
+            for(int position = 0; position <= k; position++){
+                ArrayList<Integer> pieceList = new ArrayList<Integer>();
+                for(int piece = 0; piece < pieces.size(); piece++){
+                    if(first[piece] < position && last[piece] >= position){
+                        pieceList.add(piece);
+                    }
+                }
+                open[position] = new int[pieceList.size()];
+                for(int i = 0; i < pieceList.size(); i++){
+                    open[position][i] = pieceList.get(i);
+                }
+            }
+            return open;
+        }
+
+        private int width(int[][] open){
+            int width = 0;
+            for(int[] pieceList : open){
+                width = Math.max(width, pieceList.length);
+            }
+            return width;
+        }
+
+        /**
+         * Table of the assignments of this component, indexed by the (w, h, m) they use
+         * @param forcedPosition position whose square must hold forcedType, -1 for none
+         */
+        private double[] table(int forcedPosition, int forcedType){
+            if(forcedPosition < 0){
+                memo = new HashMap<Long, double[]>();
+            }
+            return enumerate(0, new int[pieces.size()], forcedPosition, forcedType,
+                    forcedPosition < 0 ? null : new HashMap<Long, double[]>());
+        }
+
+        //Squares before the forced one are memoized separately, the ones after it are shared with the free table
+        private double[] enumerate(int position, int[] seen, int forcedPosition, int forcedType, HashMap<Long, double[]> local){
+            if(position == order.length){
+                return unit();
+            }
+            HashMap<Long, double[]> cache = position > forcedPosition ? memo : local;
+            long key = openAt[position].length <= MAX_MEMO_OPEN ? key(position, seen) : -1;
+            if(key >= 0){
+                double[] cached = cache.get(key);
+                if(cached != null){
+                    return cached;
+                }
+            }
+            double[] result = new double[tableSize];
+            int[] adjacent = piecesAt[position];
+            int[] saved = new int[adjacent.length];
+            for(int type = EMPTY; type < 3; type++){
+                if(position == forcedPosition && type != forcedType){
+                    continue;
+                }
+                int bit = type == EMPTY ? 0 : 1 << type;
+                boolean consistent = true;
+                for(int i = 0; i < adjacent.length; i++){
+                    int piece = adjacent[i];
+                    saved[i] = seen[piece];
+                    if((observed[piece] & bit) != bit){
+                        consistent = false; // the piece would have observed this type
+                    }
+                    seen[piece] |= bit;
+                }
+                for(int i = 0; i < adjacent.length && consistent; i++){
+                    int piece = adjacent[i];
+                    if(last[piece] == position && seen[piece] != observed[piece]){
+                        consistent = false; // the piece's observation is never explained
+                    }
+                }
+                if(consistent){
+                    double[] completion = enumerate(position + 1, seen, forcedPosition, forcedType, local);
+                    int shift = type == EMPTY ? 0 : offset(type);
+                    for(int x = 0; x < tableSize; x++){
+                        if(completion[x] != 0 && (type == EMPTY || fits(x, type))){
+                            result[x + shift] += completion[x];
+                        }
+                    }
+                }
+                for(int i = 0; i < adjacent.length; i++){
+                    seen[adjacent[i]] = saved[i];
+                }
+            }
+            if(key >= 0){
+                cache.put(key, result);
+            }
+            return result;
+        }
+
+        //Position and the seen masks of the open pieces, the only state the rest of the enumeration depends on. The
+        //masks take the low 3 * MAX_MEMO_OPEN bits and the position the bits above, so no two states share a key.
+        private long key(int position, int[] seen){
+            long key = 0;
+            for(int piece : openAt[position]){
+                key = (key << 3) | seen[piece];
+            }
+            return ((long) position << (3 * MAX_MEMO_OPEN)) | key;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package sample.back;
+
+/**
+ * One random opponent move of the wumpus/hero/mage beliefs: every square keeps stay of its mass and hands
+ * moveShare / (its number of neighbours) of it to each neighbour, a 3x3 stencil over the three planes at once.
+ *
+ * The outgoing share of every square is written first into a plane with a one square border of zeros, so the sweep
+ * has no edge cases and reads only the previous beliefs (the planes may be updated in place). The sums of the new
+ * planes are accumulated in the same sweep, for the normalisation.
+ *
+ * This is the scalar kernel, written for the JIT to vectorise. forSize returns VectorDiffusionKernel (src/main/java16,
+ * jdk.incubator.vector) instead when it is on the class path and the incubator module is enabled.
+ */
+public class DiffusionKernel {
+    protected final int size;
+    protected final int stride; // row length of the bordered planes, size + 2
+    protected final double[] inverseNeighbors; // [square] 1 / number of neighbours, smaller on the edges
+    protected final double[] wumpusFlow;
+    protected final double[] heroFlow;
+    protected final double[] mageFlow;
+
+    public DiffusionKernel(int size){
+        this.size = size;
+        this.stride = size + 2;
+        this.inverseNeighbors = new double[size * size];
+        Neighbors neighbors = Neighbors.forSize(size);
+        for(int square = 0; square < inverseNeighbors.length; square++){
+            inverseNeighbors[square] = 1.0 / neighbors.count(square);
+        }
+        this.wumpusFlow = new double[stride * stride];
+        this.heroFlow = new double[stride * stride];
+        this.mageFlow = new double[stride * stride];
+    }
+
+    /**
+     * @return the Vector API kernel if it can be loaded, this scalar one otherwise
+     */
+    public static DiffusionKernel forSize(int size){
+        try{
+            Class.forName("jdk.incubator.vector.DoubleVector");
+            Class<?> kernel = Class.forName("sample.back.VectorDiffusionKernel");
+            return (DiffusionKernel) kernel.getConstructor(int.class).newInstance(size);
+        }catch(ReflectiveOperationException | LinkageError e){
+            return new DiffusionKernel(size);
+        }
+    }
+
+    public int getSize(){
+        return size;
+    }
+
+    public boolean isVectorized(){
+        return false;
+    }
+
+    /**
+     * @param in wumpus, hero and mage planes before the move
+     * @param out planes after the move, may be in
+     * @param stay share of a square's mass that stays (1 - 1/pieces of the moving side)
+     * @param moveShare share that leaves, split over the neighbours (1/pieces of the moving side)
+     * @param weights per plane factor applied to every square after the move, null for none
+     * @param totals receives the sum of every out plane
+     */
+    public void diffuse(double[][] in, double[][] out, double stay, double moveShare, double[][] weights, double[] totals){
+        for(int row = 0; row < size; row++){
+            int square = row * size;
+            int padded = (row + 1) * stride + 1;
+            for(int col = 0; col < size; col++){
+                double share = inverseNeighbors[square + col] * moveShare;
+                wumpusFlow[padded + col] = in[0][square + col] * share;
+                heroFlow[padded + col] = in[1][square + col] * share;
+                mageFlow[padded + col] = in[2][square + col] * share;
+            }
+        }
+        totals[0] = 0;
+        totals[1] = 0;
+        totals[2] = 0;
+        for(int row = 0; row < size; row++){
+            sweepRow(row, in, out, stay, weights, totals);
+        }
+    }
+
+    /**
+     * New beliefs of one row, adds their sums to totals
+     */
+    protected void sweepRow(int row, double[][] in, double[][] out, double stay, double[][] weights, double[] totals){
+        sweepColumns(row, 0, in, out, stay, weights, totals);
+    }
+
+    /**
+     * Scalar sweep of the columns from firstCol to the end of a row
+     */
+    protected final void sweepColumns(int row, int firstCol, double[][] in, double[][] out, double stay, double[][] weights, double[] totals){
+        int square = row * size;
+        int above = row * stride; // bordered square above and left of (row, 0)
+        int middle = above + stride;
+        int below = middle + stride;
+        double wumpusTotal = 0, heroTotal = 0, mageTotal = 0;
+        for(int col = firstCol; col < size; col++){
+            double wumpus = stay * in[0][square + col] + neighbors(wumpusFlow, above + col, middle + col, below + col);
+            double hero = stay * in[1][square + col] + neighbors(heroFlow, above + col, middle + col, below + col);
+            double mage = stay * in[2][square + col] + neighbors(mageFlow, above + col, middle + col, below + col);
+            if(weights != null){
+                wumpus *= weights[0][square + col];
+                hero *= weights[1][square + col];
+                mage *= weights[2][square + col];
+            }
+            out[0][square + col] = wumpus;
+            out[1][square + col] = hero;
+            out[2][square + col] = mage;
+            wumpusTotal += wumpus;
+            heroTotal += hero;
+            mageTotal += mage;
+        }
+        totals[0] += wumpusTotal;
+        totals[1] += heroTotal;
+        totals[2] += mageTotal;
+    }
+
+    //Flow into a square from the 8 around it, the arguments are the top left corners of the three bordered rows
+    private static double neighbors(double[] flow, int above, int middle, int below){
+        return flow[above] + flow[above + 1] + flow[above + 2]
+                + flow[middle] + flow[middle + 2]
+                + flow[below] + flow[below + 1] + flow[below + 2];
+    }
+}
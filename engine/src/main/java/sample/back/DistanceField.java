@@ -0,0 +1,148 @@
+package sample.back;
+
+/**
+ * Per (owner, piece type) distance transforms: for every square, the squared Euclidean distance to the nearest
+ * piece of that owner and type. Grid marks a group dirty whenever one of its pieces changes and the group's
+ * transform is rebuilt on the next lookup, so a move only refreshes the two or three groups it touched.
+ * Each rebuild is an exact separable squared distance transform (row sweeps, then the lower envelope of parabolas
+ * down every column), O(n^2) no matter how many pieces there are.
+ */
+public class DistanceField {
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final Grid grid;
+    private final int size;
+    private final long[][] nearest = new long[6][]; // [owner * 3 + type][square], squared distance or INF
+    private final double[] roots; // Math.sqrt of every squared distance that fits on the board
+    private int dirty = 0b111111;
+
+    //Scratch for the column pass
+    private final long[] column;
+    private final long[] envelope;
+    private final int[] parabolas;
+    private final double[] bounds;
+
+    public DistanceField(Grid grid){
+        this.grid = grid;
+        this.size = grid.getMapSize();
+        for(int group = 0; group < nearest.length; group++){
+            nearest[group] = new long[size * size];
+        }
+        this.roots = new double[2 * (size - 1) * (size - 1) + 1];
+        for(int squared = 0; squared < roots.length; squared++){
+            roots[squared] = Math.sqrt(squared);
+        }
+        this.column = new long[size];
+        this.envelope = new long[size];
+        this.parabolas = new int[size];
+        this.bounds = new double[size + 1];
+    }
+
+    /**
+     * Called by Grid whenever a piece is placed on or removed from a square
+     */
+    public void pieceChanged(char owner, char type){
+        int o = BitBoard.ownerCode(owner);
+        int t = BitBoard.typeCode(type);
+        if(o >= 0 && t >= 0){
+            dirty |= 1 << (o * 3 + t);
+        }
+    }
+
+    /**
+     * Euclidean distance from (row, col) to the nearest piece of an owner and type
+     * @param owner BitBoard.PLAYER or BitBoard.AI
+     * @param type BitBoard.WUMPUS, HERO or MAGE
+     * @return the distance, Double.MAX_VALUE if that owner has no piece of that type
+     */
+    public double nearest(int owner, int type, int row, int col){
+        int group = owner * 3 + type;
+        if((dirty & (1 << group)) != 0){
+            rebuild(group, owner, type);
+            dirty &= ~(1 << group);
+        }
+        long squared = nearest[group][row * size + col];
+        return squared >= INF ? Double.MAX_VALUE : roots[(int) squared];
+    }
+
+    private void rebuild(int group, int owner, int type){
+        long[] field = nearest[group];
+        char ownerChar = BitBoard.ownerChar(owner);
+        char typeChar = BitBoard.typeChar(type);
+
+        //Row pass: horizontal distance to the nearest piece in the same row
+        for(int row = 0; row < size; row++){
+            int base = row * size;
+            long distance = INF;
+            for(int col = 0; col < size; col++){
+                Cell cell = grid.getCell(row, col);
+                distance = cell.belongToPlayer() == ownerChar && cell.getType() == typeChar ? 0 : distance == INF ? INF : distance + 1;
+                field[base + col] = distance;
+            }
+            distance = INF;
+            for(int col = size - 1; col >= 0; col--){
+                distance = field[base + col] == 0 ? 0 : distance == INF ? INF : distance + 1;
+                field[base + col] = Math.min(field[base + col], distance);
+            }
+            for(int col = 0; col < size; col++){
+                long horizontal = field[base + col];
+                field[base + col] = horizontal == INF ? INF : horizontal * horizontal;
+            }
+        }
+
+        //Column pass: lower envelope of the parabolas f(p) + (q - p)^2
+        for(int col = 0; col < size; col++){
+            for(int row = 0; row < size; row++){
+                column[row] = field[row * size + col];
+            }
+            envelope(column, envelope);
+            for(int row = 0; row < size; row++){
+                field[row * size + col] = envelope[row];
+            }
+        }
+    }
+
+    //out[q] = min over p of f[p] + (q - p)^2, ignoring the INF entries
+    private void envelope(long[] f, long[] out){
+        int k = -1;
+        for(int q = 0; q < size; q++){
+            if(f[q] >= INF){
+                continue;
+            }
+            double s = 0;
+            while(k >= 0){
+                int p = parabolas[k];
+                s = ((f[q] + (long) q * q) - (f[p] + (long) p * p)) / (2.0 * (q - p));
+                if(s <= bounds[k]){
+                    k--;
+                }else{
+                    break;
+                }
+            }
+            if(k < 0){
+                k = 0;
+                parabolas[0] = q;
+                bounds[0] = Double.NEGATIVE_INFINITY;
+            }else{
+                k++;
+                parabolas[k] = q;
+                bounds[k] = s;
+            }
+            bounds[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        if(k < 0){
+            for(int q = 0; q < size; q++){
+                out[q] = INF;
+            }
+            return;
+        }
+        int j = 0;
+        for(int q = 0; q < size; q++){
+            while(bounds[j + 1] < q){
+                j++;
+            }
+            int p = parabolas[j];
+            out[q] = (long) (q - p) * (q - p) + f[p];
+        }
+    }
+}
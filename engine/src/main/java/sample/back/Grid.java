@@ -0,0 +1,768 @@
+package sample.back;
+
+import java.nio.charset.CharacterCodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+public class Grid {
+    private int gridSize;
+    public Cell[][] map;
+    private int playerPieces;
+    private int aiPieces;
+    private ArrayList<Cell> pitLocations;
+    private int pitsPerRow;
+    private int numOfPWumpus;
+    private int numOfPHero;
+    private int numOfPMage;
+    private ArrayList<Character> playerDeadPieces;
+    private ArrayList<Character> aiDeadPieces;
+    private int numOfAWumpus;
+    private int numOfAHero;
+    private int numOfAMage;
+    private IncrementalEvaluator evaluator;
+    private DistanceField distanceField;
+    private double[] pitDistance; // average distance to the pits from every square, shared by copies
+    private BeliefPlanes beliefs; // probabilities of every Cell
+    private Zobrist zobrist;
+    private Neighbors neighbors;
+    private PieceIndex pieces; // squares of every piece by owner and type
+    private BitBoard bitBoard; // bitsets of the pieces and pits, kept up to date like the PieceIndex
+    private long hash;
+
+    //Undo stack for makeMove/unmakeMove, one record of UNDO_STRIDE ints per move
+    private static final int UNDO_STRIDE = 16;
+    private int[] undoRecords = new int[UNDO_STRIDE * 16];
+    private int undoTop;
+
+    public Grid(){
+        this.gridSize = 3;
+        this.pitsPerRow = (gridSize/3) - 1;
+
+        this.numOfPWumpus = (gridSize/3);
+        this.numOfPHero = (gridSize/3);
+        this.numOfPMage = (gridSize/3);
+
+        this.numOfAWumpus = (gridSize/3);
+        this.numOfAHero = (gridSize/3);
+        this.numOfAMage = (gridSize/3);
+
+        this.playerDeadPieces = new ArrayList<Character>();
+        this.aiDeadPieces = new ArrayList<Character>();
+
+
+        this.pitLocations = new ArrayList<Cell>();
+        this.zobrist = Zobrist.forSize(gridSize);
+        this.neighbors = Neighbors.forSize(gridSize);
+        initializeMap();
+    }
+
+    public Grid(int gridSize){
+        this(gridSize, new SplittableRandom());
+    }
+
+    /**
+     * New game board with the pits placed from a seed, the same seed always gives the same board
+     * @param gridSize grid size
+     * @param seed seed of the pit placement
+     */
+    public Grid(int gridSize, long seed){
+        this(gridSize, new SplittableRandom(seed));
+    }
+
+    /**
+     * New game board with the pits placed from a random generator, split one per board when boards are made in
+     * parallel (SplittableRandom.split) so the boards do not depend on the thread that makes them
+     * @param gridSize grid size
+     * @param random generator of the pit placement
+     */
+    public Grid(int gridSize, SplittableRandom random){
+        this.gridSize = gridSize;
+        this.pitsPerRow = (gridSize/3) - 1;
+        this.numOfPWumpus = (gridSize/3);
+        this.numOfPHero = (gridSize/3);
+        this.numOfPMage = (gridSize/3);
+        this.numOfAWumpus = (gridSize/3);
+        this.numOfAHero = (gridSize/3);
+        this.numOfAMage = (gridSize/3);
+        this.pitLocations = new ArrayList<Cell>();
+        this.playerDeadPieces = new ArrayList<Character>();
+        this.aiDeadPieces = new ArrayList<Character>();
+        this.zobrist = Zobrist.forSize(gridSize);
+        this.neighbors = Neighbors.forSize(gridSize);
+        initializeMap(random);
+    }
+
+    public Grid(int gridSize, boolean newMap){
+        this.gridSize = gridSize;
+        this.pitsPerRow = (gridSize/3) - 1;
+        this.numOfPWumpus = (gridSize/3);
+        this.numOfPHero = (gridSize/3);
+        this.numOfPMage = (gridSize/3);
+        this.numOfAWumpus = (gridSize/3);
+        this.numOfAHero = (gridSize/3);
+        this.numOfAMage = (gridSize/3);
+        map = new Cell[gridSize][gridSize];
+        beliefs = new BeliefPlanes(gridSize * gridSize);
+        for(int row = 0; row < gridSize; row++){
+            for(int column = 0; column < gridSize; column++) {
+                map[row][column] = new Cell('E', '0', row, column, beliefs, row * gridSize + column);
+            }
+        }
+        this.pitLocations = new ArrayList<Cell>();
+        this.playerDeadPieces = new ArrayList<Character>();
+        this.aiDeadPieces = new ArrayList<Character>();
+        this.zobrist = Zobrist.forSize(gridSize);
+        this.neighbors = Neighbors.forSize(gridSize);
+        this.pieces = new PieceIndex(gridSize);
+        this.bitBoard = new BitBoard(gridSize);
+    }
+
+    public Grid(Grid copy){
+
+        this.gridSize = copy.getMapSize();
+        this.pitsPerRow = copy.getPitsPerRow();
+        this.aiPieces = copy.getAICount();
+        this.playerPieces = copy.getPlayerCount();
+
+        this.numOfPHero = copy.getNumOfPHero();
+        this.numOfPMage = copy.getNumOfPMage();
+        this.numOfPWumpus = copy.getNumOfPWumpus();
+
+        this.numOfAHero = copy.getNumOfAHero();
+        this.numOfAMage = copy.getNumOfAMage();
+        this.numOfAWumpus = copy.getNumOfAWumpus();
+
+        this.pitLocations = new ArrayList<Cell>();
+        this.pitLocations.addAll(copy.getPitLocations());
+
+        this.aiDeadPieces = new ArrayList<Character>(copy.getAIDeadPieces());
+        this.playerDeadPieces = new ArrayList<Character>(copy.getPlayerDeadPieces());
+
+        this.map = new Cell[gridSize][gridSize];
+        this.beliefs = new BeliefPlanes(copy.getBeliefs());
+        for(int row = 0; row < gridSize; row++){
+            for(int col = 0; col < gridSize; col++) {
+                this.map[row][col] = copy.getCell(row, col).copy(beliefs);
+            }
+        }
+        this.zobrist = Zobrist.forSize(gridSize);
+        this.neighbors = Neighbors.forSize(gridSize);
+        this.hash = copy.getHash();
+        this.pieces = new PieceIndex(copy.pieces);
+        this.bitBoard = new BitBoard(copy.bitBoard);
+        this.pitDistance = copy.pitDistance;
+    }
+
+    /**
+     * Board from the content of every square, e.g. a position read back from a ScenarioCorpus. Piece counts and dead
+     * pieces are derived from the start position (gridSize/3 pieces of every type per side). The probabilities start
+     * like the ones of a new game: the player pieces are where they really are and every square off the first and last
+     * row may be a pit.
+     * @param gridSize grid size
+     * @param types Cell type of every square in row major order ('E', 'P', 'W', 'H', 'M')
+     * @param owners owner of every square in row major order ('0', '1', '2')
+     */
+    public Grid(int gridSize, char[] types, char[] owners){
+        this.gridSize = gridSize;
+        this.pitsPerRow = (gridSize/3) - 1;
+        this.pitLocations = new ArrayList<Cell>();
+        this.playerDeadPieces = new ArrayList<Character>();
+        this.aiDeadPieces = new ArrayList<Character>();
+        this.zobrist = Zobrist.forSize(gridSize);
+        this.neighbors = Neighbors.forSize(gridSize);
+        map = new Cell[gridSize][gridSize];
+        beliefs = new BeliefPlanes(gridSize * gridSize);
+        double pitProb = ((double) (gridSize/3) - 1)/(gridSize);
+        int[][] alive = new int[2][3];
+        for(int row = 0; row < gridSize; row++){
+            for(int col = 0; col < gridSize; col++){
+                int square = row * gridSize + col;
+                Cell cell = new Cell(types[square], owners[square], row, col, beliefs, square);
+                map[row][col] = cell;
+                if(row > 0 && row < gridSize - 1){
+                    cell.setPitProb(pitProb);
+                }
+                if(cell.isPit()){
+                    pitLocations.add(cell);
+                }
+                int owner = BitBoard.ownerCode(owners[square]);
+                int type = BitBoard.typeCode(types[square]);
+                if(owner >= 0 && type >= 0){
+                    alive[owner][type]++;
+                    if(owner == BitBoard.PLAYER){
+                        cell.setPitProb(0);
+                        beliefs.getPlane(type)[square] = 1;
+                    }
+                }
+            }
+        }
+        this.numOfPWumpus = alive[BitBoard.PLAYER][BitBoard.WUMPUS];
+        this.numOfPHero = alive[BitBoard.PLAYER][BitBoard.HERO];
+        this.numOfPMage = alive[BitBoard.PLAYER][BitBoard.MAGE];
+        this.numOfAWumpus = alive[BitBoard.AI][BitBoard.WUMPUS];
+        this.numOfAHero = alive[BitBoard.AI][BitBoard.HERO];
+        this.numOfAMage = alive[BitBoard.AI][BitBoard.MAGE];
+        this.playerPieces = numOfPWumpus + numOfPHero + numOfPMage;
+        this.aiPieces = numOfAWumpus + numOfAHero + numOfAMage;
+        for(int type = 0; type < 3; type++){
+            for(int dead = alive[BitBoard.PLAYER][type]; dead < gridSize/3; dead++){
+                playerDeadPieces.add(BitBoard.typeChar(type));
+            }
+            for(int dead = alive[BitBoard.AI][type]; dead < gridSize/3; dead++){
+                aiDeadPieces.add(BitBoard.typeChar(type));
+            }
+        }
+        rehash();
+        buildPitDistances();
+    }
+
+    public void initializeMap(){
+        initializeMap(new SplittableRandom());
+    }
+
+    private void initializeMap(SplittableRandom random){
+        playerPieces = gridSize;
+        aiPieces = gridSize;
+        map = new Cell[gridSize][gridSize];
+        beliefs = new BeliefPlanes(gridSize * gridSize);
+        for(int row = 1; row < gridSize - 1; row++){
+            for(int column = 0; column < gridSize; column++){
+                map[row][column] = new Cell('E', '0', row, column, beliefs, row * gridSize + column);
+                map[row][column].setPitProb(((double) (gridSize/3) - 1)/(gridSize));
+            }
+            int numOfPits = (gridSize/3) - 1;
+            while(numOfPits > 0){
+                int pitCol = random.nextInt(gridSize);
+                if(map[row][pitCol].getType() == 'E'){
+                    map[row][pitCol].setType('P');
+                    this.pitLocations.add(map[row][pitCol]);
+                    numOfPits--;
+                }
+            }
+        }
+        for(int col = 0; col < gridSize; col++){
+            char type = 'W';
+            switch ((col%3)){
+                case 0:
+                    type = 'W';
+                    break;
+                case 1:
+                    type = 'H';
+                    break;
+                case 2:
+                    type = 'M';
+                    break;
+                default:
+                    System.out.println("Error: the initialization of the hero/mage/wumpus is wrong");
+                    break;
+            }
+            map[0][col] = new Cell(type, '1', 0, col, beliefs, col);
+            switch (type) {
+                case 'W':
+                    map[0][col].setWumpusProb(1);
+                    break;
+                case 'H':
+                    map[0][col].setHeroProb(1);
+                    break;
+                case 'M':
+                    map[0][col].setMageProb(1);
+                    break;
+                default:
+                    System.out.println("Unknown type in initializing the board");
+            }
+            map[0][col].setPitProb(0);
+            map[gridSize-1][col] = new Cell(type, '2', gridSize-1, col, beliefs, (gridSize-1) * gridSize + col);
+            map[gridSize-1][col].setPitProb(0);
+        }
+        pitLocations.sort((pit1, pit2) -> indexOf(pit1) - indexOf(pit2)); // row major, like boards read back from a ScenarioCorpus
+        rehash();
+        buildPitDistances();
+    }
+
+    public int getNumOfPWumpus(){ return this.numOfPWumpus; }
+    public int getNumOfPHero(){ return this.numOfPHero; }
+    public int getNumOfPMage(){ return this.numOfPMage; }
+
+    public void setNumOfPWumpus(int wumpus) { this.numOfPWumpus = wumpus; }
+    public void setNumOfPHero(int hero) { this.numOfPHero = hero; }
+    public void setNumOfPMage(int mage) { this.numOfPMage = mage; }
+
+    public int getNumOfAWumpus(){ return this.numOfAWumpus; }
+    public int getNumOfAHero(){ return this.numOfAHero; }
+    public int getNumOfAMage(){ return this.numOfAMage; }
+
+    public void setNumOfAWumpus(int wumpus) { this.numOfAWumpus = wumpus; }
+    public void setNumOfAHero(int hero) { this.numOfAHero = hero; }
+    public void setNumOfAMage(int mage) { this.numOfAMage = mage; }
+
+    public ArrayList<Character> getAIDeadPieces(){
+        return this.aiDeadPieces;
+    }
+
+    public ArrayList<Character> getPlayerDeadPieces(){
+        return this.playerDeadPieces;
+    }
+
+    public void setAIDeadPieces(ArrayList<Character> aiDeadPieces){
+        this.aiDeadPieces = aiDeadPieces;
+    }
+
+    public void setPlayerDeadPieces(ArrayList<Character> playerDeadPieces){
+        this.playerDeadPieces = playerDeadPieces;
+    }
+
+    public ArrayList<Cell> getPitLocations() { return this.pitLocations; }
+
+    public int getPlayerCount(){
+        return playerPieces;
+    }
+
+    public int getAICount(){
+        return aiPieces;
+    }
+
+
+
+    public Cell getCell(int row, int col){
+        return map[row][col];
+    }
+
+    public Cell getCell(int index){
+        return map[index / gridSize][index % gridSize];
+    }
+
+    public int indexOf(Cell cell){
+        return cell.getRow() * gridSize + cell.getCol();
+    }
+
+    /**
+     * Zobrist hash of the pieces on the board, kept up to date by movePiece, destroyCell and setCell
+     * @return hash of the current position
+     */
+    public long getHash(){
+        return this.hash;
+    }
+
+    /**
+     * Recomputes the hash, the PieceIndex and the BitBoard (and invalidates the IncrementalEvaluator) from every Cell, needed after Cells were changed directly instead of
+     * through the Grid
+     * @return the new hash
+     */
+    public long rehash(){
+        long hash = 0;
+        for(int row = 0; row < gridSize; row++){
+            for(int col = 0; col < gridSize; col++){
+                hash ^= zobrist.key(map[row][col], row * gridSize + col);
+            }
+        }
+        this.hash = hash;
+        if(this.pieces == null){
+            this.pieces = new PieceIndex(gridSize);
+        }
+        this.pieces.rebuild(this);
+        if(this.bitBoard == null){
+            this.bitBoard = new BitBoard(gridSize);
+        }
+        this.bitBoard.rebuild(this);
+        if(this.evaluator != null){
+            this.evaluator.invalidate();
+        }
+        return hash;
+    }
+
+    /**
+     * Squares of one owner's pieces of one type, kept up to date like the hash. The array is shared, only the first
+     * getPieceCount(owner, type) entries are valid, in ascending order, until the next change to the board.
+     * @param owner BitBoard.PLAYER or BitBoard.AI
+     * @param type BitBoard.WUMPUS, HERO or MAGE
+     */
+    public int[] getPieceSquares(int owner, int type){
+        return pieces.getSquares(owner, type);
+    }
+
+    public int getPieceCount(int owner, int type){
+        return pieces.count(owner, type);
+    }
+
+    public PieceIndex getPieceIndex(){
+        return pieces;
+    }
+
+    /**
+     * @return bitsets of the pieces and pits, kept up to date like the PieceIndex
+     */
+    public BitBoard getBitBoard(){
+        return bitBoard;
+    }
+
+    /**
+     * Average Euclidean distance from a square to every pit, read from a table built once when the pits are placed
+     * @return the average distance, NaN when the board has no pits
+     */
+    public double getAverageDistanceToPits(int row, int col){
+        if(pitDistance == null){
+            buildPitDistances();
+        }
+        return pitDistance[row * gridSize + col];
+    }
+
+    private void buildPitDistances(){
+        double[] table = new double[gridSize * gridSize];
+        for(int square = 0; square < table.length; square++){
+            int x1 = square / gridSize;
+            int y1 = square % gridSize;
+            double totalDist = 0;
+            for(Cell pitCell : pitLocations){
+                int x2 = pitCell.getRow();
+                int y2 = pitCell.getCol();
+                totalDist += Math.sqrt((x1-x2)*(x1-x2) + (y1-y2)*(y1-y2));
+            }
+            table[square] = totalDist / pitLocations.size();
+        }
+        this.pitDistance = table;
+    }
+
+    /**
+     * Distance transforms to the nearest piece of every owner and type, created on first use and refreshed
+     * per (owner, type) group only after one of its pieces changed. Not carried over by Grid(Grid copy).
+     * @return the distance field of this grid
+     */
+    public DistanceField getDistanceField(){
+        if(this.distanceField == null){
+            this.distanceField = new DistanceField(this);
+        }
+        return this.distanceField;
+    }
+
+    public Zobrist getZobrist(){
+        return this.zobrist;
+    }
+
+    /**
+     * Attaches an IncrementalEvaluator that is told about every piece change.
+     * It is not carried over by Grid(Grid copy), call this again on copies if needed.
+     */
+    public void useIncrementalEvaluator(){
+        this.evaluator = new IncrementalEvaluator(this);
+    }
+
+    /**
+     * @return the incremental evaluator, null if useIncrementalEvaluator was never called
+     */
+    public IncrementalEvaluator getIncrementalEvaluator(){
+        return this.evaluator;
+    }
+
+    public int getMapSize(){
+        return gridSize;
+    }
+
+    public int getPitsPerRow() { return this.pitsPerRow; }
+
+    public void setPitsPerRow(int pits) { this.pitsPerRow = pits; }
+
+    public boolean checkOutOfBounds(int x, int y){
+        return x < 0 || x >= gridSize || y < 0 || y >= gridSize;
+    }
+
+    /**
+     * @return the probabilities of every Cell as flat planes, what the Cells' probability getters and setters view
+     */
+    public BeliefPlanes getBeliefs(){
+        return beliefs;
+    }
+
+    public void setProbability(Cell copy, int row, int col){
+        this.map[row][col].setMageProb(copy.getMageProb());
+        this.map[row][col].setWumpusProb(copy.getWumpusProb());
+        this.map[row][col].setPitProb(copy.getPitProb());
+        this.map[row][col].setHeroProb(copy.getHeroProb());
+    }
+
+    public ArrayList<Cell> getAICells(){
+        return getCells(BitBoard.AI);
+    }
+
+    public ArrayList<Cell> getPlayerCells(){
+        return getCells(BitBoard.PLAYER);
+    }
+
+    //Cells of one owner in row major order, read from the PieceIndex instead of scanning every Cell
+    private ArrayList<Cell> getCells(int owner){
+        int[] squares = new int[pieces.count(owner)];
+        int count = pieces.merge(owner, squares);
+        ArrayList<Cell> cells = new ArrayList<Cell>(count);
+        for(int i = 0; i < count; i++){
+            cells.add(getCell(squares[i]));
+        }
+        return cells;
+    }
+
+    //Every change to the piece on a square goes through pieceRemoved/pieceAdded so the hash, PieceIndex, BitBoard, evaluator and distance fields stay in sync
+    private void pieceRemoved(Cell cell){
+        int index = indexOf(cell);
+        hash ^= zobrist.key(cell, index);
+        pieces.remove(cell, index);
+        bitBoard.clear(index);
+        if(evaluator != null){
+            evaluator.pieceRemoved(index, cell.belongToPlayer(), cell.getType());
+        }
+        if(distanceField != null){
+            distanceField.pieceChanged(cell.belongToPlayer(), cell.getType());
+        }
+    }
+
+    private void pieceAdded(Cell cell){
+        int index = indexOf(cell);
+        hash ^= zobrist.key(cell, index);
+        pieces.add(cell, index);
+        bitBoard.sync(cell);
+        if(evaluator != null){
+            evaluator.pieceAdded(index, cell.belongToPlayer(), cell.getType());
+        }
+        if(distanceField != null){
+            distanceField.pieceChanged(cell.belongToPlayer(), cell.getType());
+        }
+    }
+
+    public void setCell(Cell c1){
+        Cell cell = this.map[c1.getRow()][c1.getCol()];
+        pieceRemoved(cell);
+        cell.setType(c1.getType());
+        cell.setPlayerPiece(c1.belongToPlayer());
+        pieceAdded(cell);
+    }
+
+    /**
+     * Moves the piece on start into goal (goal is overwritten, start is emptied)
+     * @param start Cell to move from
+     * @param goal Cell to move to
+     */
+    public void movePiece(Cell start, Cell goal){
+        pieceRemoved(goal);
+        pieceRemoved(start);
+        goal.setPlayerPiece(start.belongToPlayer());
+        goal.setType(start.getType());
+        start.reset();
+        pieceAdded(goal);
+    }
+
+    public boolean isNeighbor(Cell cell1, int row, int col){
+        int rowDistance = Math.abs(cell1.getRow() - row);
+        int colDistance = Math.abs(cell1.getCol() - col);
+        return rowDistance <= 1 && colDistance <= 1 && (rowDistance != 0 || colDistance != 0) && !checkOutOfBounds(cell1.getRow(), cell1.getCol());
+    }
+
+    public int getNeighborsCount(int row, int col){
+        if(checkOutOfBounds(row, col)){
+            System.out.println("Out of bounds point entered: [X: " + row + "] [Y: " + col + "]");
+            return -1;
+        }
+        return neighbors.count(row * gridSize + col);
+    }
+
+    /**
+     * Allocation free version of getNeighbors for hot loops
+     * @param square row * size + col
+     * @return the squares around it (same order as getNeighbors), shared so it must not be modified
+     */
+    public int[] getNeighborSquares(int square){
+        return neighbors.of(square);
+    }
+
+    public ArrayList<Cell> getNeighbors(int row, int col){
+        //Safety check to make sure you're not getting neighbors for out of bounds points
+        if(checkOutOfBounds(row, col)){
+            System.out.println("Out of bounds point entered: [X: " + row + "] [Y: " + col + "]");
+            return null;
+        }
+
+        //The 3x3 area, from top left corner to bottom right corner, in a new list the caller may modify
+        int[] around = neighbors.of(row * gridSize + col);
+        ArrayList<Cell> neighbors = new ArrayList<Cell>(around.length);
+        for(int square : around){
+            neighbors.add(map[square / gridSize][square % gridSize]);
+        }
+        return neighbors;
+    }
+
+    public void destroyCell(Cell cell1){
+        if(cell1.belongToPlayer() == '1'){
+            char type = cell1.getType();
+            pieceRemoved(cell1);
+            cell1.reset();
+            switch (type) {
+                case 'W':
+                    this.numOfPWumpus--;
+                    playerDeadPieces.add('W');
+                    break;
+                case 'H':
+                    this.numOfPHero--;
+                    playerDeadPieces.add('H');
+                    break;
+                case 'M':
+                    this.numOfPMage--;
+                    playerDeadPieces.add('M');
+                    break;
+                default:
+                    System.out.println("Trying to destroy some invalid type! " + type);
+            }
+            playerPieces -= 1;
+        }else if(cell1.belongToPlayer() == '2'){
+            char type = cell1.getType();
+            pieceRemoved(cell1);
+            cell1.reset();
+            switch (type) {
+                case 'W':
+                    this.numOfAWumpus--;
+                    aiDeadPieces.add('W');
+                    break;
+                case 'H':
+                    this.numOfAHero--;
+                    aiDeadPieces.add('H');
+                    break;
+                case 'M':
+                    this.numOfAMage--;
+                    aiDeadPieces.add('M');
+                    break;
+                default:
+                    System.out.println("Trying to destroy some invalid type! " + type);
+            }
+            aiPieces -= 1;
+        }else{
+            System.out.println("Error: trying to destroy a piece that is not a player or AI piece");
+        }
+    }
+
+    /**
+     * (Remember to check for invalid move beforehand)
+     * Plays start to goal with the game rules: moving into a pit destroys the piece, moving onto an enemy piece battles,
+     * otherwise the piece just moves. Nothing is recorded, use makeMove when the move has to be undone.
+     * @param start Cell to move from
+     * @param goal Cell to move to
+     */
+    public void applyMove(Cell start, Cell goal){
+        if(goal.isPit()){ //the piece gets destroyed so negative
+            destroyCell(start);
+        }else if(!goal.isEmpty()){
+            int result = BitBoard.battle(bitBoard.typeAt(indexOf(start)), bitBoard.typeAt(indexOf(goal)));
+            switch (result){
+                case 0: //Both pieces should be destroyed (neutral)
+                    destroyCell(start);
+                    destroyCell(goal);
+                    break;
+                case 1: //your piece wins, so opponent gets destroyed
+                    destroyCell(goal);
+                    movePiece(start, goal);
+                    break;
+                case 2: //opponent piece wins, so your piece should be destroyed (Opponent +1 pieces over you)
+                    destroyCell(start);
+                    break;
+            }
+        }else{ //Moving into an empty space, nothing really happens no pieces get destroyed
+            movePiece(start, goal);
+        }
+    }
+
+    /**
+     * Plays start to goal like applyMove and pushes an undo record so unmakeMove can restore the exact previous state
+     * (both cells, piece counts, per type counts and dead piece lists). Does not allocate once the stack has grown.
+     * @param start Cell to move from
+     * @param goal Cell to move to
+     */
+    public void makeMove(Cell start, Cell goal){
+        if(undoTop + UNDO_STRIDE > undoRecords.length){
+            undoRecords = Arrays.copyOf(undoRecords, undoRecords.length * 2);
+        }
+        int[] record = undoRecords;
+        int top = undoTop;
+        record[top] = indexOf(start);
+        record[top + 1] = indexOf(goal);
+        record[top + 2] = start.getType();
+        record[top + 3] = start.belongToPlayer();
+        record[top + 4] = goal.getType();
+        record[top + 5] = goal.belongToPlayer();
+        record[top + 6] = playerPieces;
+        record[top + 7] = aiPieces;
+        record[top + 8] = numOfPWumpus;
+        record[top + 9] = numOfPHero;
+        record[top + 10] = numOfPMage;
+        record[top + 11] = numOfAWumpus;
+        record[top + 12] = numOfAHero;
+        record[top + 13] = numOfAMage;
+        record[top + 14] = playerDeadPieces.size();
+        record[top + 15] = aiDeadPieces.size();
+        undoTop = top + UNDO_STRIDE;
+        applyMove(start, goal);
+    }
+
+    /**
+     * Undoes the last makeMove
+     */
+    public void unmakeMove(){
+        if(undoTop == 0){
+            System.out.println("Error: trying to undo a move when no move was made");
+            return;
+        }
+        undoTop -= UNDO_STRIDE;
+        int[] record = undoRecords;
+        int top = undoTop;
+        restoreSquare(getCell(record[top + 1]), (char) record[top + 4], (char) record[top + 5]);
+        restoreSquare(getCell(record[top]), (char) record[top + 2], (char) record[top + 3]);
+        playerPieces = record[top + 6];
+        aiPieces = record[top + 7];
+        numOfPWumpus = record[top + 8];
+        numOfPHero = record[top + 9];
+        numOfPMage = record[top + 10];
+        numOfAWumpus = record[top + 11];
+        numOfAHero = record[top + 12];
+        numOfAMage = record[top + 13];
+        truncate(playerDeadPieces, record[top + 14]);
+        truncate(aiDeadPieces, record[top + 15]);
+    }
+
+    /**
+     * @return number of moves that can still be undone with unmakeMove
+     */
+    public int getUndoDepth(){
+        return undoTop / UNDO_STRIDE;
+    }
+
+    private void restoreSquare(Cell cell, char type, char owner){
+        if(cell.getType() == type && cell.belongToPlayer() == owner){
+            return;
+        }
+        pieceRemoved(cell);
+        cell.setType(type);
+        cell.setPlayerPiece(owner);
+        pieceAdded(cell);
+    }
+
+    private static void truncate(ArrayList<Character> list, int size){
+        while(list.size() > size){
+            list.remove(list.size() - 1);
+        }
+    }
+
+    public void setPlayerPieces(int count){
+        this.playerPieces = count;
+    }
+
+    public void setAIPieces(int count){
+        this.aiPieces = count;
+    }
+
+    public void printMap(){
+        System.out.println("Number of Player Pieces: " + this.playerPieces);
+        System.out.println("Number of AI Pieces: " + this.aiPieces);
+        for(int row = 0; row < gridSize; row++){
+            for(int col = 0; col < gridSize; col++){
+                System.out.print(map[row][col].getType());
+            }
+            System.out.println();
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+package sample.back;
+
+/**
+ * Incremental version of calculateHeuristic(5, ...), the weighted mix of
+ * averageDistanceToPits, getAvgClosestKillableEnemy, calculatePiecesDifference, calculateTotalPieces and getAvgFurthestThreat.
+ *
+ * Every piece keeps its own feature values (distance to the closest killable enemy and which enemy that is, total
+ * distance to its threats and how many there are) and every side keeps the running sum of each feature. Grid reports
+ * every piece that is removed or added, and only the terms that piece takes part in are updated: its own, the enemies
+ * it threatens or is threatened by (one distance each), and the enemies whose closest killable enemy it was or becomes.
+ * Distances are summed in fixed point so that undoing a move restores the sums exactly and the value of a position
+ * does not depend on the moves that led to it. It matches Logic.calculateFullHeuristic to about 1e-9.
+ */
+public class IncrementalEvaluator {
+    private static final double SCALE = 1L << 32; // fixed point unit of every distance
+    private static final int NONE = -1; // piece has no killable enemy
+
+    private final Grid grid;
+    private final int size;
+    private final long[] distance; // fixed point distance for every (row difference, column difference)
+    private final long[] closest; // per square of a piece, distance to the closest killable enemy
+    private final int[] nearest; // per square of a piece, square of that enemy or NONE
+    private final long[] threatTotal; // per square of a piece, total distance to the enemies that threaten it
+    private final int[] threats; // per square of a piece, number of those enemies
+    private final long[] pitSum = new long[2]; // per owner, running sums of the features of its pieces
+    private final long[] closestSum = new long[2];
+    private final long[] threatSum = new long[2];
+    private boolean stale = true; // sums are rebuilt from the board on the next evaluation
+
+    public IncrementalEvaluator(Grid grid){
+        this.grid = grid;
+        this.size = grid.getMapSize();
+        this.distance = new long[size * size];
+        for(int rows = 0; rows < size; rows++){
+            for(int cols = 0; cols < size; cols++){
+                distance[rows * size + cols] = Math.round(Math.sqrt(rows * rows + cols * cols) * SCALE);
+            }
+        }
+        this.closest = new long[size * size];
+        this.nearest = new int[size * size];
+        this.threatTotal = new long[size * size];
+        this.threats = new int[size * size];
+    }
+
+    /**
+     * Called by Grid after a piece was taken out of its PieceIndex, before the Cell is changed
+     * @param square square of the piece
+     * @param owner Cell.belongToPlayer() of the piece
+     * @param type Cell.getType() of the piece
+     */
+    public void pieceRemoved(int square, char owner, char type){
+        int o = BitBoard.ownerCode(owner);
+        int t = BitBoard.typeCode(type);
+        if(stale || o < 0 || t < 0){
+            return;
+        }
+        int enemy = 1 - o;
+        pitSum[o] -= pit(square);
+        if(nearest[square] != NONE){
+            closestSum[o] -= closest[square];
+        }
+        threatSum[o] -= share(square);
+
+        // enemies that could kill the piece, only those that had it as their closest look for another one
+        int predator = BitBoard.predator(t);
+        int[] squares = grid.getPieceSquares(enemy, predator);
+        for(int i = 0, count = grid.getPieceCount(enemy, predator); i < count; i++){
+            int other = squares[i];
+            if(nearest[other] == square){
+                closestSum[enemy] -= closest[other];
+                findClosest(other, o, t);
+                if(nearest[other] != NONE){
+                    closestSum[enemy] += closest[other];
+                }
+            }
+        }
+        // enemies the piece threatened lose one threat
+        removeThreat(square, enemy, t);
+        removeThreat(square, enemy, BitBoard.prey(t));
+    }
+
+    /**
+     * Called by Grid after a piece was placed on a Cell and added to the PieceIndex
+     * @param square square of the piece
+     * @param owner Cell.belongToPlayer() of the piece
+     * @param type Cell.getType() of the piece
+     */
+    public void pieceAdded(int square, char owner, char type){
+        int o = BitBoard.ownerCode(owner);
+        int t = BitBoard.typeCode(type);
+        if(stale || o < 0 || t < 0){
+            return;
+        }
+        int enemy = 1 - o;
+        addPiece(square, o, t);
+
+        // enemies that could kill the piece, it may be closer than their closest
+        int predator = BitBoard.predator(t);
+        int[] squares = grid.getPieceSquares(enemy, predator);
+        for(int i = 0, count = grid.getPieceCount(enemy, predator); i < count; i++){
+            int other = squares[i];
+            long d = distance(other, square);
+            if(nearest[other] == NONE){
+                closestSum[enemy] += d;
+            }else if(d < closest[other]){
+                closestSum[enemy] += d - closest[other];
+            }else{
+                continue;
+            }
+            closest[other] = d;
+            nearest[other] = square;
+        }
+        // enemies of the same type and of the type the piece kills gain one threat
+        addThreat(square, enemy, t);
+        addThreat(square, enemy, BitBoard.prey(t));
+    }
+
+    /**
+     * Drops every running sum, the next evaluation rebuilds them from the board
+     */
+    public void invalidate(){
+        stale = true;
+    }
+
+    /**
+     * Same value as Logic.calculateHeuristic(5, AI)
+     * @param AI true to evaluate for the AI, false for the player
+     * @return weighted heuristic
+     */
+    public double evaluate(boolean AI){
+        if(stale){
+            rebuild();
+        }
+        int owner = AI ? BitBoard.AI : BitBoard.PLAYER;
+        int pieces = grid.getPieceCount(owner, BitBoard.WUMPUS) + grid.getPieceCount(owner, BitBoard.HERO)
+                + grid.getPieceCount(owner, BitBoard.MAGE);
+
+        double pits = pieces == 0 ? 0 : pitSum[owner] / SCALE / size;
+        if(pieces > 0 && grid.getPitLocations().isEmpty()){
+            pits = Double.NaN; // the full scan averages over zero pits
+        }
+        double closestEnemy = pieces == 0 ? 0 : -1 * (closestSum[owner] / SCALE / size);
+        double furthestThreat = pieces == 0 ? 0 : threatSum[owner] / SCALE / size;
+        double heuristicVal =
+                0.05*pits
+                + (0.15*closestEnemy)
+                + 0.5*piecesDifference(AI)
+                + 0.2*totalPieces(AI)
+                + 0.10*furthestThreat;
+        return AI ? heuristicVal : -1 * heuristicVal;
+    }
+
+    //Same as Logic.calculatePiecesDifference
+    private double piecesDifference(boolean AI){
+        if (AI && grid.getAICount() == 0)
+            return -1000;
+        if (!AI && grid.getPlayerCount() == 0)
+            return -1000;
+        double WEIGHT = 10;
+        double base = AI ? (grid.getAICount() - grid.getPlayerCount()) * WEIGHT : (grid.getPlayerCount() - grid.getAICount()) * WEIGHT;
+        int own = AI ? BitBoard.AI : BitBoard.PLAYER;
+        int enemy = 1 - own;
+        int wumpusAdvantage = grid.getPieceCount(own, BitBoard.WUMPUS) - grid.getPieceCount(enemy, BitBoard.HERO);
+        int heroAdvantage = grid.getPieceCount(own, BitBoard.HERO) - grid.getPieceCount(enemy, BitBoard.MAGE);
+        int mageAdvantage = grid.getPieceCount(own, BitBoard.MAGE) - grid.getPieceCount(enemy, BitBoard.WUMPUS);
+        base = base + wumpusAdvantage*WEIGHT;
+        base = base + heroAdvantage*WEIGHT;
+        base = base + mageAdvantage*WEIGHT;
+        return base;
+    }
+
+    private double totalPieces(boolean AI){
+        double WEIGHT = 10;
+        return (AI ? grid.getAICount() : grid.getPlayerCount()) * WEIGHT;
+    }
+
+    //Recomputes every piece's features and the sums from the board
+    private void rebuild(){
+        stale = false;
+        for(int owner = 0; owner < 2; owner++){
+            pitSum[owner] = 0;
+            closestSum[owner] = 0;
+            threatSum[owner] = 0;
+        }
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                int[] squares = grid.getPieceSquares(owner, type);
+                for(int i = 0, count = grid.getPieceCount(owner, type); i < count; i++){
+                    addPiece(squares[i], owner, type);
+                }
+            }
+        }
+    }
+
+    //Computes the features of the piece on square from the enemy pieces and adds them to its side's sums
+    private void addPiece(int square, int owner, int type){
+        int enemy = 1 - owner;
+        pitSum[owner] += pit(square);
+        findClosest(square, enemy, BitBoard.prey(type));
+        if(nearest[square] != NONE){
+            closestSum[owner] += closest[square];
+        }
+        int predator = BitBoard.predator(type);
+        threatTotal[square] = totalDistance(square, enemy, type) + totalDistance(square, enemy, predator);
+        threats[square] = grid.getPieceCount(enemy, type) + grid.getPieceCount(enemy, predator);
+        threatSum[owner] += share(square);
+    }
+
+    //Closest piece of one enemy owner and type to square, NONE when there is none
+    private void findClosest(int square, int enemy, int type){
+        int[] squares = grid.getPieceSquares(enemy, type);
+        long min = Long.MAX_VALUE;
+        int at = NONE;
+        for(int i = 0, count = grid.getPieceCount(enemy, type); i < count; i++){
+            long d = distance(square, squares[i]);
+            if(d < min){
+                min = d;
+                at = squares[i];
+            }
+        }
+        closest[square] = min;
+        nearest[square] = at;
+    }
+
+    //Total distance from square to the pieces of one enemy owner and type
+    private long totalDistance(int square, int enemy, int type){
+        int[] squares = grid.getPieceSquares(enemy, type);
+        long total = 0;
+        for(int i = 0, count = grid.getPieceCount(enemy, type); i < count; i++){
+            total += distance(square, squares[i]);
+        }
+        return total;
+    }
+
+    //Adds the piece on square as one more threat of every enemy piece of one type
+    private void addThreat(int square, int enemy, int type){
+        int[] squares = grid.getPieceSquares(enemy, type);
+        for(int i = 0, count = grid.getPieceCount(enemy, type); i < count; i++){
+            int other = squares[i];
+            threatSum[enemy] -= share(other);
+            threatTotal[other] += distance(square, other);
+            threats[other]++;
+            threatSum[enemy] += share(other);
+        }
+    }
+
+    private void removeThreat(int square, int enemy, int type){
+        int[] squares = grid.getPieceSquares(enemy, type);
+        for(int i = 0, count = grid.getPieceCount(enemy, type); i < count; i++){
+            int other = squares[i];
+            threatSum[enemy] -= share(other);
+            threatTotal[other] -= distance(square, other);
+            threats[other]--;
+            threatSum[enemy] += share(other);
+        }
+    }
+
+    //Average distance of a piece to its threats, the term it adds to getAvgFurthestThreat
+    private long share(int square){
+        return threats[square] == 0 ? 0 : threatTotal[square] / threats[square];
+    }
+
+    private long pit(int square){
+        return Math.round(grid.getAverageDistanceToPits(square / size, square % size) * SCALE);
+    }
+
+    private long distance(int a, int b){
+        return distance[Math.abs(a / size - b / size) * size + Math.abs(a % size - b % size)];
+    }
+}
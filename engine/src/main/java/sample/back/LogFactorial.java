@@ -0,0 +1,47 @@
+package sample.back;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ln(k!) for every k up to the number of squares of a board, so the counting terms of the observation probability
+ * are a table lookup and stay finite on large boards (170! already overflows a double, a 15x15 board has 225 squares).
+ */
+public class LogFactorial {
+    private static final ConcurrentHashMap<Integer, LogFactorial> TABLES = new ConcurrentHashMap<Integer, LogFactorial>();
+
+    private final double[] table; // table[k] = ln(k!)
+
+    private LogFactorial(int size){
+        this.table = new double[size * size + 1];
+        for(int k = 2; k < table.length; k++){
+            table[k] = table[k - 1] + Math.log(k);
+        }
+    }
+
+    /**
+     * Tables are shared by every Grid of the same size
+     * @param size grid size
+     * @return ln(k!) for k from 0 to size * size
+     */
+    public static LogFactorial forSize(int size){
+        LogFactorial logFactorial = TABLES.get(size);
+        if(logFactorial == null){
+            logFactorial = TABLES.computeIfAbsent(size, LogFactorial::new);
+        }
+        return logFactorial;
+    }
+
+    /**
+     * @return ln(k!), 0 for k < 1 like Logic's old factorial loop
+     */
+    public double of(int k){
+        return k < 1 ? 0 : table[k];
+    }
+
+    /**
+     * @return ln(n! / (n - k)!), the log of the number of ordered ways to pick k of n
+     */
+    public double falling(int n, int k){
+        return of(n) - of(n - k);
+    }
+}
@@ -1,12 +1,16 @@
 package sample.back;
 
-import javafx.beans.Observable;
-
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 import java.lang.Math;
 
 public class Logic {
@@ -15,12 +19,47 @@ public class Logic {
     private int depth;
     private Move bestMove;
     private ArrayList<Cell> observations;
+    private TranspositionTable table;
+    private int tableMegabytes = 16;
+    private final SearchStats stats = new SearchStats();
+
+    public static final int MAX_DEPTH = 32;
+    public static final long DEFAULT_TIME_BUDGET = 200;
+    private long timeBudget; // milliseconds per move, 0 searches exactly this.depth
+    private long deadline = Long.MAX_VALUE;
+    private boolean searchAborted;
+    private int completedDepth;
+    private int[][] pvTable; // principal variation found at each ply, as encoded moves
+    private int[] pvLength;
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+    private int workers = 1;
+    private ForkJoinPool pool;
+    private Logic[] helpers; // one board copy per worker of the parallel root search
+    private BeliefEngine beliefEngine = new MarginalBeliefEngine(this);
+    private DiffusionKernel diffusion; // opponent move of the marginal beliefs, made for the board size on first use
+    private MoveList moveList; // move buffers of alphabeta by remaining depth, made on first use
+    private MoveOrdering ordering; // killer moves and history of alphabeta, made on first use
+    private int[] originBuffer = new int[0]; // squares of the pieces of the side to move while generating moves
+
     public Logic(Grid map, int depthSearch) {
         this.map = map;
         this.depth = depthSearch;
+        this.map.useIncrementalEvaluator();
         observations = new ArrayList<Cell>();
         initialize();
     }
+
+    /**
+     * Searches with iterative deepening (depth 1, 2, 3...) until the time budget runs out or maxDepth is reached
+     * @param map game board
+     * @param maxDepth deepest iteration to search
+     * @param timeBudgetMillis wall clock budget per move in milliseconds
+     */
+    public Logic(Grid map, int maxDepth, long timeBudgetMillis) {
+        this(map, maxDepth);
+        this.timeBudget = timeBudgetMillis;
+    }
     private HashSet<Cell> wumpusLocations;
     private HashSet<Cell> heroLocations;
     private HashSet<Cell> mageLocations;
@@ -34,6 +73,18 @@ public class Logic {
         return map;
     }
 
+    /**
+     * Replaces how the AI tracks the hidden player pieces and pits, MarginalBeliefEngine by default
+     * @param beliefEngine engine used by AInextTurn, AIObservation and generateObservations
+     */
+    public void setBeliefEngine(BeliefEngine beliefEngine){
+        this.beliefEngine = beliefEngine;
+    }
+
+    public BeliefEngine getBeliefEngine(){
+        return this.beliefEngine;
+    }
+
     /***
      * Initial State of the board (Before any move is made) (Sets all the probabilities to the correct ones)
      */
@@ -65,45 +116,114 @@ public class Logic {
         return generateObservations(isPlayer);
     }
 
+    /**
+     * The AI turn (playAITurn) followed by the player's view, the move played is getBestMove()
+     * @param playerMovement player movement model of the belief update
+     * @return fog of war map of the player
+     */
     public Grid AInextTurn(int playerMovement){
+        playAITurn(playerMovement);
+
+        //Return a map containing the player view of the board
+        return generateObservations(true);
+    }
+
+    /**
+     * The AI turn under fog of war without any output: belief update for the player's move, policy() move, belief
+     * update for the AI's own move
+     * @param playerMovement player movement model of the belief update
+     * @return the move played, null if the AI had no move
+     */
+    public Move playAITurn(int playerMovement){
+        return playAITurn(playerMovement, TurnListener.NONE);
+    }
+
+    /**
+     * playAITurn reporting its phases to a listener that can cancel it until the move is played. A cancelled turn
+     * leaves the beliefs as they were before it started, so it can simply be played again.
+     * @param playerMovement player movement model of the belief update
+     * @param listener told about every phase, asked whether to stop before each of them
+     * @return the move played, null if the AI had no move
+     * @throws CancellationException if the listener cancelled the turn, nothing has changed then
+     */
+    public Move playAITurn(int playerMovement, TurnListener listener){
+        //Kept to undo the belief updates of a cancelled turn, nothing to keep when nobody can cancel
+        boolean cancellable = listener != TurnListener.NONE;
+        BeliefPlanes oldPlanes = cancellable ? new BeliefPlanes(map.getBeliefs()) : null;
+        BeliefEngine oldBeliefs = cancellable ? beliefEngine.copy() : null;
+
         //Calculate possible moves the Player can make
-        calculateRandomMoveProbability(map, false, playerMovement);
+        startPhase(listener, TurnListener.PREDICT, oldPlanes, oldBeliefs);
+        beliefEngine.predict(map, playerMovement);
 
         //Player Move
+        startPhase(listener, TurnListener.OBSERVE, oldPlanes, oldBeliefs);
         Grid fogOfWar = generateObservations(false);
         updateStateProbabilities(fogOfWar);
 
         //AI makes a move
+        startPhase(listener, TurnListener.POLICY, oldPlanes, oldBeliefs);
         Move bestMove = policy();
+        if(bestMove == null){
+            this.bestMove = null;
+            return null;
+        }
+        startPhase(listener, TurnListener.AFTER_MOVE, oldPlanes, oldBeliefs);
         this.bestMove = bestMove; //Used to retrieve the value to print the UI
-        System.out.println("Best move: " + bestMove.toString());
         Cell origin = map.getCell(bestMove.getOrigin().getRow(), bestMove.getOrigin().getCol());
         Cell goal = map.getCell(bestMove.getGoal().getRow(), bestMove.getGoal().getCol());
         move(origin, goal);
         fogOfWar = generateObservations(false);
         updateStateProbabilities(fogOfWar);
+        return bestMove;
+    }
 
+    //Reports a phase, or puts the beliefs back and stops the turn if the listener cancelled it
+    private void startPhase(TurnListener listener, int phase, BeliefPlanes oldPlanes, BeliefEngine oldBeliefs){
+        if(listener.isCancelled()){
+            map.getBeliefs().copyFrom(oldPlanes);
+            beliefEngine = oldBeliefs;
+            throw new CancellationException("AI turn cancelled");
+        }
+        listener.phase(phase);
+    }
 
-        //Return a map containing the player view of the board
-        fogOfWar = generateObservations(true);
-        return fogOfWar;
+    /**
+     * @return move chosen by the last policy(), run() or root alphabeta call, null if the side to move had no move
+     */
+    public Move getBestMove(){
+        return this.bestMove;
     }
 
     public Move policy(){
-
-        PriorityQueue<Move> queue = new PriorityQueue<Move>(11, (Move m1, Move m2) -> Double.compare(m2.getHeuristicValue(), m1.getHeuristicValue()));
-        ArrayList<Cell> pieces = map.getAICells();
-
-        for(Cell piece : pieces){
-            ArrayList<Cell> moves = possibleMoves(piece);
-            for(Cell move : moves){
-                Cell copyOrigin = piece.copy();
-                Cell copyGoal = move.copy();
-                double reward = calculateReward(piece, move);
-                queue.add(new Move(copyOrigin, copyGoal, reward));
+        //Highest reward over every AI move, ties go to the first move found when walking the pieces in row major order
+        int bestOrigin = -1;
+        int bestGoal = -1;
+        double bestReward = 0;
+        for(int type = 0; type < 3; type++){
+            int[] squares = map.getPieceSquares(BitBoard.AI, type);
+            for(int i = 0, count = map.getPieceCount(BitBoard.AI, type); i < count; i++){
+                int origin = squares[i];
+                Cell piece = map.getCell(origin);
+                for(int target : map.getNeighborSquares(origin)){
+                    Cell goal = map.getCell(target);
+                    if(!isValidMove(piece, goal)){
+                        continue;
+                    }
+                    double reward = calculateReward(piece, goal);
+                    int order = bestOrigin < 0 ? 1 : Double.compare(reward, bestReward);
+                    if(order > 0 || order == 0 && origin < bestOrigin){
+                        bestOrigin = origin;
+                        bestGoal = target;
+                        bestReward = reward;
+                    }
+                }
             }
         }
-        return queue.poll();
+        if(bestOrigin < 0){
+            return null;
+        }
+        return new Move(map.getCell(bestOrigin).copy(), map.getCell(bestGoal).copy(), bestReward);
     }
 
     public double calculateReward(Cell origin, Cell goal){
@@ -112,11 +232,11 @@ public class Logic {
             return -1000;
         }
 
-        ArrayList<Cell> neighbors = map.getNeighbors(origin.getRow(), origin.getCol());
         double value = 0;
 
         //Checking if running away from a certain piece (if same piece, no difference | if piece is killable, negative value | if piece is going kill your piece, positive value
-        for(Cell neighbor : neighbors){
+        for(int square : map.getNeighborSquares(origin.getRow() * map.getMapSize() + origin.getCol())){
+            Cell neighbor = map.getCell(square);
             if(neighbor.equals(goal) || isNeighbor(neighbor, goal)){
                 continue;
             }
@@ -154,7 +274,7 @@ public class Logic {
         return value;
     }
 
-    private double getWeightedDistanceForPlayerMove(int r, int c, char playerPiece, char aiPiece) {
+    double getWeightedDistanceForPlayerMove(int r, int c, char playerPiece, char aiPiece) {
         // base cases, check if player has this piece
         if (playerPiece == 'W' && map.getNumOfPWumpus() == 0)
             return 0;
@@ -172,16 +292,8 @@ public class Logic {
             return 1;
 
         // if we did not return yet, that means if the player has playerPiece at this cell, there is a killable enemy piece somewhere
-        // lets find the minimum distance to that piece
-        double minDist = Double.MAX_VALUE;
-        for (int row = 0; row < map.getMapSize(); row++) {
-            for (int col = 0; col < map.getMapSize(); col++) {
-                Cell curCell = map.getCell(row, col);
-                if (curCell.belongToPlayer() == '2' && curCell.getType() == aiPiece) {
-                    minDist = Math.min(minDist, Math.sqrt((r-row)*(r-row) + (c-col)*(c-col)));
-                }
-            }
-        }
+        // the minimum distance to that piece is read from the distance transform of the AI's aiPiece pieces
+        double minDist = map.getDistanceField().nearest(BitBoard.AI, BitBoard.typeCode(aiPiece), r, c);
 
         double maxDistanceInBoard = map.getMapSize() * Math.sqrt(2);
         return 1 - (minDist / maxDistanceInBoard);
@@ -197,55 +309,43 @@ public class Logic {
         if(isPlayer){
 
         }else{
+            int size = map.getMapSize();
+            int playerPieces = map.getPlayerCount();
+            int opponentPieces = map.getPlayerCount();
+            BeliefPlanes from = map.getBeliefs();
+            BeliefPlanes to = fogOfWar.getBeliefs();
+            double[][] before = {from.getWumpus(), from.getHero(), from.getMage()};
+            double[][] after = {to.getWumpus(), to.getHero(), to.getMage()};
+            if(diffusion == null || diffusion.getSize() != size){
+                diffusion = DiffusionKernel.forSize(size);
+            }
+            double[] totals = new double[3];
             switch (playerMovement) {
                 case 1:
-                    double totalWumpusProb = 0;
-                    double totalHeroProb = 0;
-                    double totalMageProb = 0;
-                    for(int row = 0; row < map.getMapSize(); row++){
-                        for(int col = 0; col < map.getMapSize(); col++){
-                            int playerPieces = map.getPlayerCount();
-                            double[] neighborMovingProbability = neighborMovingProbability(row, col, isPlayer);
-                            double wumpusWeight = getWeightedDistanceForPlayerMove(row, col, 'W', 'M');
-                            double heroWeight = getWeightedDistanceForPlayerMove(row, col, 'H', 'W');
-                            double mageWeight = getWeightedDistanceForPlayerMove(row, col, 'M', 'H');
-                            double wumpusProb = (row+1)*wumpusWeight * (((1 - (1.0/playerPieces)) * map.getCell(row, col).getWumpusProb()) + neighborMovingProbability[0]);
-                            double heroProb = (row+1)*heroWeight * (((1 - (1.0/playerPieces)) * map.getCell(row, col).getHeroProb()) + neighborMovingProbability[1]);
-                            double mageProb = (row+1)*mageWeight * (((1 - (1.0/playerPieces)) * map.getCell(row, col).getMageProb()) + neighborMovingProbability[2]);
-                            fogOfWar.getCell(row, col).setWumpusProb(wumpusProb);
-                            fogOfWar.getCell(row, col).setHeroProb(heroProb);
-                            fogOfWar.getCell(row, col).setMageProb(mageProb);
-                            fogOfWar.getCell(row, col).setPitProb(map.getCell(row, col).getPitProb());
-                            totalWumpusProb += wumpusProb;
-                            totalHeroProb += heroProb;
-                            totalMageProb += mageProb;
-                        }
+                    double[][] weights = new double[3][size * size];
+                    for(int square = 0; square < size * size; square++){
+                        int row = square / size;
+                        int col = square % size;
+                        weights[0][square] = (row+1)*getWeightedDistanceForPlayerMove(row, col, 'W', 'M');
+                        weights[1][square] = (row+1)*getWeightedDistanceForPlayerMove(row, col, 'H', 'W');
+                        weights[2][square] = (row+1)*getWeightedDistanceForPlayerMove(row, col, 'M', 'H');
                     }
+                    diffusion.diffuse(before, after, 1 - (1.0/playerPieces), 1.0/opponentPieces, weights, totals);
                     // normalize the probability distribution
-                    for(int row = 0; row < map.getMapSize(); row++){
-                        for(int col = 0; col < map.getMapSize(); col++){
-                            fogOfWar.getCell(row, col).setWumpusProb(fogOfWar.getCell(row, col).getWumpusProb()/totalWumpusProb);
-                            fogOfWar.getCell(row, col).setHeroProb(fogOfWar.getCell(row, col).getHeroProb()/totalHeroProb);
-                            fogOfWar.getCell(row, col).setMageProb(fogOfWar.getCell(row, col).getMageProb()/totalMageProb);
+                    for(int type = 0; type < 3; type++){
+                        double[] plane = after[type];
+                        for(int square = 0; square < size * size; square++){
+                            plane[square] /= totals[type];
                         }
                     }
                     break;
                 default:
-                    for(int row = 0; row < map.getMapSize(); row++){
-                        for(int col = 0; col < map.getMapSize(); col++){
-                            int playerPieces = map.getPlayerCount();
-                            double[] neighborMovingProbability = neighborMovingProbability(row, col, isPlayer);
-                            double wumpusProb = ((1 - (1.0/playerPieces)) * map.getCell(row, col).getWumpusProb()) + neighborMovingProbability[0];
-                            double heroProb = ((1 - (1.0/playerPieces)) * map.getCell(row, col).getHeroProb()) + neighborMovingProbability[1];
-                            double mageProb = ((1 - (1.0/playerPieces)) * map.getCell(row, col).getMageProb()) + neighborMovingProbability[2];
-                            fogOfWar.getCell(row, col).setWumpusProb(wumpusProb);
-                            fogOfWar.getCell(row, col).setHeroProb(heroProb);
-                            fogOfWar.getCell(row, col).setMageProb(mageProb);
-                            fogOfWar.getCell(row, col).setPitProb(map.getCell(row, col).getPitProb());
-                        }
-                    }
+                    diffusion.diffuse(before, after, 1 - (1.0/playerPieces), 1.0/opponentPieces, null, totals);
                     break;
             }
+            if(to != from){
+                System.arraycopy(from.getPit(), 0, to.getPit(), 0, size * size);
+            }
         }
     }
 
@@ -264,30 +364,22 @@ public class Logic {
         for(Cell AIpiece : AIpieces){
             int row = AIpiece.getRow();
             int col = AIpiece.getCol();
-            ArrayList<Cell> neighbors = modified.getNeighbors(row, col);
-            for(Cell neighbor : neighbors){
+            for(int square : modified.getNeighborSquares(row * modified.getMapSize() + col)){
+                Cell neighbor = modified.getCell(square);
                 if((neighbor.belongToPlayer() == '1' || neighbor.getType() == 'P')){
                     char type = neighbor.getType();
                     switch(type){
                         case 'P':
-                            if(!modified.getCell(row, col).observations.contains('B')){
-                                modified.getCell(row, col).observations.add('B'); //Breeze
-                            }
+                            modified.getCell(row, col).addObservation('B'); //Breeze
                             break;
                         case 'W':
-                            if(!modified.getCell(row, col).observations.contains('S')){
-                                modified.getCell(row, col).observations.add('S'); //Stench
-                            }
+                            modified.getCell(row, col).addObservation('S'); //Stench
                             break;
                         case 'H':
-                            if(!modified.getCell(row, col).observations.contains('N')){
-                                modified.getCell(row, col).observations.add('N'); //Hero Moving
-                            }
+                            modified.getCell(row, col).addObservation('N'); //Hero Moving
                             break;
                         case 'M':
-                            if(!modified.getCell(row, col).observations.contains('F')){
-                                modified.getCell(row, col).observations.add('F'); //Fire Magic
-                            }
+                            modified.getCell(row, col).addObservation('F'); //Fire Magic
                             break;
                         default:
                             System.out.println("An error occurred when setting the observations!");
@@ -311,6 +403,7 @@ public class Logic {
                 }
             }
         }
+        onlyAIPiecesAndPits.rehash();
         return onlyAIPiecesAndPits;
     }
 
@@ -345,7 +438,7 @@ public class Logic {
             neighbors.removeIf(neighbor -> neighbor.getType() == 'P');
             neighbors.removeIf(neighbor -> neighbor.belongToPlayer() == '2');
 
-            for(char observation : observationCell.observations){
+            for(char observation : observationCell.getObservations()){
                 switch (observation) {
                     case 'S':
                         wumpusLocation.addAll(neighbors);
@@ -370,10 +463,41 @@ public class Logic {
     }
     
 
+    /**
+     * Counts the placements of the player pieces consistent with the AI's observations without listing them,
+     * see ConsistentStates (exact version of getAllObservationStates that stays fast up to 9x9 boards)
+     * @return consistent state counter of the current board
+     */
+    public ConsistentStates getConsistentStates(){
+        return new ConsistentStates(this.map);
+    }
+
+    /**
+     * Sets the exact posterior wumpus/hero/mage probabilities given the current observations of the AI pieces
+     * (ignores earlier turns, unlike the belief engine)
+     * @param fogOfWar grid whose Cells receive the probabilities
+     * @return number of consistent placements of the player pieces
+     */
+    public double calculateExactObservationProbability(Grid fogOfWar){
+        ConsistentStates states = getConsistentStates();
+        states.writeMarginals(fogOfWar);
+        return states.count();
+    }
+
+    /**
+     * Streams the placements of the player pieces consistent with the AI's observations while they are found,
+     * see StateEnumerator (parallel, constant memory version of getAllObservationStates)
+     * @return every consistent state, use parallel() to search on every core
+     */
+    public Stream<Grid> streamObservationStates(){
+        return new StateEnumerator(this.map).grids();
+    }
+
     // player pieces has to be of the form ['W', 'W', 'H', 'M'] if the player has 2 wumpus, 1 hero, 1 mage alive. order doesnt matter
     public ArrayList<Grid> getAllObservationStates(Grid curGrid, ArrayList<Grid> states, int r, int c, ArrayList<Character> playerPieces,
                                                    ArrayList<Cell> posWumpus, ArrayList<Cell> posHero, ArrayList<Cell> posMage) {
           if (playerPieces.isEmpty()) {
+              curGrid.rehash(); // the player pieces were placed directly on the Cells
               Grid gameBoard = new Grid(this.map);
               setObservations(curGrid);
               setObservations(gameBoard);
@@ -472,6 +596,7 @@ public class Logic {
         Grid fogOfWar = new Grid(map.getMapSize(), true);
         fogOfWar.setAIPieces(map.getAICount());
         fogOfWar.setPlayerPieces(map.getPlayerCount());
+        fogOfWar.getBeliefs().copyFrom(map.getBeliefs());
         ArrayList<Cell> positions = new ArrayList<Cell>();
         if(isPlayer){
             for(int row = 0; row < map.getMapSize(); row++){
@@ -482,7 +607,6 @@ public class Logic {
                     }else{
                         fogOfWar.getCell(row, col).setType('?');
                     }
-                    fogOfWar.setProbability(map.getCell(row, col), row, col);
                 }
             }
             this.observations = setObservations(positions, fogOfWar, true);
@@ -495,11 +619,10 @@ public class Logic {
                     } else {
                         fogOfWar.getCell(row, col).setType('?');
                     }
-                    fogOfWar.setProbability(map.getCell(row, col), row, col);
                 }
             }
             this.observations = setObservations(positions, fogOfWar, false);
-            calculateObservationProbability(fogOfWar, this.observations, positions);
+            beliefEngine.observe(fogOfWar, this.observations, positions);
         }
        // getPossibleLocations();
        // ArrayList<Grid> observedStates = getAllObservationStates(onlyAiPiecesAndPits(), new ArrayList<Grid>(), 0, 0, listOfPlayerPieces(), new ArrayList<Cell>(), new ArrayList<Cell>(), new ArrayList<Cell>());
@@ -522,65 +645,51 @@ public class Logic {
     }
 
     public void calculateObservationProbability(Grid fogOfWar, ArrayList<Cell> observations, ArrayList<Cell> pieces) {
-        double observationProbability = calculateFullObservationProbability(this.map, observations, pieces);
-        for (int row = 0; row < map.getMapSize(); row++) {
-            for (int col = 0; col < map.getMapSize(); col++) {
-                Cell temp = map.getCell(row, col);
-                if (pieces.contains(temp)) { // If the cell is an AI piece, obviously no chance for wumpus/hero/mage/pit
-                    fogOfWar.getCell(row, col).setWumpusProb(0);
-                    fogOfWar.getCell(row, col).setHeroProb(0);
-                    fogOfWar.getCell(row, col).setMageProb(0);
-                    fogOfWar.getCell(row, col).setPitProb(0);
-                    continue;
-                }
-                double[] probabilities = getCurrentProbabilities(row, col);
-                double[] observationGivenPiece = getObservationGivenPiece(row, col, observations, pieces, fogOfWar);
-                if (observationProbability == 0) {
-                    System.out.println("ERROR");
-                }
-                double wumpusProb = (probabilities[0] * observationGivenPiece[0]) / observationProbability;
-                double heroProb = (probabilities[1] * observationGivenPiece[1]) / observationProbability;
-                double mageProb = (probabilities[2] * observationGivenPiece[2]) / observationProbability;
-                double pitProb = (probabilities[3] * observationGivenPiece[3]) / observationProbability;
-
-                if (wumpusProb > 1) {
-                    wumpusProb = 1;
-                }
-                if (heroProb > 1) {
-                    heroProb = 1;
-                }
-                if (mageProb > 1) {
-                    mageProb = 1;
-                }
-                if (pitProb > 1) {
-                    pitProb = 1;
-                }
-                if (this.map.getNumOfPWumpus() == 0) {
-                    wumpusProb = 0;
+        ObservationLikelihood likelihood = new ObservationLikelihood(this, this.map, fogOfWar, observations, pieces);
+        double logObservationProbability = likelihood.getLogEvidence();
+        if (!Double.isFinite(logObservationProbability)) {
+            return; // no position explains the observations, fogOfWar keeps the prior beliefs it was made with
+        }
+        int size = map.getMapSize();
+        BeliefPlanes prior = map.getBeliefs();
+        BeliefPlanes posterior = fogOfWar.getBeliefs();
+        double[][] from = {prior.getWumpus(), prior.getHero(), prior.getMage(), prior.getPit()};
+        double[][] to = {posterior.getWumpus(), posterior.getHero(), posterior.getMage(), posterior.getPit()};
+        boolean[] noneLeft = {map.getNumOfPWumpus() == 0, map.getNumOfPHero() == 0, map.getNumOfPMage() == 0, false};
+        double[] observationGivenPiece = new double[4];
+        for (int square = 0; square < size * size; square++) {
+            int row = square / size;
+            int col = square % size;
+            if (likelihood.isPiece(row, col)) { // If the cell is an AI piece, obviously no chance for wumpus/hero/mage/pit
+                for (int type = 0; type < 4; type++) {
+                    to[type][square] = 0;
                 }
-                if (this.map.getNumOfPHero() == 0) {
-                    heroProb = 0;
+                continue;
+            }
+            likelihood.given(row, col, observationGivenPiece);
+            for (int type = 0; type < 4; type++) {
+                // P(piece | observations) = P(piece) * P(observations | piece) / P(observations), the ratio taken in log space
+                double probability = from[type][square] * Math.exp(observationGivenPiece[type] - logObservationProbability);
+                if (probability > 1) {
+                    probability = 1;
                 }
-                if (this.map.getNumOfPMage() == 0) {
-                    mageProb = 0;
+                if (noneLeft[type]) {
+                    probability = 0;
                 }
-                fogOfWar.getCell(row, col).setWumpusProb(wumpusProb);
-                fogOfWar.getCell(row, col).setHeroProb(heroProb);
-                fogOfWar.getCell(row, col).setMageProb(mageProb);
-                fogOfWar.getCell(row, col).setPitProb(pitProb);
+                to[type][square] = probability;
             }
         }
-        int pitProbEqualZero = 0;
-        for (int row = 1; row < map.getMapSize() - 1; row++) {
-            pitProbEqualZero = 0;
-            for (int col = 0; col < map.getMapSize(); col++) {
-                if (fogOfWar.getCell(row, col).getPitProb() == 0) {
+        double[] pit = posterior.getPit();
+        for (int row = 1; row < size - 1; row++) {
+            int pitProbEqualZero = 0;
+            for (int square = row * size; square < (row + 1) * size; square++) {
+                if (pit[square] == 0) {
                     pitProbEqualZero++;
                 }
             }
-            for (int col = 0; col < map.getMapSize(); col++) {
-                if (fogOfWar.getCell(row, col).getPitProb() > 0) {
-                    fogOfWar.getCell(row, col).setPitProb((double) 1 / (map.getMapSize() - pitProbEqualZero));
+            for (int square = row * size; square < (row + 1) * size; square++) {
+                if (pit[square] > 0) {
+                    pit[square] = (double) 1 / (size - pitProbEqualZero);
                 }
             }
         }
@@ -596,7 +705,7 @@ public class Logic {
                             continue;
                         }
                         if(!observes.contains(temp)){
-                            for(char observation : observationCell.observations){
+                            for(char observation : observationCell.getObservations()){
                                 switch(observation) {
                                     case 'S':
                                         fogOfWar.getCell(row, col).setWumpusProb(0);
@@ -648,14 +757,20 @@ public class Logic {
 
     public Grid AIObservation(int playerMovement){
         Grid oldMap = new Grid(map);
+        BeliefEngine oldBeliefs = beliefEngine.copy();
 
-        calculateRandomMoveProbability(map, false, playerMovement);
+        beliefEngine.predict(map, playerMovement);
         Grid fogOfWar = generateObservations(false);
 
         updateStateProbabilities(oldMap);
+        beliefEngine = oldBeliefs;
         return fogOfWar;
     }
 
+    /**
+     * Reference version of ObservationLikelihood.given, builds a copy of the map for every hypothesis
+     * @return ln P(observations | wumpus, hero, mage, pit at the cell), NEGATIVE_INFINITY when impossible
+     */
     public double[] getObservationGivenPiece(int row, int col, ArrayList<Cell> observations, ArrayList<Cell> pieces, Grid fogOfWar){
         double[] probabilities = new double[4];
         ArrayList<Cell> observed = new ArrayList<Cell>(); //Represents the pieces that observed a combination of either stench/noise/firemage/breeze and is adjacent to the (row, col) cell
@@ -667,10 +782,10 @@ public class Logic {
                 if(observations.contains(piece)){
                     observed.add(fogOfWar.getCell(piece.getRow(), piece.getCol()));
                 }else{ //If an adjacent cell is a AI piece and the AI piece observes no stench/no hero/no wumpus/no mage then return 0 for all probabilities
-                    probabilities[0] = 0;
-                    probabilities[1] = 0;
-                    probabilities[2] = 0;
-                    probabilities[3] = 0;
+                    probabilities[0] = Double.NEGATIVE_INFINITY;
+                    probabilities[1] = Double.NEGATIVE_INFINITY;
+                    probabilities[2] = Double.NEGATIVE_INFINITY;
+                    probabilities[3] = Double.NEGATIVE_INFINITY;
                     return probabilities;
                 }
             }
@@ -684,20 +799,20 @@ public class Logic {
             //this is CASE 1
             //If any of the observations do not observe a stench/noise/firemage/breeze then we know the cell cannot contain wumpus/hero/mage/pit
             for(Cell observation : observed){
-                if(!observation.observations.contains('S')){
-                    probabilities[0] = 0;
+                if(!observation.hasObservation('S')){
+                    probabilities[0] = Double.NEGATIVE_INFINITY;
                     containWumpus = false;
                 }
-                if(!observation.observations.contains('N')){
-                    probabilities[1] = 0;
+                if(!observation.hasObservation('N')){
+                    probabilities[1] = Double.NEGATIVE_INFINITY;
                     containHero = false;
                 }
-                if(!observation.observations.contains('F')){
-                    probabilities[2] = 0;
+                if(!observation.hasObservation('F')){
+                    probabilities[2] = Double.NEGATIVE_INFINITY;
                     containMage = false;
                 }
-                if(!observation.observations.contains('B')){
-                    probabilities[3] = 0;
+                if(!observation.hasObservation('B')){
+                    probabilities[3] = Double.NEGATIVE_INFINITY;
                     containPit = false;
                 }
             }
@@ -752,7 +867,7 @@ public class Logic {
                     copy.getCell(r, c).setPitProb(pitProb);
                 }
             }
-            probabilities[0] =  calculateFullObservationProbability(copy, observations, pieces);
+            probabilities[0] =  calculateFullLogObservationProbability(copy, observations, pieces);
         }
         if(containHero){
             Grid copy = new Grid(map);
@@ -781,7 +896,7 @@ public class Logic {
                     copy.getCell(r, c).setPitProb(pitProb);
                 }
             }
-            probabilities[1] = calculateFullObservationProbability(copy, observations, pieces);
+            probabilities[1] = calculateFullLogObservationProbability(copy, observations, pieces);
         }
         if(containMage){
             Grid copy = new Grid(map);
@@ -810,7 +925,7 @@ public class Logic {
                     copy.getCell(r, c).setPitProb(pitProb);
                 }
             }
-            probabilities[2] =  calculateFullObservationProbability(copy, observations, pieces);
+            probabilities[2] =  calculateFullLogObservationProbability(copy, observations, pieces);
         }
         if(containPit){
             Grid copy = new Grid(map);
@@ -839,22 +954,19 @@ public class Logic {
                     copy.getCell(r, c).setPitProb(pitProb);
                 }
             }
-            probabilities[3] = calculateFullObservationProbability(copy, observations, pieces);
+            probabilities[3] = calculateFullLogObservationProbability(copy, observations, pieces);
         }
         return probabilities;
     }
 
-    private double factorial(int n) {
-        double fact = 1;
-        int i = 1;
-        while(i <= n) {
-            fact *= i;
-            i++;
-        }
-        return fact;
+    public double calculateFullObservationProbability(Grid map, ArrayList<Cell> observations, ArrayList<Cell> pieces){
+        return Math.exp(calculateFullLogObservationProbability(map, observations, pieces));
     }
 
-    public double calculateFullObservationProbability(Grid map, ArrayList<Cell> observations, ArrayList<Cell> pieces){
+    /**
+     * Log of calculateFullObservationProbability, stays finite on boards where the probability itself underflows
+     */
+    public double calculateFullLogObservationProbability(Grid map, ArrayList<Cell> observations, ArrayList<Cell> pieces){
 
         ArrayList<Cell> dontCheck = new ArrayList<Cell>();
         dontCheck.addAll(pieces);
@@ -874,35 +986,14 @@ public class Logic {
         }
 
 
-        int playerPiece = map.getPlayerCount();
-        int totalCells = map.getMapSize() * map.getMapSize();
-        int occupiedCells = map.getAICount() + map.getPlayerCount() + ((map.getMapSize() - 2) * map.getPitsPerRow());
-
-        double observeProb = 1;
-        int playerPcsExamined = 0;
-
-        for(Cell observation : observations){
-            if(observation.observations.contains("B")){
-                playerPcsExamined -= 1;
-            }
-            ArrayList<Cell> possibleMoves = possibleMoves(observation);
-            int n = possibleMoves.size();
-            int o = observation.observations.size();
-            observeProb *= (factorial(n) / factorial(n-o));
-            playerPcsExamined += o;
-        }
-        int numOfEmptyCells = totalCells - dontCheck.size();
-        int value = (playerPiece - playerPcsExamined);
-        observeProb *= (factorial(numOfEmptyCells) / factorial(numOfEmptyCells - value));
-        observeProb /= (factorial(totalCells) / factorial(totalCells - occupiedCells));
-        return observeProb;
+        return logObservationProbability(map, observations, dontCheck.size());
 
         /*
         ArrayList<Double> summations = new ArrayList<Double>();
         for(Cell observation : observations){
             double pieceObservationProbability = 0;
             ArrayList<Cell> neighbors = map.getNeighbors(observation.getRow(), observation.getCol());
-            for(char type : observation.observations){
+            for(char type : observation.getObservations()){
                 for(Cell neighbor : neighbors){
                     if(neighborsPossible.contains(neighbor)){
                         switch (type) {
@@ -949,17 +1040,44 @@ public class Logic {
         */
     }
 
+    /**
+     * Second half of calculateFullLogObservationProbability, once the cells in and around the pieces are known.
+     * Every factorial ratio is a difference of ln(k!) table entries
+     * @param checkedCells number of cells that are either a piece or a neighbor of one
+     * @return ln P(observations)
+     */
+    double logObservationProbability(Grid map, ArrayList<Cell> observations, int checkedCells){
+        LogFactorial logFactorial = LogFactorial.forSize(map.getMapSize());
+        int playerPiece = map.getPlayerCount();
+        int totalCells = map.getMapSize() * map.getMapSize();
+        int occupiedCells = map.getAICount() + map.getPlayerCount() + ((map.getMapSize() - 2) * map.getPitsPerRow());
+
+        double logObserveProb = 0;
+        int playerPcsExamined = 0;
+
+        for(Cell observation : observations){
+            if(observation.hasObservation('B')){
+                playerPcsExamined -= 1;
+            }
+            ArrayList<Cell> possibleMoves = possibleMoves(observation);
+            int n = possibleMoves.size();
+            int o = observation.getObservationCount();
+            logObserveProb += logFactorial.falling(n, o);
+            playerPcsExamined += o;
+        }
+        int numOfEmptyCells = totalCells - checkedCells;
+        int value = (playerPiece - playerPcsExamined);
+        logObserveProb += logFactorial.falling(numOfEmptyCells, value);
+        logObserveProb -= logFactorial.falling(totalCells, occupiedCells);
+        return logObserveProb;
+    }
+
     /**
      * Updates the current probabilities to the one specified in the parameter
      * @param newProbabilities
      */
     public void updateStateProbabilities(Grid newProbabilities){
-        for(int row = 0; row < map.getMapSize(); row++){
-            for(int col = 0; col < map.getMapSize(); col++){
-                Cell copy = newProbabilities.getCell(row, col);
-                map.setProbability(copy, row, col);
-            }
-        }
+        map.getBeliefs().copyFrom(newProbabilities.getBeliefs());
     }
 
     /**
@@ -972,12 +1090,13 @@ public class Logic {
     public double[] neighborMovingProbability(int row, int col, boolean isPlayer){
         int opponentPieces = isPlayer ? map.getAICount() : map.getPlayerCount();
 
-        ArrayList<Cell> neighbors = map.getNeighbors(row, col);
         double[] probability = new double[3];
-        for(Cell neighbor : neighbors){
-            probability[0] += neighbor.getWumpusProb() * (1.0/ (opponentPieces * map.getNeighborsCount(neighbor.getRow(), neighbor.getCol())));
-            probability[1] += neighbor.getHeroProb() * (1.0/ (opponentPieces * map.getNeighborsCount(neighbor.getRow(), neighbor.getCol())));
-            probability[2] += neighbor.getMageProb() * (1.0/ (opponentPieces * map.getNeighborsCount(neighbor.getRow(), neighbor.getCol())));
+        for(int square : map.getNeighborSquares(row * map.getMapSize() + col)){
+            Cell neighbor = map.getCell(square);
+            double moveProbability = 1.0 / (opponentPieces * map.getNeighborsCount(neighbor.getRow(), neighbor.getCol()));
+            probability[0] += neighbor.getWumpusProb() * moveProbability;
+            probability[1] += neighbor.getHeroProb() * moveProbability;
+            probability[2] += neighbor.getMageProb() * moveProbability;
         }
         return probability;
     }
@@ -994,8 +1113,8 @@ public class Logic {
         for(Cell cell1 : pieces){
             int row = cell1.getRow();
             int col = cell1.getCol();
-            ArrayList<Cell> neighbors = map.getNeighbors(row, col);
-            for(Cell neighbor : neighbors){
+            for(int square : map.getNeighborSquares(row * map.getMapSize() + col)){
+                Cell neighbor = map.getCell(square);
                 int neighborRow = neighbor.getRow();
                 int neighborCol = neighbor.getCol();
 
@@ -1006,24 +1125,16 @@ public class Logic {
                     char type = neighbor.getType();
                     switch(type){
                         case 'P':
-                            if(!fogOfWar.getCell(row, col).observations.contains('B')){
-                                fogOfWar.getCell(row, col).observations.add('B'); //Breeze
-                            }
+                            fogOfWar.getCell(row, col).addObservation('B'); //Breeze
                             break;
                         case 'W':
-                            if(!fogOfWar.getCell(row, col).observations.contains('S')){
-                                fogOfWar.getCell(row, col).observations.add('S'); //Stench
-                            }
+                            fogOfWar.getCell(row, col).addObservation('S'); //Stench
                             break;
                         case 'H':
-                            if(!fogOfWar.getCell(row, col).observations.contains('N')){
-                                fogOfWar.getCell(row, col).observations.add('N'); //Hero Moving
-                            }
+                            fogOfWar.getCell(row, col).addObservation('N'); //Hero Moving
                             break;
                         case 'M':
-                            if(!fogOfWar.getCell(row, col).observations.contains('F')){
-                                fogOfWar.getCell(row, col).observations.add('F'); //Fire Magic
-                            }
+                            fogOfWar.getCell(row, col).addObservation('F'); //Fire Magic
                             break;
                         default:
                             System.out.println("An error occurred when setting the observations!");
@@ -1041,13 +1152,18 @@ public class Logic {
     public void printObservations(){
         for(Cell c : observations){
             System.out.print( "[" + c.getRow() + ":" + c.getCol() + "] Observations: [");
-            for(char observation : c.observations){
+            for(char observation : c.getObservations()){
                 System.out.print(observation + ",");
             }
             System.out.print("]\n");
         }
     }
 
+    /**
+     * Searches the full board with alphabeta and plays the best move (getBestMove)
+     * @param heuristicSelected the chosen heuristic
+     * @return value of the position before the move
+     */
     public double run(int heuristicSelected){
         /**
         if(checkWin() != -1){
@@ -1055,12 +1171,20 @@ public class Logic {
             return -1;
         }
          **/
-        double value = alphabeta(this.map, this.depth, Integer.MIN_VALUE, Integer.MAX_VALUE, true, heuristicSelected);
-        System.out.println("The value is: " + value);
-        //map.printMap();
-        //System.out.println("\n\n\n\n");
+        double value;
+        if(timeBudget > 0){
+            value = iterativeDeepening(heuristicSelected);
+        }else{
+            stats.reset();
+            getMoveOrdering().clear();
+            if(table != null){
+                table.newSearch();
+            }
+            prepareHelpers();
+            value = searchRoot(this.depth, heuristicSelected);
+            helpers = null;
+        }
         move(map.getCell(bestMove.getOrigin().getRow(), bestMove.getOrigin().getCol()),  map.getCell(bestMove.getGoal().getRow(), bestMove.getGoal().getCol()));
-        map.printMap();
         return value;
     }
 
@@ -1080,89 +1204,71 @@ public class Logic {
     public double averageDistanceToPits(boolean AI) {
         double totalAverageDist = 0;
 
-        ArrayList<Cell> piecesToUse = AI ? this.map.getAICells() : this.map.getPlayerCells();
-        if (piecesToUse.size() == 0) {
+        int owner = AI ? BitBoard.AI : BitBoard.PLAYER;
+        if (map.getPieceIndex().count(owner) == 0) {
             return 0;
         }
 
-        for (Cell cell : piecesToUse) {
-            double totalDist = 0;
-            int x1 = cell.getRow();
-            int y1 = cell.getCol();
-            for (Cell pitCell : this.map.getPitLocations()) {
-                int x2 = pitCell.getRow();
-                int y2 = pitCell.getCol();
-                double euclideanDist = Math.sqrt((x1-x2)*(x1-x2) + (y1-y2)*(y1-y2));
-                totalDist += euclideanDist;
+        for (int type = 0; type < 3; type++) {
+            int[] squares = map.getPieceSquares(owner, type);
+            for (int i = 0, count = map.getPieceCount(owner, type); i < count; i++) {
+                totalAverageDist += this.map.getAverageDistanceToPits(squares[i] / map.getMapSize(), squares[i] % map.getMapSize());
             }
-            totalAverageDist += (totalDist / this.map.getPitLocations().size());
         }
 
         return totalAverageDist / this.map.getMapSize();
     }
 
     public ArrayList<Cell> getKillableEnemyLocations(Cell cell) {
-        Character piece = cell.getType();
-
         ArrayList<Cell> killableEnemyLocations = new ArrayList<>();
-        HashSet<Character> killableEnemies = new HashSet<>();
-
-        switch (piece) {
-            case 'W':
-                //killableEnemies.add('W');
-                killableEnemies.add('M');
-                break;
-            case 'H':
-                //killableEnemies.add('H');
-                killableEnemies.add('W');
-                break;
-            case 'M':
-                //killableEnemies.add('M');
-                killableEnemies.add('H');
-                break;
+        int type = BitBoard.typeCode(cell.getType());
+        int owner = BitBoard.ownerCode(cell.belongToPlayer());
+        if (type < 0 || owner < 0) {
+            return killableEnemyLocations;
         }
 
-        for (int i = 0; i < map.getMapSize(); i++) {
-            for (int j = 0; j < map.getMapSize(); j++) {
-                // check if the current piece is an opposing player
-                if ((cell.belongToPlayer() == '1' && this.map.getCell(i,j).belongToPlayer() == '2') ||
-                (cell.belongToPlayer() == '2' && this.map.getCell(i,j).belongToPlayer() == '1')) {
-                    //check if this enemy is killable, given our piece
-                    if (killableEnemies.contains(this.map.getCell(i,j).getType())) {
-                        killableEnemyLocations.add(map.getCell(i,j));
-                    }
-                }
-            }
+        // Wumpus kills Mage, Hero kills Wumpus, Mage kills Hero
+        int enemy = owner == BitBoard.AI ? BitBoard.PLAYER : BitBoard.AI;
+        int prey = BitBoard.prey(type);
+        int[] squares = map.getPieceSquares(enemy, prey);
+        for (int i = 0, count = map.getPieceCount(enemy, prey); i < count; i++) {
+            killableEnemyLocations.add(map.getCell(squares[i]));
         }
-
         return killableEnemyLocations;
     }
 
     public double getAvgClosestKillableEnemy(boolean AI) {
         double totalMinDist = 0;
 
-        ArrayList<Cell> piecesToUse = AI ? this.map.getAICells() : this.map.getPlayerCells();
-        if (piecesToUse.size() == 0) {
+        int owner = AI ? BitBoard.AI : BitBoard.PLAYER;
+        int enemy = 1 - owner;
+        if (map.getPieceIndex().count(owner) == 0) {
             return 0;
         }
 
-        for (Cell cell : piecesToUse) {
-            double curMinDist = Integer.MAX_VALUE;
-            ArrayList<Cell> killableEnemyLocations = getKillableEnemyLocations(cell);
-            if (killableEnemyLocations.size() == 0) {
+        for (int type = 0; type < 3; type++) {
+            // Wumpus kills Mage, Hero kills Wumpus, Mage kills Hero
+            int prey = BitBoard.prey(type);
+            int killable = map.getPieceCount(enemy, prey);
+            if (killable == 0) {
                 continue;
             }
-            int x1 = cell.getRow();
-            int y1 = cell.getCol();
-
-            for (Cell killableEnemyLocation : killableEnemyLocations) {
-                int x2 = killableEnemyLocation.getRow();
-                int y2 = killableEnemyLocation.getCol();
-                double euclideanDist = Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
-                curMinDist = Math.min(curMinDist, euclideanDist);
-            }
+            int[] enemies = map.getPieceSquares(enemy, prey);
+            int[] squares = map.getPieceSquares(owner, type);
+            for (int i = 0, count = map.getPieceCount(owner, type); i < count; i++) {
+                double curMinDist = Integer.MAX_VALUE;
+                int x1 = squares[i] / map.getMapSize();
+                int y1 = squares[i] % map.getMapSize();
+
+                for (int j = 0; j < killable; j++) {
+                    int x2 = enemies[j] / map.getMapSize();
+                    int y2 = enemies[j] % map.getMapSize();
+                    double euclideanDist = Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+                    curMinDist = Math.min(curMinDist, euclideanDist);
+                }
 
-            totalMinDist += curMinDist;
+                totalMinDist += curMinDist;
+            }
         }
 
         return -1 * (totalMinDist / this.map.getMapSize());
@@ -1188,39 +1294,12 @@ public class Logic {
         //now, we will either add or subtract points from the base calculation depending on the number of our
         //wumpus/hero/mage pieces to the opponent's pieces. We want to prioritize maxing our pieces and minimizing the other players
         // i.e. if we have 2 wumpus and they have 0 hero's, this is an extremely good situation for us since hero kills wumpus.
-        int AIwumpus, AIhero, AImage;
-        int Pwumpus, Phero, Pmage;
-        AIwumpus = AIhero = AImage = Pwumpus = Phero = Pmage = 0;
-        for (int i = 0; i < map.getMapSize(); i++) {
-            for (int j = 0; j < map.getMapSize(); j++) {
-                Cell cell = this.map.getCell(i,j);
-                if (cell.belongToPlayer() == '2') {
-                    switch(cell.getType()) {
-                        case 'W':
-                            AIwumpus += 1;
-                            break;
-                        case 'H':
-                            AIhero += 1;
-                            break;
-                        case 'M':
-                            AImage += 1;
-                            break;
-                    }
-                } else if (cell.belongToPlayer() == '1') {
-                    switch(cell.getType()) {
-                        case 'W':
-                            Pwumpus += 1;
-                            break;
-                        case 'H':
-                            Phero += 1;
-                            break;
-                        case 'M':
-                            Pmage += 1;
-                            break;
-                    }
-                }
-            }
-        }
+        int AIwumpus = map.getPieceCount(BitBoard.AI, BitBoard.WUMPUS);
+        int AIhero = map.getPieceCount(BitBoard.AI, BitBoard.HERO);
+        int AImage = map.getPieceCount(BitBoard.AI, BitBoard.MAGE);
+        int Pwumpus = map.getPieceCount(BitBoard.PLAYER, BitBoard.WUMPUS);
+        int Phero = map.getPieceCount(BitBoard.PLAYER, BitBoard.HERO);
+        int Pmage = map.getPieceCount(BitBoard.PLAYER, BitBoard.MAGE);
 
         int wumpusAdvantage, heroAdvantage, mageAdvantage;
         wumpusAdvantage = heroAdvantage = mageAdvantage = 0;
@@ -1252,70 +1331,58 @@ public class Logic {
     }
 
 
-    private ArrayList<Cell> getThreatLocations(Cell cell) {
-        Character piece = cell.getType();
-
-        ArrayList<Cell> threatLocations = new ArrayList<>();
-        HashSet<Character> threats = new HashSet<>();
-
-        switch (piece){
-            case 'W':
-                threats.add('H');
-                threats.add('W');
-                break;
-            case 'H':
-                threats.add('M');
-                threats.add('H');
-                break;
-            case 'M':
-                threats.add('W');
-                threats.add('M');
-                break;
-        }
-
-        for (int i=0; i<map.getMapSize(); i++){
-            for (int j=0; j<map.getMapSize(); j++){
-                if ((cell.belongToPlayer() == '1' && this.map.getCell(i,j).belongToPlayer() == '2') ||
-                        (cell.belongToPlayer() == '2' && this.map.getCell(i,j).belongToPlayer() == '1')) {
-                    if(threats.contains(this.map.getCell(i,j).getType())) {
-                        threatLocations.add(map.getCell(i,j));
-                    }
-                }
-            }
-        }
-        return threatLocations;
-    }
-
     public double getAvgFurthestThreat(boolean AI) {
         double totalMaxDist = 0;
 
-        ArrayList<Cell> piecesToUse = AI ? this.map.getAICells() : this.map.getPlayerCells();
-        if(piecesToUse.size() == 0){
+        int owner = AI ? BitBoard.AI : BitBoard.PLAYER;
+        int enemy = 1 - owner;
+        if (map.getPieceIndex().count(owner) == 0) {
             return 0;
         }
 
-        for (Cell cell : piecesToUse) {
-            double maxDistToEnemy = 0;
-            ArrayList<Cell> threatLocations = getThreatLocations(cell);
-            if(threatLocations.size() == 0){
+        for (int type = 0; type < 3; type++) {
+            // threats are the same piece type and the piece type that kills this one
+            int predator = BitBoard.predator(type);
+            int threats = map.getPieceCount(enemy, type) + map.getPieceCount(enemy, predator);
+            if (threats == 0) {
                 continue;
             }
-            int x1 = cell.getRow();
-            int y1 = cell.getCol();
-
-            for (Cell threatLocation : threatLocations) {
-                int x2 = threatLocation.getRow();
-                int y2 = threatLocation.getCol();
-                double euclideanDist = Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
-                maxDistToEnemy += euclideanDist;
+            int[] squares = map.getPieceSquares(owner, type);
+            for (int i = 0, count = map.getPieceCount(owner, type); i < count; i++) {
+                double maxDistToEnemy = distanceToAll(squares[i], enemy, type) + distanceToAll(squares[i], enemy, predator);
+                totalMaxDist = totalMaxDist + (maxDistToEnemy / threats);
             }
-            totalMaxDist = totalMaxDist + (maxDistToEnemy / threatLocations.size());
         }
 
         return totalMaxDist / this.map.getMapSize();
     }
 
+    //Sum of the distances from a square to every piece of one owner and type
+    private double distanceToAll(int square, int owner, int type) {
+        double total = 0;
+        int x1 = square / map.getMapSize();
+        int y1 = square % map.getMapSize();
+        int[] squares = map.getPieceSquares(owner, type);
+        for (int i = 0, count = map.getPieceCount(owner, type); i < count; i++) {
+            int x2 = squares[i] / map.getMapSize();
+            int y2 = squares[i] % map.getMapSize();
+            total += Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+        }
+        return total;
+    }
+
     public double calculateHeuristic(int heuristic, boolean AI) { //Heuristics should be in the view of the AI
+        IncrementalEvaluator evaluator = map.getIncrementalEvaluator();
+        if(heuristic == 5 && evaluator != null){
+            return evaluator.evaluate(AI);
+        }
+        return calculateFullHeuristic(heuristic, AI);
+    }
+
+    /**
+     * Computes the heuristic from scratch by scanning the board
+     */
+    public double calculateFullHeuristic(int heuristic, boolean AI) {
         double heuristicVal = 0;
 
         switch(heuristic){
@@ -1352,74 +1419,502 @@ public class Logic {
                 return 0;
         }
     }
+    /**
+     * Sets the memory cap of the transposition table used by alphabeta (0 disables the table)
+     * @param megabytes memory cap in megabytes
+     */
+    public void setTranspositionTableSize(int megabytes){
+        this.tableMegabytes = megabytes;
+        this.table = null;
+    }
+
+    public TranspositionTable getTranspositionTable(){
+        return this.table;
+    }
+
+    public SearchStats getSearchStats(){
+        return this.stats;
+    }
+
+    //Hash of the position as seen by alphabeta, the side to move and heuristic change the score so they are part of the key
+    private long searchKey(boolean maximizingPlayer, int heuristicSelected){
+        long key = map.getHash() ^ map.getZobrist().heuristic(heuristicSelected);
+        return maximizingPlayer ? key ^ map.getZobrist().side() : key;
+    }
+
+    //Principal variation of this ply becomes move followed by the principal variation of the child
+    private void updatePv(int ply, int move){
+        if(pvTable == null || ply < 0 || ply + 1 >= pvTable.length){
+            return;
+        }
+        pvTable[ply][ply] = move;
+        int childLength = Math.max(pvLength[ply + 1], ply + 1);
+        for(int next = ply + 1; next < childLength; next++){
+            pvTable[ply][next] = pvTable[ply + 1][next];
+        }
+        pvLength[ply] = childLength;
+    }
+
+    public MoveOrdering getMoveOrdering(){
+        if(ordering == null){
+            ordering = new MoveOrdering(map.getMapSize(), MAX_DEPTH + 1);
+        }
+        return ordering;
+    }
+
+    /**
+     * Fills the MoveList buffer of a remaining depth with the moves in the order alphabeta tries them: the preferred
+     * move (principal variation or table move) first, then the rest by MoveOrdering score. Nothing is played or
+     * evaluated, and nothing is allocated once the buffers have grown.
+     * @param ply distance from the root, the root orders its quiet moves by generation order only so the sequential
+     *            and parallel root searches try the same moves in the same order
+     * @return number of moves
+     */
+    private int generateMoves(int depth, int ply, boolean maximizingPlayer, int preferredMove){
+        if(moveList == null){
+            moveList = new MoveList(MAX_DEPTH + 1);
+        }
+        MoveOrdering ordering = getMoveOrdering();
+        moveList.clear(depth);
+        int owner = maximizingPlayer ? BitBoard.AI : BitBoard.PLAYER;
+        char mover = BitBoard.ownerChar(owner);
+        PieceIndex pieces = map.getPieceIndex();
+        if(originBuffer.length < pieces.count(owner)){
+            originBuffer = new int[Math.max(pieces.count(owner), map.getMapSize())];
+        }
+        int[] origins = originBuffer;
+        int originCount = pieces.merge(owner, origins);
+        BitBoard bitBoard = map.getBitBoard();
+        for(int i = 0; i < originCount; i++){
+            int origin = origins[i];
+            long[] targets = bitBoard.moveTargets(origin, owner);
+            for(int target = BitBoard.nextSetBit(targets, 0); target >= 0; target = BitBoard.nextSetBit(targets, target + 1)){
+                Cell goal = map.getCell(target);
+                int move = MoveList.encode(origin, target, MoveList.capturedCode(goal, mover));
+                moveList.add(depth, move, ordering.score(map, move, owner, ply, ply > 0), true);
+            }
+        }
+        moveList.sort(depth);
+        if(preferredMove != TranspositionTable.NO_MOVE){
+            moveList.moveToFront(depth, preferredMove);
+        }
+        return moveList.count(depth);
+    }
+
+    //Move object of an encoded move, over the cells of the map
+    private Move toMove(int move, double heuristicValue){
+        return new Move(map.getCell(MoveList.origin(move)), map.getCell(MoveList.goal(move)), heuristicValue);
+    }
+
+    public void setTimeBudget(long timeBudgetMillis){
+        this.timeBudget = timeBudgetMillis;
+    }
+
+    public long getTimeBudget(){
+        return this.timeBudget;
+    }
+
+    /**
+     * @return depth of the last iteration iterativeDeepening finished
+     */
+    public int getCompletedDepth(){
+        return this.completedDepth;
+    }
+
+    /**
+     * Principal variation of the last completed search, starting with the AI move
+     * @return moves as "row:col to row:col"
+     */
+    public ArrayList<String> getPrincipalVariation(){
+        ArrayList<String> line = new ArrayList<String>();
+        int size = map.getMapSize();
+        for(int encoded : previousPv){
+            int origin = MoveList.origin(encoded);
+            int goal = MoveList.goal(encoded);
+            line.add(origin / size + ":" + origin % size + " to " + goal / size + ":" + goal % size);
+        }
+        return line;
+    }
+
+    /**
+     * Searches depth 1, 2, 3... up to the depth given to the constructor until the time budget runs out.
+     * The best move comes from the last iteration that finished, and each iteration searches the principal variation
+     * of the previous one first. Depth 1 always finishes so there is always a move.
+     * @param heuristicSelected the chosen heuristic
+     * @return value of the last completed iteration (bestMove is set to its move)
+     */
+    public double iterativeDeepening(int heuristicSelected){
+        int maxDepth = this.depth;
+        long start = System.nanoTime();
+        stats.reset();
+        getMoveOrdering().clear();
+        if(table == null && tableMegabytes > 0){
+            table = new TranspositionTable(tableMegabytes);
+        }
+        if(table != null){
+            table.newSearch();
+        }
+        pvTable = new int[maxDepth + 1][maxDepth + 1];
+        pvLength = new int[maxDepth + 1];
+        previousPv = new int[0];
+        prepareHelpers();
+        Move completedMove = null;
+        double completedValue = 0;
+        completedDepth = 0;
+        searchAborted = false;
+
+        for(int iteration = 1; iteration <= maxDepth; iteration++){
+            this.depth = iteration;
+            this.bestMove = null;
+            this.followPv = true;
+            // depth 1 runs without a deadline so there is always a move to play
+            this.deadline = iteration == 1 ? Long.MAX_VALUE : start + timeBudget * 1000000L;
+            double value = searchRoot(iteration, heuristicSelected);
+            if(searchAborted || bestMove == null){
+                break;
+            }
+            completedMove = bestMove;
+            completedValue = value;
+            completedDepth = iteration;
+            previousPv = Arrays.copyOf(pvTable[0], pvLength[0]);
+            if(System.nanoTime() >= start + timeBudget * 1000000L){
+                break;
+            }
+        }
+
+        this.depth = maxDepth;
+        this.deadline = Long.MAX_VALUE;
+        this.searchAborted = false;
+        this.helpers = null;
+        this.bestMove = completedMove;
+        return completedValue;
+    }
+
+    /**
+     * Sets how many threads run() and iterativeDeepening use to search the root moves (1 searches sequentially)
+     * @param workers number of worker threads
+     */
+    public void setSearchWorkers(int workers){
+        this.workers = Math.max(1, workers);
+        if(pool != null){
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    public int getSearchWorkers(){
+        return this.workers;
+    }
+
+    //Every worker searches on its own copy of the board, made once per search since the root position does not change
+    private void prepareHelpers(){
+        stats.setWorkers(workers);
+        if(workers <= 1){
+            helpers = null;
+            return;
+        }
+        if(pool == null){
+            pool = new ForkJoinPool(workers);
+        }
+        helpers = new Logic[workers];
+        for(int worker = 0; worker < workers; worker++){
+            helpers[worker] = new Logic(new Grid(map), this.depth);
+            helpers[worker].tableMegabytes = tableMegabytes == 0 ? 0 : Math.max(1, tableMegabytes / workers);
+        }
+    }
+
+    //Searches the root position with the whole depth, in parallel when there are helpers
+    private double searchRoot(int depth, int heuristicSelected){
+        if(helpers == null){
+            return alphabeta(this.map, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, true, heuristicSelected);
+        }
+        return parallelRootSearch(depth, heuristicSelected);
+    }
+
+    /**
+     * Splits the root moves over the ForkJoinPool. The first move is searched alone (young brothers wait) to get a
+     * bound, then every worker takes the next unsearched root move on its own board copy. The best value found so far
+     * is shared as alpha so workers still cut off. Picks the same move as the sequential search at the same depth:
+     * the first move in root order with the highest exact value.
+     * @param depth search depth
+     * @param heuristicSelected the chosen heuristic
+     * @return value of the root position (bestMove is set)
+     */
+    private double parallelRootSearch(int depth, int heuristicSelected){
+        stats.countNode();
+        if(depth == 0 || checkWin() != -1){
+            return calculateHeuristic(heuristicSelected, true);
+        }
+        if(table == null && tableMegabytes > 0){
+            table = new TranspositionTable(tableMegabytes);
+        }
+        long key = searchKey(true, heuristicSelected);
+        int preferredMove = TranspositionTable.NO_MOVE;
+        if(table != null){
+            int slot = table.probe(key);
+            if(slot >= 0){
+                preferredMove = table.getMove(slot);
+            }
+        }
+        if(followPv && previousPv.length > 0){
+            preferredMove = previousPv[0];
+        }
+        followPv = false;
+
+        int count = generateMoves(depth, 0, true, preferredMove);
+        int[] rootMoves = Arrays.copyOf(moveList.getMoves(depth), count);
+        if(count == 0){
+            return calculateHeuristic(heuristicSelected, true);
+        }
+        double[] values = new double[count];
+        double[] alphas = new double[count]; // alpha each root move was searched with
+        int[][] lines = new int[count][];
+        AtomicLong alpha = new AtomicLong(Double.doubleToLongBits(Integer.MIN_VALUE));
+        for(Logic helper : helpers){
+            helper.depth = depth;
+            helper.deadline = deadline;
+            helper.searchAborted = false;
+            helper.previousPv = previousPv;
+            helper.pvTable = new int[depth + 1][depth + 1];
+            helper.pvLength = new int[depth + 1];
+            if(helper.table != null){
+                helper.table.newSearch();
+            }
+        }
+
+        searchRootMove(helpers[0], rootMoves, 0, alpha, values, alphas, lines, heuristicSelected);
+        AtomicInteger next = new AtomicInteger(1);
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(helpers.length);
+        for(Logic helper : helpers){
+            tasks.add(pool.submit(() -> {
+                int index;
+                while(!helper.searchAborted && (index = next.getAndIncrement()) < count){
+                    searchRootMove(helper, rootMoves, index, alpha, values, alphas, lines, heuristicSelected);
+                }
+            }));
+        }
+        for(ForkJoinTask<?> task : tasks){
+            task.join();
+        }
+        for(Logic helper : helpers){
+            stats.add(helper.stats);
+            helper.stats.reset();
+            if(helper.searchAborted){
+                searchAborted = true;
+            }
+        }
+        if(searchAborted){
+            return 0;
+        }
+
+        // A result above the alpha it was searched with is exact, anything else is only an upper bound
+        int bestIndex = -1;
+        for(int index = 0; index < count; index++){
+            if(values[index] > alphas[index] && (bestIndex == -1 || values[index] > values[bestIndex])){
+                bestIndex = index;
+            }
+        }
+        if(bestIndex == -1){
+            // No root move scored above Integer.MIN_VALUE (or every value is NaN), like the sequential search
+            // there is no best move and the value is the maximum of the values
+            bestMove = null;
+            double maxValue = Integer.MIN_VALUE;
+            for(double value : values){
+                maxValue = Math.max(maxValue, value);
+            }
+            return maxValue;
+        }
+        double bestValue = values[bestIndex];
+        // An earlier move whose bound equals the best value may tie with it, the sequential search would pick it
+        for(int index = 0; index < bestIndex; index++){
+            if(values[index] == bestValue){
+                double tieAlpha = Math.nextDown(bestValue);
+                alpha.set(Double.doubleToLongBits(tieAlpha));
+                searchRootMove(helpers[0], rootMoves, index, alpha, values, alphas, lines, heuristicSelected);
+                if(values[index] > tieAlpha){
+                    bestIndex = index;
+                    break;
+                }
+            }
+        }
+
+        int best = rootMoves[bestIndex];
+        bestMove = toMove(best, bestValue);
+        if(pvTable != null && pvTable.length > 1){
+            pvTable[0][0] = best;
+            int length = Math.min(lines[bestIndex].length, pvTable.length - 1);
+            System.arraycopy(lines[bestIndex], 0, pvTable[0], 1, length);
+            pvLength[0] = length + 1;
+        }
+        if(table != null){
+            table.store(key, depth, TranspositionTable.EXACT, bestValue, best);
+        }
+        return bestValue;
+    }
+
+    //Searches one root move on a helper's board and records its value, the alpha it used and its principal variation
+    private void searchRootMove(Logic helper, int[] rootMoves, int index, AtomicLong alpha, double[] values, double[] alphas, int[][] lines, int heuristicSelected){
+        int move = rootMoves[index];
+        Grid board = helper.map;
+        double a = Double.longBitsToDouble(alpha.get());
+        board.makeMove(board.getCell(MoveList.origin(move)), board.getCell(MoveList.goal(move)));
+        helper.followPv = previousPv.length > 0 && previousPv[0] == move;
+        double value = helper.alphabeta(board, helper.depth - 1, a, Integer.MAX_VALUE, false, heuristicSelected);
+        board.unmakeMove();
+        values[index] = value;
+        alphas[index] = a;
+        lines[index] = Arrays.copyOfRange(helper.pvTable[1], 1, Math.max(1, helper.pvLength[1]));
+        // raise the shared alpha
+        long current = alpha.get();
+        while(value > Double.longBitsToDouble(current) && !alpha.compareAndSet(current, Double.doubleToLongBits(value))){
+            current = alpha.get();
+        }
+    }
+
     //Initial Call, a = -infinity | b = +infinity
     public double alphabeta(Grid map, int depth, double a, double b, boolean maximizingPlayer, int heuristicSelected) {
+        stats.countNode();
+        int ply = this.depth - depth;
+        if(pvLength != null && ply >= 0 && ply < pvLength.length){
+            pvLength[ply] = ply;
+        }
+        if(searchAborted || (deadline != Long.MAX_VALUE && System.nanoTime() > deadline)){
+            searchAborted = true;
+            return 0;
+        }
         if(depth == 0 || checkWin() != -1){
             return calculateHeuristic(heuristicSelected, maximizingPlayer);
         }
+        if(table == null && tableMegabytes > 0){
+            table = new TranspositionTable(tableMegabytes);
+        }
+
+        // Look the position up, the root is always searched so bestMove gets set
+        // Only results of the same depth are used, deeper results would make the score depend on the move order
+        double alphaOrigin = a;
+        double betaOrigin = b;
+        long key = searchKey(maximizingPlayer, heuristicSelected);
+        int tableMove = TranspositionTable.NO_MOVE;
+        if(table != null){
+            int slot = table.probe(key);
+            if(slot >= 0){
+                stats.countTableHit();
+                tableMove = table.getMove(slot);
+                if(depth != this.depth && table.getDepth(slot) == depth){
+                    double score = table.getScore(slot);
+                    switch (table.getBound(slot)) {
+                        case TranspositionTable.EXACT:
+                            stats.countTableCutoff();
+                            return score;
+                        case TranspositionTable.LOWER:
+                            a = Math.max(a, score);
+                            break;
+                        case TranspositionTable.UPPER:
+                            b = Math.min(b, score);
+                            break;
+                    }
+                    if(a >= b){
+                        stats.countTableCutoff();
+                        return score;
+                    }
+                }
+            }
+        }
+        // While on the principal variation of the previous iteration its move goes first, otherwise the table move
+        int preferredMove = tableMove;
+        if(followPv && ply >= 0 && ply < previousPv.length){
+            preferredMove = previousPv[ply];
+        }else{
+            followPv = false;
+        }
+
+        if(depth == this.depth){
+            bestMove = null;
+        }
+        double evaluation;
+        int best = TranspositionTable.NO_MOVE;
+        int count = generateMoves(depth, ply, maximizingPlayer, preferredMove);
+        stats.countInteriorNode(ply);
         if(maximizingPlayer) { //AI TURN
             double maxEvaluation = Integer.MIN_VALUE;
 
-            // lambda expression ensures highest heuristic value will be at top.
-            PriorityQueue<Move> queue = new PriorityQueue<Move>(11, (Move m1, Move m2) -> Double.compare(m2.getHeuristicValue(), m1.getHeuristicValue()));
-            queue.addAll(allPossibleMoves(1, heuristicSelected));
-
-            while(!queue.isEmpty()) {
-                Move child = queue.poll();
-                int playerCount =  map.getPlayerCount();
-                int aiCount = map.getAICount();
-                Cell origin = map.getCell(child.getOrigin().getRow(), child.getOrigin().getCol());
-                Cell goal = map.getCell(child.getGoal().getRow(), child.getGoal().getCol());
-                move(origin, goal);
+            for(int index = 0; index < count; index++) {
+                int child = moveList.get(depth, index);
+                Cell origin = map.getCell(MoveList.origin(child));
+                Cell goal = map.getCell(MoveList.goal(child));
+                map.makeMove(origin, goal);
 
                 double curEvaluation = alphabeta(map, depth - 1, a, b, false, heuristicSelected);
+                followPv = false;
+                if(searchAborted){
+                    map.unmakeMove();
+                    return 0;
+                }
                 if(depth == this.depth && curEvaluation > maxEvaluation) { // Selects the best move for the AI (based on initial state of the board (depth == this.depth)
-                    bestMove = child;
+                    bestMove = toMove(child, curEvaluation);
+                }
+                if(curEvaluation > maxEvaluation){
+                    best = child;
+                    updatePv(ply, child);
                 }
 
                 // undo move to test next move
-                map.setPlayerPieces(playerCount);
-                map.setAIPieces(aiCount);
-                resetMap(child.getOrigin(), child.getGoal());
+                map.unmakeMove();
 
                 maxEvaluation = Math.max(maxEvaluation, curEvaluation);
                 a = Math.max(a, maxEvaluation);
                 if(a >= b) {
+                    stats.countCutoff(ply, index);
+                    ordering.cutoff(child, BitBoard.AI, ply, depth);
                     break;
                 }
             }
-            return maxEvaluation;
+            evaluation = maxEvaluation;
         } else { //PLAYER TURN
 
             double minEvaluation = Integer.MAX_VALUE;
 
-            // lambda expression ensures lowest heuristic value will be at top.
-            PriorityQueue<Move> queue = new PriorityQueue<Move>(11, (Move m1, Move m2) -> Double.compare(m1.getHeuristicValue(), m2.getHeuristicValue()));
-            queue.addAll(allPossibleMoves(2,heuristicSelected));
-
-            while(!queue.isEmpty()){
-                Move child = queue.poll();
-                int playerCount =  map.getPlayerCount();
-                int aiCount = map.getAICount();
-                Cell origin = map.getCell(child.getOrigin().getRow(), child.getOrigin().getCol());
-                Cell goal = map.getCell(child.getGoal().getRow(), child.getGoal().getCol());
-                move(origin, goal);
+            for(int index = 0; index < count; index++){
+                int child = moveList.get(depth, index);
+                Cell origin = map.getCell(MoveList.origin(child));
+                Cell goal = map.getCell(MoveList.goal(child));
+                map.makeMove(origin, goal);
 
                 double curEvaluation = alphabeta(map, depth - 1, a, b, true, heuristicSelected);
+                followPv = false;
+                if(searchAborted){
+                    map.unmakeMove();
+                    return 0;
+                }
+                if(depth == this.depth && curEvaluation < minEvaluation) { // best move for the player when the search starts on its turn
+                    bestMove = toMove(child, curEvaluation);
+                }
+                if(curEvaluation < minEvaluation){
+                    best = child;
+                    updatePv(ply, child);
+                }
                 minEvaluation = Math.min(minEvaluation, curEvaluation);
 
                 // undo move to test next move
-                map.setPlayerPieces(playerCount);
-                map.setAIPieces(aiCount);
-                resetMap(child.getOrigin(), child.getGoal());
+                map.unmakeMove();
 
                 b = Math.min(b, minEvaluation);
                 if(b <= a){
+                    stats.countCutoff(ply, index);
+                    ordering.cutoff(child, BitBoard.PLAYER, ply, depth);
                     break;
                 }
             }
-            return minEvaluation;
+            evaluation = minEvaluation;
+        }
+
+        if(table != null){
+            int bound = evaluation <= alphaOrigin ? TranspositionTable.UPPER
+                    : evaluation >= betaOrigin ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            table.store(key, depth, bound, evaluation, best);
         }
+        return evaluation;
     }
     /**
      * (Remember to check for invalid move beforehand)
@@ -1428,30 +1923,7 @@ public class Logic {
      * @param goal Cell to move to
      */
     public void move(Cell start, Cell goal){
-        if(goal.isPit()){ //the piece gets destroyed so negative
-            map.destroyCell(start);
-        }else if(!goal.isEmpty()){
-            int result = battle(start, goal);
-            switch (result){
-                case 0: //Both pieces should be destroyed (neutral)
-                    map.destroyCell(start);
-                    map.destroyCell(goal);
-                    break;
-                case 1: //your piece wins, so opponent gets destroyed
-                    map.destroyCell(goal);
-                    goal.setPlayerPiece(start.belongToPlayer());
-                    goal.setType(start.getType());
-                    start.reset();
-                    break;
-                case 2: //opponent piece wins, so your piece should be destroyed (Opponent +1 pieces over you)
-                    map.destroyCell(start);
-                    break;
-            }
-        }else{ //Moving into an empty space, nothing really happens no pieces get destroyed
-            goal.setPlayerPiece(start.belongToPlayer());
-            goal.setType(start.getType());
-            start.reset();
-        }
+        map.applyMove(start, goal);
     }
 
     /**
@@ -1473,10 +1945,11 @@ public class Logic {
     }
 
     /**
-     * Gives you an ArrayList of Moves that contains the COPY of the cells
+     * Gives you an ArrayList of Moves that reference the cells of the map (only their row/col should be read
+     * once the position changes, use Cell.copy() to keep their contents)
      * @param playerOrAI 1 for AI | 2 for Player
      * @param heuristicSelected the chosen heuristic
-     * @return An ArrayList of Moves that contains a COPY of the cells
+     * @return An ArrayList of Moves over the cells of the map
      */
     public ArrayList<Move> allPossibleMoves(int playerOrAI, int heuristicSelected){
         ArrayList<Move> possibleMoves = new ArrayList<Move>();
@@ -1487,16 +1960,10 @@ public class Logic {
                 for(Cell aiCell : aiCells){
                     ArrayList<Cell> moves = possibleMoves(aiCell);
                     for(Cell move : moves){
-                        Cell copyOrigin = aiCell.copy();
-                        Cell copyGoal = move.copy();
-                        int playerCount =  map.getPlayerCount();
-                        int aiCount = map.getAICount();
-                        move(aiCell, move);
+                        map.makeMove(aiCell, move);
                         double heuristic = calculateHeuristic(heuristicSelected, true);
-                        resetMap(copyOrigin, copyGoal);
-                        map.setPlayerPieces(playerCount);
-                        map.setAIPieces(aiCount);
-                        possibleMoves.add(new Move(copyOrigin, copyGoal, heuristic));
+                        map.unmakeMove();
+                        possibleMoves.add(new Move(aiCell, move, heuristic));
                     }
                 }
                 break;
@@ -1505,16 +1972,10 @@ public class Logic {
                 for(Cell playerCell : playerCells){
                     ArrayList<Cell> moves = possibleMoves(playerCell);
                     for(Cell move : moves){
-                        Cell copyOrigin = playerCell.copy();
-                        Cell copyGoal = move.copy();
-                        int playerCount =  map.getPlayerCount();
-                        int aiCount = map.getAICount();
-                        move(playerCell, move);
+                        map.makeMove(playerCell, move);
                         double heuristic = calculateHeuristic(heuristicSelected, false);
-                        resetMap(copyOrigin, copyGoal);
-                        map.setPlayerPieces(playerCount);
-                        map.setAIPieces(aiCount);
-                        possibleMoves.add(new Move(copyOrigin, copyGoal, heuristic));
+                        map.unmakeMove();
+                        possibleMoves.add(new Move(playerCell, move, heuristic));
                     }
                 }
                 break;
@@ -1527,8 +1988,11 @@ public class Logic {
 
     public ArrayList<Cell> possibleMoves(Cell c1){
         //c1.printCell();
-        ArrayList<Cell> moves = map.getNeighbors(c1.getRow(), c1.getCol());
-        moves.removeIf(move -> !isValidMove(c1, move));
+        ArrayList<Cell> moves = new ArrayList<Cell>(8);
+        long[] targets = map.getBitBoard().moveTargets(map.indexOf(c1), BitBoard.ownerCode(c1.belongToPlayer()));
+        for(int square = BitBoard.nextSetBit(targets, 0); square >= 0; square = BitBoard.nextSetBit(targets, square + 1)){
+            moves.add(map.getCell(square));
+        }
         return moves;
     }
 
@@ -1565,15 +2029,8 @@ public class Logic {
      * @return 1 if cell1 wins, 0 if draw, 2 if Cell1 loses
      */
     public int battle(Cell cell1, Cell cell2){
-        if(cell1.getType() == cell2.getType()){
-            return 0;
-        }
-        if(cell1.getType() == 'H' && cell2.getType() == 'W' ||
-            cell1.getType() == 'M' && cell2.getType() == 'H' ||
-            cell1.getType() == 'W' && cell2.getType() == 'M'){
-            return 1;
-        }
-        return 2;
+        BitBoard bitBoard = map.getBitBoard();
+        return BitBoard.battle(bitBoard.typeAt(map.indexOf(cell1)), bitBoard.typeAt(map.indexOf(cell2)));
     }
 
 }
@@ -0,0 +1,30 @@
+package sample.back;
+
+import java.util.ArrayList;
+
+/**
+ * The original belief tracking: independent per cell marginals updated by Logic.calculateRandomMoveProbability
+ * and Logic.calculateObservationProbability. All of its state lives in the Cells of the map.
+ */
+public class MarginalBeliefEngine implements BeliefEngine {
+    private final Logic logic;
+
+    public MarginalBeliefEngine(Logic logic){
+        this.logic = logic;
+    }
+
+    @Override
+    public void predict(Grid beliefs, int playerMovement){
+        logic.calculateRandomMoveProbability(beliefs, false, playerMovement);
+    }
+
+    @Override
+    public void observe(Grid fogOfWar, ArrayList<Cell> observations, ArrayList<Cell> pieces){
+        logic.calculateObservationProbability(fogOfWar, observations, pieces);
+    }
+
+    @Override
+    public BeliefEngine copy(){
+        return this;
+    }
+}
@@ -1,7 +1,6 @@
 package sample.back;
 
 import java.util.Objects;
-import java.util.PriorityQueue;
 
 public class Move {
 
@@ -51,6 +50,9 @@ public class Move {
 
     @Override
     public int hashCode() {
-        return Objects.hash(origin, goal, heuristicValue);
+        // same value as Objects.hash(origin, goal, heuristicValue) without the varargs array and boxing
+        int result = 31 + Objects.hashCode(origin);
+        result = 31 * result + Objects.hashCode(goal);
+        return 31 * result + Double.hashCode(heuristicValue);
     }
 }
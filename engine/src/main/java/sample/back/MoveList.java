@@ -0,0 +1,182 @@
+package sample.back;
+
+import java.util.Arrays;
+
+/**
+ * Moves of a search encoded as ints, one preallocated buffer per ply so alphabeta allocates nothing per node once
+ * the buffers have grown to the largest move count seen. Logic numbers the plies by the remaining search depth, which
+ * is different for every node on the path from the root.
+ *
+ * A move holds the goal square in bits 0-11, the origin square in bits 12-23 and what is on the goal before the move
+ * in bits 24-26 (CAPTURE_NONE, CAPTURE_PIT or CAPTURE_WUMPUS/HERO/MAGE), so boards up to 64x64. Encoded moves are
+ * never negative and can be stored in the TranspositionTable as they are.
+ *
+ * Next to every move is a long ordering key: the move's score mapped to a long with the same order, negated for the
+ * side that minimises, so sort always puts the best move for the side to move first.
+ */
+public class MoveList {
+    public static final int CAPTURE_NONE = 0;
+    public static final int CAPTURE_WUMPUS = 1 + BitBoard.WUMPUS;
+    public static final int CAPTURE_HERO = 1 + BitBoard.HERO;
+    public static final int CAPTURE_MAGE = 1 + BitBoard.MAGE;
+    public static final int CAPTURE_PIT = 4;
+
+    private static final int SQUARE_BITS = 12;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+
+    private int[][] moves; // [ply] encoded moves
+    private long[][] keys; // [ply] ordering key of every move
+    private int[] counts; // [ply]
+
+    /**
+     * @param plies deepest ply + 1
+     */
+    public MoveList(int plies){
+        this.moves = new int[0][];
+        this.keys = new long[0][];
+        this.counts = new int[0];
+        grow(plies);
+    }
+
+    public static int encode(int origin, int goal, int captured){
+        return (captured << (2 * SQUARE_BITS)) | (origin << SQUARE_BITS) | goal;
+    }
+
+    public static int origin(int move){
+        return (move >>> SQUARE_BITS) & SQUARE_MASK;
+    }
+
+    public static int goal(int move){
+        return move & SQUARE_MASK;
+    }
+
+    public static int captured(int move){
+        return move >>> (2 * SQUARE_BITS);
+    }
+
+    /**
+     * @param goal cell the move goes to
+     * @param mover owner of the moving piece ('1' or '2')
+     * @return capture code of what is on goal
+     */
+    public static int capturedCode(Cell goal, char mover){
+        if(goal.isPit()){
+            return CAPTURE_PIT;
+        }
+        int type = BitBoard.typeCode(goal.getType());
+        if(type < 0 || goal.belongToPlayer() == mover){
+            return CAPTURE_NONE;
+        }
+        return 1 + type;
+    }
+
+    /**
+     * Empties the buffer of a ply, adding plies when needed (the buffers of the other plies stay the same)
+     */
+    public void clear(int ply){
+        if(ply >= counts.length){
+            grow(ply + 1);
+        }
+        counts[ply] = 0;
+    }
+
+    private void grow(int plies){
+        int old = counts.length;
+        moves = Arrays.copyOf(moves, plies);
+        keys = Arrays.copyOf(keys, plies);
+        counts = Arrays.copyOf(counts, plies);
+        for(int ply = old; ply < plies; ply++){
+            moves[ply] = new int[64];
+            keys[ply] = new long[64];
+        }
+    }
+
+    /**
+     * @param maximizing true if the side to move maximises score, the keys are negated otherwise
+     */
+    public void add(int ply, int move, double score, boolean maximizing){
+        int count = counts[ply];
+        if(count == moves[ply].length){
+            moves[ply] = Arrays.copyOf(moves[ply], count * 2);
+            keys[ply] = Arrays.copyOf(keys[ply], count * 2);
+        }
+        long key = orderKey(score);
+        moves[ply][count] = move;
+        keys[ply][count] = maximizing ? key : ~key;
+        counts[ply] = count + 1;
+    }
+
+    public int count(int ply){
+        return counts[ply];
+    }
+
+    /**
+     * @return the buffer of a ply, valid up to count(ply) and until the next add on that ply
+     */
+    public int[] getMoves(int ply){
+        return moves[ply];
+    }
+
+    public int get(int ply, int index){
+        return moves[ply][index];
+    }
+
+    /**
+     * @return the score the move at index was added with
+     */
+    public double getScore(int ply, int index, boolean maximizing){
+        long key = keys[ply][index];
+        return fromOrderKey(maximizing ? key : ~key);
+    }
+
+    /**
+     * Sorts the moves of a ply best first, in place. Insertion sort: the lists are short and it keeps moves with the
+     * same score in the order they were generated.
+     */
+    public void sort(int ply){
+        int[] move = moves[ply];
+        long[] key = keys[ply];
+        for(int i = 1; i < counts[ply]; i++){
+            int m = move[i];
+            long k = key[i];
+            int j = i - 1;
+            while(j >= 0 && key[j] < k){
+                move[j + 1] = move[j];
+                key[j + 1] = key[j];
+                j--;
+            }
+            move[j + 1] = m;
+            key[j + 1] = k;
+        }
+    }
+
+    /**
+     * Moves one move to the front of its ply, the others keep their order
+     * @return false if the move is not in the list
+     */
+    public boolean moveToFront(int ply, int encoded){
+        int[] move = moves[ply];
+        long[] key = keys[ply];
+        for(int i = 0; i < counts[ply]; i++){
+            if(move[i] == encoded){
+                long k = key[i];
+                System.arraycopy(move, 0, move, 1, i);
+                System.arraycopy(key, 0, key, 1, i);
+                move[0] = encoded;
+                key[0] = k;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Long with the same order as the doubles (Double.compare order)
+    private static long orderKey(double score){
+        long bits = Double.doubleToLongBits(score);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static double fromOrderKey(long key){
+        return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,131 @@
+package sample.back;
+
+import java.util.Arrays;
+
+/**
+ * Move ordering of Logic.alphabeta without evaluating the children. After the transposition table (or principal
+ * variation) move, which Logic puts first, moves are tried in this order:
+ * <ol>
+ *     <li>captures that win the battle (BitBoard.battle), most valuable victim first, then least valuable attacker</li>
+ *     <li>trades (same piece type, both pieces die), in the same victim/attacker order</li>
+ *     <li>the two killer moves of the ply, quiet moves that caused a cutoff at the same ply elsewhere in the tree</li>
+ *     <li>the other quiet moves by history score, raised by depth * depth every time the move causes a cutoff</li>
+ *     <li>captures that lose the battle, then moves into a pit</li>
+ * </ol>
+ * Pieces are worth more the more enemy pieces they can kill, counted from the Grid's PieceIndex. The history table is
+ * indexed by side, origin square and direction (8 per square) so it stays small on large boards.
+ */
+public class MoveOrdering {
+    private static final double WINNING_CAPTURE = 4000000;
+    private static final double TRADE = 3000000;
+    private static final double KILLER = 2000000;
+    private static final double LOSING_CAPTURE = -1000000;
+    private static final double PIT = -2000000;
+    private static final int HISTORY_LIMIT = 1000000; // history scores are halved past this so they stay below KILLER
+
+    private final int size;
+    private final int[][] killers; // [ply][2] encoded moves, TranspositionTable.NO_MOVE when empty
+    private final int[][] history; // [side][origin * 8 + direction]
+
+    /**
+     * @param size board size
+     * @param plies deepest ply + 1 that keeps killer moves
+     */
+    public MoveOrdering(int size, int plies){
+        this.size = size;
+        this.killers = new int[plies][2];
+        this.history = new int[2][size * size * 8];
+        clear();
+    }
+
+    public int getSize(){
+        return size;
+    }
+
+    /**
+     * Forgets the killer moves and the history, called at the start of every search
+     */
+    public void clear(){
+        for(int[] killer : killers){
+            Arrays.fill(killer, TranspositionTable.NO_MOVE);
+        }
+        Arrays.fill(history[0], 0);
+        Arrays.fill(history[1], 0);
+    }
+
+    /**
+     * @param grid position before the move
+     * @param move encoded move (MoveList) of a piece of owner
+     * @param owner BitBoard.PLAYER or BitBoard.AI
+     * @param ply distance from the root, negative or too deep for no killer moves
+     * @param quietOrder false to order quiet moves by generation order only (no killers, no history)
+     * @return ordering score, higher is tried first
+     */
+    public double score(Grid grid, int move, int owner, int ply, boolean quietOrder){
+        int captured = MoveList.captured(move);
+        if(captured == MoveList.CAPTURE_PIT){
+            return PIT;
+        }
+        if(captured != MoveList.CAPTURE_NONE){
+            int victim = captured - 1;
+            int attacker = BitBoard.typeCode(grid.getCell(MoveList.origin(move)).getType());
+            int order = 64 * value(grid, 1 - owner, victim) - value(grid, owner, attacker);
+            switch (BitBoard.battle(attacker, victim)){
+                case 1:
+                    return WINNING_CAPTURE + order;
+                case 0:
+                    return TRADE + order;
+                default:
+                    return LOSING_CAPTURE + order;
+            }
+        }
+        if(!quietOrder){
+            return 0;
+        }
+        if(ply >= 0 && ply < killers.length){
+            if(killers[ply][0] == move){
+                return KILLER + 1;
+            }
+            if(killers[ply][1] == move){
+                return KILLER;
+            }
+        }
+        return history[owner][historyIndex(move)];
+    }
+
+    //Enemy pieces of the type this piece kills
+    private static int value(Grid grid, int owner, int type){
+        return grid.getPieceCount(1 - owner, BitBoard.prey(type));
+    }
+
+    /**
+     * Records a move that caused a beta cutoff. Captures and pit moves are already ordered by the battle table,
+     * only quiet moves become killers and gain history.
+     */
+    public void cutoff(int move, int owner, int ply, int depth){
+        if(MoveList.captured(move) != MoveList.CAPTURE_NONE){
+            return;
+        }
+        if(ply >= 0 && ply < killers.length && killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] side = history[owner];
+        int index = historyIndex(move);
+        side[index] += depth * depth;
+        if(side[index] > HISTORY_LIMIT){
+            for(int i = 0; i < side.length; i++){
+                side[i] >>= 1;
+            }
+        }
+    }
+
+    private int historyIndex(int move){
+        int origin = MoveList.origin(move);
+        int goal = MoveList.goal(move);
+        int rowStep = goal / size - origin / size + 1;
+        int colStep = goal % size - origin % size + 1;
+        int direction = rowStep * 3 + colStep; // 0..8 without the centre 4
+        return origin * 8 + (direction > 4 ? direction - 1 : direction);
+    }
+}
@@ -0,0 +1,57 @@
+package sample.back;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The squares (row * size + col) around every square of a board, in the same top left to bottom right order as
+ * Grid.getNeighbors, computed once per board size so neighbour loops need no bounds checks and no allocation.
+ */
+public class Neighbors {
+    private static final ConcurrentHashMap<Integer, Neighbors> TABLES = new ConcurrentHashMap<Integer, Neighbors>();
+
+    private final int[][] squares; // [square] squares around it, at most 8
+
+    private Neighbors(int size){
+        this.squares = new int[size * size][];
+        int[] around = new int[8];
+        for(int row = 0; row < size; row++){
+            for(int col = 0; col < size; col++){
+                int count = 0;
+                for(int r = Math.max(0, row - 1); r <= Math.min(size - 1, row + 1); r++){
+                    for(int c = Math.max(0, col - 1); c <= Math.min(size - 1, col + 1); c++){
+                        if(r != row || c != col){
+                            around[count++] = r * size + c;
+                        }
+                    }
+                }
+                squares[row * size + col] = Arrays.copyOf(around, count);
+            }
+        }
+    }
+
+    /**
+     * Tables are shared by every Grid of the same size
+     * @param size grid size
+     * @return neighbour table for that size
+     */
+    public static Neighbors forSize(int size){
+        Neighbors neighbors = TABLES.get(size);
+        if(neighbors == null){
+            neighbors = TABLES.computeIfAbsent(size, Neighbors::new);
+        }
+        return neighbors;
+    }
+
+    /**
+     * @param square row * size + col
+     * @return the squares around it, shared by every caller so it must not be modified
+     */
+    public int[] of(int square){
+        return squares[square];
+    }
+
+    public int count(int square){
+        return squares[square].length;
+    }
+}
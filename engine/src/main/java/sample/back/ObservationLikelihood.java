@@ -0,0 +1,92 @@
+package sample.back;
+
+import java.util.ArrayList;
+
+/**
+ * P(observations | piece at cell) for every cell of the board without copying the Grid.
+ *
+ * Logic.getObservationGivenPiece fixes one hypothesis (wumpus, hero, mage or pit) at the cell on a copy of the map
+ * and calls calculateFullLogObservationProbability on it. That value only depends on the observations, the piece counts
+ * and the squares around the pieces, none of which the hypothesis changes, so it equals P(observations) and is
+ * computed once here. What does change per cell is which hypotheses the adjacent pieces rule out, that is kept as a
+ * 4 bit mask per square.
+ */
+public class ObservationLikelihood {
+    private static final int WUMPUS = Cell.STENCH;
+    private static final int HERO = Cell.NOISE;
+    private static final int MAGE = Cell.FIRE;
+    private static final int PIT = Cell.BREEZE;
+    private static final int ALL = WUMPUS | HERO | MAGE | PIT;
+
+    private final int size;
+    private final boolean[] piece; // squares of the pieces that made the observations
+    private final int[] allowed; // per square, hypotheses still consistent with the adjacent pieces, 0 rules out every one
+    private final double logEvidence;
+
+    /**
+     * @param logic used for the possible moves of every observation
+     * @param map board the observations were made on
+     * @param fogOfWar grid holding the observations of every piece
+     * @param observations pieces that observed something (Cells of fogOfWar)
+     * @param pieces every piece of the observing side (Cells of map)
+     */
+    public ObservationLikelihood(Logic logic, Grid map, Grid fogOfWar, ArrayList<Cell> observations, ArrayList<Cell> pieces){
+        this.size = map.getMapSize();
+        this.piece = new boolean[size * size];
+        this.allowed = new int[size * size];
+        boolean[] around = new boolean[size * size];
+        for(int square = 0; square < allowed.length; square++){
+            allowed[square] = ALL;
+        }
+        for(Cell cell : pieces){
+            piece[cell.getRow() * size + cell.getCol()] = true;
+        }
+
+        int aroundFree = 0;
+        for(Cell cell : pieces){
+            //Same test as getObservationGivenPiece, a piece that observed nothing rules out everything around it
+            int mask = 0;
+            if(observations.contains(cell)){
+                mask = fogOfWar.getCell(cell.getRow(), cell.getCol()).getObservationMask(); // same bit per hypothesis
+            }
+            for(int row = cell.getRow() - 1; row <= cell.getRow() + 1; row++){
+                for(int col = cell.getCol() - 1; col <= cell.getCol() + 1; col++){
+                    if(map.checkOutOfBounds(row, col)){
+                        continue;
+                    }
+                    int square = row * size + col;
+                    allowed[square] &= mask;
+                    if(!piece[square] && !around[square]){
+                        around[square] = true;
+                        aroundFree++;
+                    }
+                }
+            }
+        }
+
+        this.logEvidence = logic.logObservationProbability(map, observations, pieces.size() + aroundFree);
+    }
+
+    /**
+     * @return ln P(observations), same as calculateFullLogObservationProbability(map, observations, pieces)
+     */
+    public double getLogEvidence(){
+        return logEvidence;
+    }
+
+    public boolean isPiece(int row, int col){
+        return piece[row * size + col];
+    }
+
+    /**
+     * Same values as Logic.getObservationGivenPiece
+     * @param out ln P(observations | piece) for [0] wumpus, [1] hero, [2] mage, [3] pit, NEGATIVE_INFINITY when ruled out
+     */
+    public void given(int row, int col, double[] out){
+        int mask = allowed[row * size + col];
+        out[0] = (mask & WUMPUS) != 0 ? logEvidence : Double.NEGATIVE_INFINITY;
+        out[1] = (mask & HERO) != 0 ? logEvidence : Double.NEGATIVE_INFINITY;
+        out[2] = (mask & MAGE) != 0 ? logEvidence : Double.NEGATIVE_INFINITY;
+        out[3] = (mask & PIT) != 0 ? logEvidence : Double.NEGATIVE_INFINITY;
+    }
+}
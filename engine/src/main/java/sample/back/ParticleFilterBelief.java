@@ -0,0 +1,545 @@
+package sample.back;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Particle filter version of the fog of war belief. Instead of independent per cell marginals it keeps K sampled
+ * hidden states, each one a full placement of the player's remaining pieces and of the pits that matches the known
+ * piece counts. predict moves one piece of every particle with the random or the custom (playerMovement == 1)
+ * movement model, observe weights every particle by the stench/noise/fire magic/breeze bits of the AI pieces it
+ * fails to explain and resamples once the weights degenerate. The weighted occupancy of every square is written back
+ * into the probabilities of the Cells, so Logic and the UI read it like before.
+ *
+ * Particles are split into one contiguous chunk per worker, each chunk with its own random stream. The streams of an
+ * update are drawn from the seed and the number of updates made so far, so a run is reproducible for a given seed
+ * and worker count, and a copy carries on exactly like the engine it was made from without disturbing it.
+ */
+public class ParticleFilterBelief implements BeliefEngine {
+    public static final int DEFAULT_PARTICLES = 1000;
+    private static final int PIT = 3; // slot type of a pit, after BitBoard.WUMPUS, HERO and MAGE
+    private static final int DEAD = -1; // square of a piece that was destroyed
+    private static final double MISMATCH = 0.05; // weight factor for every observation bit a particle gets wrong
+    private static final long STREAM_GAMMA = 0x9E3779B97F4A7C15L; // spacing of the per update seeds
+    private static final double[] MISMATCH_POWERS = {1, MISMATCH, MISMATCH * MISMATCH, MISMATCH * MISMATCH * MISMATCH,
+            MISMATCH * MISMATCH * MISMATCH * MISMATCH};
+
+    private final Logic logic;
+    private final Grid map;
+    private final int size;
+    private final int particles;
+    private final int pieceSlots; // slots of the player pieces, the pit slots follow row by row
+    private final int pitsPerRow;
+    private final int stride; // slots per particle
+    private final int[] slotType;
+    private final int[] liveCount; // pieces of every type still alive in each particle
+    private int[] states; // [particle * stride + slot] square of the slot, DEAD if the piece was destroyed
+    private int[] spare; // target of the resampling
+    private final double[] weights;
+    private final long seed;
+    private long updates; // random streams drawn so far
+    private int workers = 1;
+    private ForkJoinPool pool;
+    private Worker[] scratch;
+
+    /**
+     * Samples the particles from the current probabilities of the map, exact at the start of a game
+     * @param logic used for the custom movement model
+     * @param map game board, the piece counts and the AI pieces are read from it
+     * @param particles number of particles K, more is more accurate and slower
+     * @param seed seed of the random streams
+     */
+    public ParticleFilterBelief(Logic logic, Grid map, int particles, long seed){
+        this.logic = logic;
+        this.map = map;
+        this.size = map.getMapSize();
+        this.particles = Math.max(1, particles);
+        this.pitsPerRow = Math.max(0, map.getPitsPerRow());
+        this.liveCount = new int[]{map.getNumOfPWumpus(), map.getNumOfPHero(), map.getNumOfPMage()};
+        this.pieceSlots = liveCount[0] + liveCount[1] + liveCount[2];
+        this.stride = pieceSlots + Math.max(0, size - 2) * pitsPerRow;
+        this.slotType = new int[stride];
+        int slot = 0;
+        for(int type = 0; type < 3; type++){
+            for(int piece = 0; piece < liveCount[type]; piece++){
+                slotType[slot++] = type;
+            }
+        }
+        while(slot < stride){
+            slotType[slot++] = PIT;
+        }
+        this.states = new int[this.particles * stride];
+        this.spare = new int[this.particles * stride];
+        this.weights = new double[this.particles];
+        this.seed = seed;
+        this.scratch = new Worker[]{new Worker()};
+        sampleFromMarginals(aiSquares());
+        Arrays.fill(weights, 1.0 / this.particles);
+    }
+
+    private ParticleFilterBelief(ParticleFilterBelief copy){
+        this.logic = copy.logic;
+        this.map = copy.map;
+        this.size = copy.size;
+        this.particles = copy.particles;
+        this.pitsPerRow = copy.pitsPerRow;
+        this.liveCount = copy.liveCount.clone();
+        this.pieceSlots = copy.pieceSlots;
+        this.stride = copy.stride;
+        this.slotType = copy.slotType;
+        this.states = copy.states.clone();
+        this.spare = new int[copy.spare.length];
+        this.weights = copy.weights.clone();
+        this.seed = copy.seed;
+        this.updates = copy.updates;
+        this.workers = copy.workers;
+        this.pool = copy.pool;
+        this.scratch = new Worker[copy.scratch.length];
+        for(int worker = 0; worker < scratch.length; worker++){
+            scratch[worker] = new Worker();
+        }
+    }
+
+    @Override
+    public BeliefEngine copy(){
+        return new ParticleFilterBelief(this);
+    }
+
+    /**
+     * Sets how many threads update the particles (1 runs on the calling thread). Copies share the threads of the
+     * engine they were made from, so the old pool is left to wind down on its own instead of being shut down.
+     * @param workers number of worker threads
+     */
+    public void setWorkers(int workers){
+        this.workers = Math.max(1, Math.min(workers, particles));
+        pool = this.workers > 1 ? new ForkJoinPool(this.workers) : null;
+        scratch = new Worker[this.workers];
+        for(int worker = 0; worker < scratch.length; worker++){
+            scratch[worker] = new Worker();
+        }
+    }
+
+    public int getWorkers(){
+        return this.workers;
+    }
+
+    public int getParticles(){
+        return this.particles;
+    }
+
+    /**
+     * @return effective sample size of the current weights, between 1 and K
+     */
+    public double getEffectiveSampleSize(){
+        double sum = 0;
+        double squares = 0;
+        for(double weight : weights){
+            sum += weight;
+            squares += weight * weight;
+        }
+        return squares == 0 ? 0 : sum * sum / squares;
+    }
+
+    @Override
+    public void predict(Grid beliefs, int playerMovement){
+        syncCounts();
+        boolean[] aiSquare = aiSquares();
+        double[][] moveWeight = playerMovement == 1 ? movementWeights() : null;
+        forEachChunk((worker, from, to, stream) -> {
+            for(int particle = from; particle < to; particle++){
+                movePiece(worker, particle, stream, aiSquare, moveWeight);
+            }
+        });
+        writeMarginals(beliefs);
+    }
+
+    @Override
+    public void observe(Grid fogOfWar, ArrayList<Cell> observations, ArrayList<Cell> pieces){
+        syncCounts();
+        int[] aiAt = new int[size * size];
+        Arrays.fill(aiAt, -1);
+        int[] observed = new int[pieces.size()];
+        for(int index = 0; index < pieces.size(); index++){
+            Cell piece = pieces.get(index);
+            aiAt[piece.getRow() * size + piece.getCol()] = index;
+            observed[index] = fogOfWar.getCell(piece.getRow(), piece.getCol()).getObservationMask(); // bit per type, like the masks
+        }
+
+        forEachChunk((worker, from, to, stream) -> {
+            for(int particle = from; particle < to; particle++){
+                weights[particle] *= likelihood(worker, particle, aiAt, observed);
+            }
+        });
+        double total = totalWeight();
+        if(total == 0){
+            //Every particle contradicts the observations, start again from the current marginals of the map
+            boolean[] aiSquare = new boolean[size * size];
+            for(int square = 0; square < aiAt.length; square++){
+                aiSquare[square] = aiAt[square] >= 0;
+            }
+            sampleFromMarginals(aiSquare);
+            Arrays.fill(weights, 1);
+            forEachChunk((worker, from, to, stream) -> {
+                for(int particle = from; particle < to; particle++){
+                    weights[particle] *= likelihood(worker, particle, aiAt, observed);
+                }
+            });
+            total = totalWeight();
+            if(total == 0){
+                Arrays.fill(weights, 1);
+                total = particles;
+            }
+        }
+        for(int particle = 0; particle < particles; particle++){
+            weights[particle] /= total;
+        }
+        if(getEffectiveSampleSize() < particles / 2.0){
+            resample();
+        }
+        writeMarginals(fogOfWar);
+    }
+
+    private double totalWeight(){
+        double total = 0;
+        for(double weight : weights){
+            total += weight;
+        }
+        return total;
+    }
+
+    private boolean[] aiSquares(){
+        boolean[] aiSquare = new boolean[size * size];
+        for(int type = 0; type < 3; type++){
+            int[] squares = map.getPieceSquares(BitBoard.AI, type);
+            for(int i = 0; i < map.getPieceCount(BitBoard.AI, type); i++){
+                aiSquare[squares[i]] = true;
+            }
+        }
+        return aiSquare;
+    }
+
+    //Custom movement model weights, read once since the distance fields of the map are not thread safe
+    private double[][] movementWeights(){
+        double[][] moveWeight = new double[3][size * size];
+        char[] preys = {'M', 'W', 'H'};
+        for(int type = 0; type < 3; type++){
+            for(int square = 0; square < size * size; square++){
+                int row = square / size;
+                int col = square % size;
+                moveWeight[type][square] = (row + 1) * logic.getWeightedDistanceForPlayerMove(row, col, BitBoard.typeChar(type), preys[type]);
+            }
+        }
+        return moveWeight;
+    }
+
+    //Pieces destroyed since the last update are removed at random from every particle
+    private void syncCounts(){
+        int[] target = {map.getNumOfPWumpus(), map.getNumOfPHero(), map.getNumOfPMage()};
+        for(int type = 0; type < 3; type++){
+            while(liveCount[type] > target[type]){
+                int removedType = type;
+                int alive = liveCount[type];
+                forEachChunk((worker, from, to, stream) -> {
+                    for(int particle = from; particle < to; particle++){
+                        int base = particle * stride;
+                        int victim = stream.nextInt(alive);
+                        for(int slot = 0; slot < pieceSlots; slot++){
+                            if(slotType[slot] == removedType && states[base + slot] != DEAD && victim-- == 0){
+                                states[base + slot] = DEAD;
+                                break;
+                            }
+                        }
+                    }
+                });
+                liveCount[type]--;
+            }
+        }
+    }
+
+    private void movePiece(Worker worker, int particle, SplittableRandom stream, boolean[] aiSquare, double[][] moveWeight){
+        int base = particle * stride;
+        int alive = liveCount[0] + liveCount[1] + liveCount[2];
+        if(alive == 0){
+            return;
+        }
+        int tag = worker.mark(states, base, stride);
+        int chosen = stream.nextInt(alive);
+        int slot = 0;
+        for(; slot < pieceSlots; slot++){
+            if(states[base + slot] != DEAD && chosen-- == 0){
+                break;
+            }
+        }
+        int from = states[base + slot];
+        int candidates = 0;
+        double total = 0;
+        for(int square : map.getNeighborSquares(from)){
+            if(worker.stamp[square] == tag || aiSquare[square]){
+                continue;
+            }
+            double weight = moveWeight == null ? 1 : Math.max(0, moveWeight[slotType[slot]][square]);
+            worker.squares[candidates] = square;
+            worker.weights[candidates] = weight;
+            total += weight;
+            candidates++;
+        }
+        if(candidates == 0){
+            return;
+        }
+        states[base + slot] = worker.squares[pick(stream, worker.weights, candidates, total)];
+    }
+
+    private double likelihood(Worker worker, int particle, int[] aiAt, int[] observed){
+        int base = particle * stride;
+        int[] masks = worker.masks(observed.length);
+        for(int slot = 0; slot < stride; slot++){
+            int square = states[base + slot];
+            if(square == DEAD){
+                continue;
+            }
+            if(aiAt[square] >= 0){
+                return 0; // an AI piece stands there
+            }
+            int bit = 1 << slotType[slot];
+            for(int neighbor : map.getNeighborSquares(square)){
+                int piece = aiAt[neighbor];
+                if(piece >= 0){
+                    masks[piece] |= bit;
+                }
+            }
+        }
+        double likelihood = 1;
+        for(int piece = 0; piece < observed.length; piece++){
+            likelihood *= MISMATCH_POWERS[Integer.bitCount(masks[piece] ^ observed[piece])];
+        }
+        return likelihood;
+    }
+
+    //Systematic resampling, every chunk finds its first source particle with a binary search and walks from there
+    private void resample(){
+        double[] cumulative = new double[particles];
+        double sum = 0;
+        for(int particle = 0; particle < particles; particle++){
+            sum += weights[particle];
+            cumulative[particle] = sum;
+        }
+        double step = sum / particles;
+        double offset = nextStream().nextDouble() * step;
+        int[] source = states;
+        int[] target = spare;
+        forEachChunk((worker, from, to, stream) -> {
+            int index = Arrays.binarySearch(cumulative, offset + from * step);
+            index = index < 0 ? -index - 1 : index + 1;
+            for(int particle = from; particle < to; particle++){
+                double position = offset + particle * step;
+                while(index < particles - 1 && cumulative[index] <= position){
+                    index++;
+                }
+                System.arraycopy(source, Math.min(index, particles - 1) * stride, target, particle * stride, stride);
+            }
+        });
+        this.states = target;
+        this.spare = source;
+        Arrays.fill(weights, 1.0 / particles);
+    }
+
+    //Draws every particle again from the probabilities of the map, pits first so no piece is placed on one
+    private void sampleFromMarginals(boolean[] aiSquare){
+        forEachChunk((worker, from, to, stream) -> {
+            for(int particle = from; particle < to; particle++){
+                int base = particle * stride;
+                int tag = worker.mark(aiSquare);
+                int slot = pieceSlots;
+                for(int row = 1; row < size - 1 && pitsPerRow > 0; row++){
+                    for(int pit = 0; pit < pitsPerRow; pit++){
+                        int square = sample(worker, stream, tag, row * size, (row + 1) * size, PIT);
+                        states[base + slot++] = square;
+                        if(square != DEAD){
+                            worker.stamp[square] = tag;
+                        }
+                    }
+                }
+                int[] remaining = liveCount.clone();
+                for(slot = 0; slot < pieceSlots; slot++){
+                    int type = slotType[slot];
+                    int square = DEAD;
+                    if(remaining[type] > 0){
+                        remaining[type]--;
+                        square = sample(worker, stream, tag, 0, size * size, type);
+                        if(square != DEAD){
+                            worker.stamp[square] = tag;
+                        }
+                    }
+                    states[base + slot] = square;
+                }
+            }
+        });
+    }
+
+    //Square in [from, to) that is not taken, drawn in proportion to its probability (uniformly if they are all 0)
+    private int sample(Worker worker, SplittableRandom stream, int tag, int from, int to, int type){
+        double total = 0;
+        int free = 0;
+        for(int square = from; square < to; square++){
+            if(worker.stamp[square] != tag){
+                total += probability(square, type);
+                free++;
+            }
+        }
+        if(free == 0){
+            return DEAD;
+        }
+        boolean uniform = !(total > 0);
+        double target = stream.nextDouble() * (uniform ? free : total);
+        int last = DEAD;
+        for(int square = from; square < to; square++){
+            if(worker.stamp[square] == tag){
+                continue;
+            }
+            target -= uniform ? 1 : probability(square, type);
+            last = square;
+            if(target < 0){
+                return square;
+            }
+        }
+        return last;
+    }
+
+    private double probability(int square, int type){
+        Cell cell = map.getCell(square);
+        switch (type){
+            case BitBoard.WUMPUS:
+                return cell.getWumpusProb();
+            case BitBoard.HERO:
+                return cell.getHeroProb();
+            case BitBoard.MAGE:
+                return cell.getMageProb();
+            default:
+                return cell.getPitProb();
+        }
+    }
+
+    private static int pick(SplittableRandom stream, double[] weights, int count, double total){
+        if(!(total > 0)){
+            return stream.nextInt(count);
+        }
+        double target = stream.nextDouble() * total;
+        for(int index = 0; index < count - 1; index++){
+            target -= weights[index];
+            if(target < 0){
+                return index;
+            }
+        }
+        return count - 1;
+    }
+
+    //Weighted occupancy of every square, summed per worker then in worker order so the result does not depend on timing
+    private void writeMarginals(Grid target){
+        int squares = size * size;
+        forEachChunk((worker, from, to, stream) -> {
+            double[] marginals = worker.marginals;
+            Arrays.fill(marginals, 0);
+            for(int particle = from; particle < to; particle++){
+                int base = particle * stride;
+                double weight = weights[particle];
+                for(int slot = 0; slot < stride; slot++){
+                    int square = states[base + slot];
+                    if(square != DEAD){
+                        marginals[slotType[slot] * squares + square] += weight;
+                    }
+                }
+            }
+        });
+        for(int square = 0; square < squares; square++){
+            double wumpus = 0;
+            double hero = 0;
+            double mage = 0;
+            double pit = 0;
+            for(Worker worker : scratch){
+                wumpus += worker.marginals[BitBoard.WUMPUS * squares + square];
+                hero += worker.marginals[BitBoard.HERO * squares + square];
+                mage += worker.marginals[BitBoard.MAGE * squares + square];
+                pit += worker.marginals[PIT * squares + square];
+            }
+            Cell cell = target.getCell(square / size, square % size);
+            cell.setWumpusProb(wumpus);
+            cell.setHeroProb(hero);
+            cell.setMageProb(mage);
+            cell.setPitProb(pit);
+        }
+    }
+
+    //Random stream of the next update, a function of the seed and the update count only
+    private SplittableRandom nextStream(){
+        return new SplittableRandom(new SplittableRandom(seed + updates++ * STREAM_GAMMA).nextLong());
+    }
+
+    private interface Chunk {
+        void run(Worker worker, int from, int to, SplittableRandom stream);
+    }
+
+    private void forEachChunk(Chunk chunk){
+        int count = scratch.length;
+        SplittableRandom random = nextStream();
+        SplittableRandom[] streams = new SplittableRandom[count];
+        for(int worker = 0; worker < count; worker++){
+            streams[worker] = random.split();
+        }
+        if(count == 1 || pool == null){
+            for(int worker = 0; worker < count; worker++){
+                chunk.run(scratch[worker], particles * worker / count, particles * (worker + 1) / count, streams[worker]);
+            }
+            return;
+        }
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(count);
+        for(int worker = 0; worker < count; worker++){
+            int index = worker;
+            tasks.add(pool.submit(() -> chunk.run(scratch[index], particles * index / count, particles * (index + 1) / count, streams[index])));
+        }
+        for(ForkJoinTask<?> task : tasks){
+            task.join();
+        }
+    }
+
+    //Scratch space of one worker, squares are marked as taken by stamping them with a new tag instead of clearing
+    private final class Worker {
+        private final int[] stamp = new int[size * size];
+        private int tag;
+        private final double[] marginals = new double[4 * size * size];
+        private final int[] squares = new int[8];
+        private final double[] weights = new double[8];
+        private int[] masks = new int[0];
+
+        private int mark(int[] states, int base, int length){
+            tag++;
+            for(int slot = base; slot < base + length; slot++){
+                if(states[slot] != DEAD){
+                    stamp[states[slot]] = tag;
+                }
+            }
+            return tag;
+        }
+
+        private int mark(boolean[] taken){
+            tag++;
+            for(int square = 0; square < taken.length; square++){
+                if(taken[square]){
+                    stamp[square] = tag;
+                }
+            }
+            return tag;
+        }
+
+        private int[] masks(int length){
+            if(masks.length < length){
+                masks = new int[length];
+            }else{
+                Arrays.fill(masks, 0, length, 0);
+            }
+            return masks;
+        }
+    }
+}
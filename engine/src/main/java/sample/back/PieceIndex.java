@@ -0,0 +1,136 @@
+package sample.back;
+
+import java.util.Arrays;
+
+/**
+ * The squares (row * size + col) of the pieces of a Grid, one ascending list per owner and piece type
+ * (BitBoard.PLAYER/AI, BitBoard.WUMPUS/HERO/MAGE). Grid keeps it up to date from pieceRemoved/pieceAdded, so walking
+ * the pieces of one side costs O(pieces) instead of a scan of every Cell.
+ *
+ * getSquares returns the backing array, only the first count(owner, type) entries are valid and it must not be
+ * changed or kept across moves.
+ */
+public class PieceIndex {
+    private final int[][][] squares; // [owner][type] ascending squares, grown when full
+    private final int[][] counts; // [owner][type]
+
+    public PieceIndex(int size){
+        this.squares = new int[2][3][];
+        this.counts = new int[2][3];
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                squares[owner][type] = new int[Math.max(size, 1)];
+            }
+        }
+    }
+
+    public PieceIndex(PieceIndex copy){
+        this.squares = new int[2][3][];
+        this.counts = new int[2][3];
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                squares[owner][type] = copy.squares[owner][type].clone();
+                counts[owner][type] = copy.counts[owner][type];
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the lists from every Cell of a Grid
+     */
+    public void rebuild(Grid grid){
+        for(int[] count : counts){
+            Arrays.fill(count, 0);
+        }
+        int size = grid.getMapSize();
+        for(int square = 0; square < size * size; square++){
+            add(grid.getCell(square), square);
+        }
+    }
+
+    /**
+     * Adds the piece on a Cell, nothing for empty squares, pits and unknown pieces
+     */
+    public void add(Cell cell, int square){
+        int owner = BitBoard.ownerCode(cell.belongToPlayer());
+        int type = BitBoard.typeCode(cell.getType());
+        if(owner < 0 || type < 0){
+            return;
+        }
+        int[] list = squares[owner][type];
+        int count = counts[owner][type];
+        int at = Arrays.binarySearch(list, 0, count, square);
+        if(at >= 0){
+            return;
+        }
+        at = -at - 1;
+        if(count == list.length){
+            list = Arrays.copyOf(list, list.length * 2);
+            squares[owner][type] = list;
+        }
+        System.arraycopy(list, at, list, at + 1, count - at);
+        list[at] = square;
+        counts[owner][type] = count + 1;
+    }
+
+    /**
+     * Removes the piece on a Cell, called before the Cell is changed
+     */
+    public void remove(Cell cell, int square){
+        int owner = BitBoard.ownerCode(cell.belongToPlayer());
+        int type = BitBoard.typeCode(cell.getType());
+        if(owner < 0 || type < 0){
+            return;
+        }
+        int[] list = squares[owner][type];
+        int count = counts[owner][type];
+        int at = Arrays.binarySearch(list, 0, count, square);
+        if(at < 0){
+            return;
+        }
+        System.arraycopy(list, at + 1, list, at, count - at - 1);
+        counts[owner][type] = count - 1;
+    }
+
+    /**
+     * @return ascending squares of one owner's pieces of one type, valid up to count(owner, type)
+     */
+    public int[] getSquares(int owner, int type){
+        return squares[owner][type];
+    }
+
+    public int count(int owner, int type){
+        return counts[owner][type];
+    }
+
+    public int count(int owner){
+        return counts[owner][0] + counts[owner][1] + counts[owner][2];
+    }
+
+    /**
+     * Writes the squares of every piece of one owner into out in ascending (row major) order
+     * @param out at least count(owner) long
+     * @return number of squares written
+     */
+    public int merge(int owner, int[] out){
+        int[][] lists = squares[owner];
+        int[] count = counts[owner];
+        int wumpus = 0, hero = 0, mage = 0, written = 0;
+        while(wumpus < count[0] || hero < count[1] || mage < count[2]){
+            int w = wumpus < count[0] ? lists[0][wumpus] : Integer.MAX_VALUE;
+            int h = hero < count[1] ? lists[1][hero] : Integer.MAX_VALUE;
+            int m = mage < count[2] ? lists[2][mage] : Integer.MAX_VALUE;
+            if(w < h && w < m){
+                out[written++] = w;
+                wumpus++;
+            }else if(h < m){
+                out[written++] = h;
+                hero++;
+            }else{
+                out[written++] = m;
+                mage++;
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,262 @@
+package sample.back;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reproducible set of boards and mid-game positions for the benchmarks and the Tournament, in a compact binary file.
+ *
+ * Every board is made from its own seed (Grid(size, seed)) and random legal moves from the same seed lead to its
+ * mid-game positions, so any scenario can be rebuilt from (size, seed, ply) alone. The file still holds the squares so
+ * loading needs no replay: a header (magic, version, count) and per scenario the size, ply, seed and one nibble per
+ * square (EMPTY, PIT, or the piece type plus PLAYER_PIECE / AI_PIECE), two squares per byte.
+ *
+ * Usage: ScenarioCorpus [-out scenarios.bin] [-sizes 6,9,12,24] [-boards 1000] [-positions 5] [-interval 10] [-seed 1]
+ */
+public class ScenarioCorpus {
+    private static final int MAGIC = 0x57435250; // "WCRP"
+    private static final int VERSION = 1;
+
+    private static final int EMPTY = 0;
+    private static final int PIT = 1;
+    private static final int PLAYER_PIECE = 2; // + BitBoard type
+    private static final int AI_PIECE = 5; // + BitBoard type
+
+    public static void main(String[] args) throws IOException {
+        String out = "scenarios.bin";
+        int[] sizes = {6, 9, 12, 24};
+        int boards = 1000, positions = 5, interval = 10;
+        long seed = 1;
+        for(int i = 0; i + 1 < args.length; i += 2){
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-out": out = value; break;
+                case "-sizes":
+                    String[] list = value.split(",");
+                    sizes = new int[list.length];
+                    for(int s = 0; s < list.length; s++){
+                        sizes[s] = Integer.parseInt(list[s]);
+                    }
+                    break;
+                case "-boards": boards = Integer.parseInt(value); break;
+                case "-positions": positions = Integer.parseInt(value); break;
+                case "-interval": interval = Integer.parseInt(value); break;
+                case "-seed": seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<Scenario> scenarios = generate(sizes, boards, positions, interval, seed);
+        try(OutputStream file = new FileOutputStream(out)){
+            write(file, scenarios);
+        }
+        long written = System.nanoTime();
+        List<Scenario> loaded;
+        try(InputStream file = new FileInputStream(out)){
+            loaded = read(file);
+        }
+        long read = System.nanoTime();
+        System.out.printf("%d scenarios in %s, generated and written in %.1f ms, read in %.1f ms%n", loaded.size(), out,
+                (written - start) / 1e6, (read - written) / 1e6);
+    }
+
+    /**
+     * Makes boards of every size and plays random moves on them on all cores, the result only depends on the seed
+     * @param sizes board sizes
+     * @param boards boards per size
+     * @param positions scenarios per board: the start position, then one every interval moves while the game lasts
+     * @param interval moves (player and AI moves counted separately) between two positions of a board
+     * @param seed seed of the whole corpus
+     * @return scenarios ordered by size, board, then ply
+     */
+    public static List<Scenario> generate(int[] sizes, int boards, int positions, int interval, long seed){
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[sizes.length * boards];
+        for(int i = 0; i < seeds.length; i++){
+            seeds[i] = random.nextLong();
+        }
+        return IntStream.range(0, seeds.length).parallel()
+                .mapToObj(i -> positions(sizes[i / boards], seeds[i], positions, interval))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    //Start position of one board and the positions reached by random moves from it, until the game ends
+    private static List<Scenario> positions(int size, long seed, int positions, int interval){
+        List<Scenario> scenarios = new ArrayList<Scenario>(positions);
+        Grid map = new Grid(size, seed);
+        SplittableRandom moves = new SplittableRandom(~seed);
+        int ply = 0;
+        while(scenarios.size() < positions){
+            scenarios.add(Scenario.of(map, seed, ply));
+            for(int move = 0; move < interval; move++, ply++){
+                if(!randomMove(map, ply % 2 == 0 ? BitBoard.PLAYER : BitBoard.AI, moves) || map.getPlayerCount() == 0
+                        || map.getAICount() == 0){
+                    return scenarios;
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    //Uniformly random legal move of one side, false if it has none
+    private static boolean randomMove(Grid map, int owner, SplittableRandom random){
+        char mover = BitBoard.ownerChar(owner);
+        ArrayList<Cell> pieces = owner == BitBoard.AI ? map.getAICells() : map.getPlayerCells();
+        int count = 0;
+        for(Cell piece : pieces){
+            for(int square : map.getNeighborSquares(map.indexOf(piece))){
+                if(map.getCell(square).belongToPlayer() != mover){
+                    count++;
+                }
+            }
+        }
+        if(count == 0){
+            return false;
+        }
+        int pick = random.nextInt(count);
+        for(Cell piece : pieces){
+            for(int square : map.getNeighborSquares(map.indexOf(piece))){
+                if(map.getCell(square).belongToPlayer() != mover && pick-- == 0){
+                    map.applyMove(piece, map.getCell(square));
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static void write(OutputStream out, List<Scenario> scenarios) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(scenarios.size());
+        for(Scenario scenario : scenarios){
+            data.writeByte(scenario.size);
+            data.writeShort(scenario.ply);
+            data.writeLong(scenario.seed);
+            data.write(scenario.squares);
+        }
+        data.flush();
+    }
+
+    public static List<Scenario> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if(data.readInt() != MAGIC){
+            throw new IOException("Not a scenario corpus");
+        }
+        int version = data.readUnsignedShort();
+        if(version != VERSION){
+            throw new IOException("Unsupported scenario corpus version " + version);
+        }
+        int count = data.readInt();
+        List<Scenario> scenarios = new ArrayList<Scenario>(count);
+        for(int i = 0; i < count; i++){
+            int size = data.readUnsignedByte();
+            int ply = data.readUnsignedShort();
+            long seed = data.readLong();
+            byte[] squares = new byte[(size * size + 1) / 2];
+            data.readFully(squares);
+            scenarios.add(new Scenario(size, seed, ply, squares));
+        }
+        return scenarios;
+    }
+
+    /**
+     * @param path corpus file
+     * @param size board size to keep, 0 for every size
+     * @return scenarios of the file in file order
+     */
+    public static List<Scenario> read(String path, int size) throws IOException {
+        try(InputStream file = new FileInputStream(path)){
+            List<Scenario> scenarios = read(file);
+            if(size > 0){
+                scenarios.removeIf(scenario -> scenario.size != size);
+            }
+            return scenarios;
+        }
+    }
+
+    /**
+     * One position: the board of a seed after ply random moves
+     */
+    public static final class Scenario {
+        private final int size;
+        private final long seed;
+        private final int ply;
+        private final byte[] squares; // one nibble per square, low nibble first
+
+        private Scenario(int size, long seed, int ply, byte[] squares){
+            this.size = size;
+            this.seed = seed;
+            this.ply = ply;
+            this.squares = squares;
+        }
+
+        public static Scenario of(Grid map, long seed, int ply){
+            int size = map.getMapSize();
+            byte[] squares = new byte[(size * size + 1) / 2];
+            for(int square = 0; square < size * size; square++){
+                squares[square >> 1] |= code(map.getCell(square)) << ((square & 1) << 2);
+            }
+            return new Scenario(size, seed, ply, squares);
+        }
+
+        private static int code(Cell cell){
+            if(cell.isPit()){
+                return PIT;
+            }
+            int type = BitBoard.typeCode(cell.getType());
+            switch (cell.belongToPlayer()) {
+                case '1':
+                    return type < 0 ? EMPTY : PLAYER_PIECE + type;
+                case '2':
+                    return type < 0 ? EMPTY : AI_PIECE + type;
+                default:
+                    return EMPTY;
+            }
+        }
+
+        public int getSize(){ return size; }
+        public long getSeed(){ return seed; }
+        public int getPly(){ return ply; }
+
+        /**
+         * @return a new board with this position, see Grid(int, char[], char[])
+         */
+        public Grid toGrid(){
+            char[] types = new char[size * size];
+            char[] owners = new char[size * size];
+            for(int square = 0; square < size * size; square++){
+                int code = (squares[square >> 1] >> ((square & 1) << 2)) & 0xF;
+                if(code == PIT){
+                    types[square] = 'P';
+                    owners[square] = '0';
+                }else if(code >= AI_PIECE){
+                    types[square] = BitBoard.typeChar(code - AI_PIECE);
+                    owners[square] = '2';
+                }else if(code >= PLAYER_PIECE){
+                    types[square] = BitBoard.typeChar(code - PLAYER_PIECE);
+                    owners[square] = '1';
+                }else{
+                    types[square] = 'E';
+                    owners[square] = '0';
+                }
+            }
+            return new Grid(size, types, owners);
+        }
+    }
+}
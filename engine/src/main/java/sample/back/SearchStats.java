@@ -0,0 +1,117 @@
+package sample.back;
+
+import java.util.Arrays;
+
+/**
+ * Counters collected while Logic.alphabeta runs, reset at the start of every search
+ */
+public class SearchStats {
+    private long nodes;
+    private long tableHits;
+    private long tableCutoffs;
+    private int workers = 1;
+
+    //Move ordering quality per ply (distance from the root): interior nodes searched, beta cutoffs, cutoffs by the
+    //first move tried and the sum of the indexes of the moves that cut off
+    private final long[] plyNodes = new long[Logic.MAX_DEPTH + 1];
+    private final long[] plyCutoffs = new long[Logic.MAX_DEPTH + 1];
+    private final long[] plyFirstCutoffs = new long[Logic.MAX_DEPTH + 1];
+    private final long[] plyCutoffIndexes = new long[Logic.MAX_DEPTH + 1];
+
+    public void reset(){
+        nodes = 0;
+        tableHits = 0;
+        tableCutoffs = 0;
+        Arrays.fill(plyNodes, 0);
+        Arrays.fill(plyCutoffs, 0);
+        Arrays.fill(plyFirstCutoffs, 0);
+        Arrays.fill(plyCutoffIndexes, 0);
+    }
+
+    public void countNode(){ nodes++; }
+    public void countTableHit(){ tableHits++; }
+    public void countTableCutoff(){ tableCutoffs++; }
+
+    /**
+     * Counts a node of the given ply whose moves are searched
+     */
+    public void countInteriorNode(int ply){
+        if(ply >= 0 && ply < plyNodes.length){
+            plyNodes[ply]++;
+        }
+    }
+
+    /**
+     * Counts a beta cutoff at the given ply
+     * @param moveIndex position of the move that cut off in the ordered moves, 0 for the first
+     */
+    public void countCutoff(int ply, int moveIndex){
+        if(ply >= 0 && ply < plyCutoffs.length){
+            plyCutoffs[ply]++;
+            plyCutoffIndexes[ply] += moveIndex;
+            if(moveIndex == 0){
+                plyFirstCutoffs[ply]++;
+            }
+        }
+    }
+
+    public long getInteriorNodes(int ply){ return plyNodes[ply]; }
+    public long getCutoffs(int ply){ return plyCutoffs[ply]; }
+    public long getFirstMoveCutoffs(int ply){ return plyFirstCutoffs[ply]; }
+
+    /**
+     * @return share of the cutoffs at a ply made by the first move tried, NaN without cutoffs
+     */
+    public double getFirstMoveCutoffRate(int ply){
+        return (double) plyFirstCutoffs[ply] / plyCutoffs[ply];
+    }
+
+    /**
+     * @return average position of the move that cut off at a ply (0 is perfect ordering), NaN without cutoffs
+     */
+    public double getAverageCutoffIndex(int ply){
+        return (double) plyCutoffIndexes[ply] / plyCutoffs[ply];
+    }
+
+    /**
+     * One line per ply that searched moves: interior nodes, cutoffs, first move cutoff rate and average cutoff index
+     */
+    public String plyReport(){
+        StringBuilder report = new StringBuilder();
+        for(int ply = 0; ply < plyNodes.length; ply++){
+            if(plyNodes[ply] == 0){
+                continue;
+            }
+            report.append(String.format("ply %d: nodes %d cutoffs %d first move %.1f%% average index %.2f%n", ply,
+                    plyNodes[ply], plyCutoffs[ply], 100 * getFirstMoveCutoffRate(ply), getAverageCutoffIndex(ply)));
+        }
+        return report.toString();
+    }
+
+    public long getNodes(){ return nodes; }
+    public long getTableHits(){ return tableHits; }
+    public long getTableCutoffs(){ return tableCutoffs; }
+
+    public void setWorkers(int workers){ this.workers = workers; }
+    public int getWorkers(){ return workers; }
+
+    /**
+     * Adds the counters of a helper search (parallel root search) into these
+     */
+    public void add(SearchStats other){
+        nodes += other.nodes;
+        tableHits += other.tableHits;
+        tableCutoffs += other.tableCutoffs;
+        for(int ply = 0; ply < plyNodes.length; ply++){
+            plyNodes[ply] += other.plyNodes[ply];
+            plyCutoffs[ply] += other.plyCutoffs[ply];
+            plyFirstCutoffs[ply] += other.plyFirstCutoffs[ply];
+            plyCutoffIndexes[ply] += other.plyCutoffIndexes[ply];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "workers: " + workers + " nodes: " + nodes + " table hits: " + tableHits + " table cutoffs: " + tableCutoffs;
+    }
+}
@@ -0,0 +1,400 @@
+package sample.back;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parallel, streaming version of Logic.getAllObservationStates. Every placement of the remaining player pieces that
+ * gives the AI pieces exactly their stench/noise/fire magic observations is pushed to the stream as soon as it is
+ * found, nothing is collected. A placement is an int[] of squares (row * size + col): the wumpus first, then the
+ * heroes, then the mages, each type in increasing order so every placement comes out once.
+ *
+ * The search tree is split by the placements of the first two pieces and the stream's Spliterator hands ranges of
+ * those prefixes to the common ForkJoinPool, so a parallel stream uses every core. Pruning:
+ * a piece type is never put next to an AI piece that did not observe it, once every piece of a type is placed every
+ * AI piece that observed the type must have one next to it, and, like getAllObservationStates, a type whose pieces
+ * can no longer reach its possible locations (wumpusLocations/heroLocations/mageLocations of getPossibleLocations,
+ * kept per AI piece here) is cut right away.
+ *
+ * Only what the AI knows is read from the map, pits are known like in getAllObservationStates.
+ */
+public class StateEnumerator {
+    private static final int SPLIT_DEPTH = 2; // pieces placed in every prefix the search is split by
+
+    private final Grid map;
+    private final int size;
+    private final int slots; // player pieces to place
+    private final int[] slotType;
+    private final boolean[] firstOfType; // slot starts a new type
+    private final boolean[] lastOfType; // slot ends its type
+    private final int[] remainingOfType; // slots of the same type after this one
+    private final int[][] candidates; // [type] squares a piece of the type may stand on, ascending
+    private final int[][] observers; // [square] AI pieces next to the square
+    private final int[][] required; // [type] AI pieces that observed the type
+    private final int[][] lastAround; // [type][AI piece] index in candidates of the last square next to the piece, -1 if none
+    private final int aiPieces;
+    private final int[] prefixes; // choice indices of the first SPLIT_DEPTH slots, flattened
+    private final int prefixDepth;
+    private final int prefixCount;
+
+    public StateEnumerator(Grid map){
+        this.map = map;
+        this.size = map.getMapSize();
+        int squares = size * size;
+        int[] counts = {Math.max(0, map.getNumOfPWumpus()), Math.max(0, map.getNumOfPHero()), Math.max(0, map.getNumOfPMage())};
+        this.slots = counts[0] + counts[1] + counts[2];
+        this.slotType = new int[slots];
+        this.firstOfType = new boolean[slots];
+        this.lastOfType = new boolean[slots];
+        this.remainingOfType = new int[slots];
+        int slot = 0;
+        for(int type = 0; type < 3; type++){
+            for(int piece = 0; piece < counts[type]; piece++){
+                slotType[slot] = type;
+                firstOfType[slot] = piece == 0;
+                lastOfType[slot] = piece == counts[type] - 1;
+                remainingOfType[slot] = counts[type] - 1 - piece;
+                slot++;
+            }
+        }
+
+        //Observations of the AI pieces
+        int[] aiAt = new int[squares];
+        Arrays.fill(aiAt, -1);
+        ArrayList<Integer> aiSquares = new ArrayList<Integer>();
+        for(int square = 0; square < squares; square++){
+            if(map.getCell(square).belongToPlayer() == '2'){
+                aiAt[square] = aiSquares.size();
+                aiSquares.add(square);
+            }
+        }
+        this.aiPieces = aiSquares.size();
+        int[] observed = new int[aiPieces];
+        for(int piece = 0; piece < aiPieces; piece++){
+            for(Cell neighbor : map.getNeighbors(aiSquares.get(piece) / size, aiSquares.get(piece) % size)){
+                if(neighbor.belongToPlayer() == '1'){
+                    observed[piece] |= 1 << BitBoard.typeCode(neighbor.getType());
+                }
+            }
+        }
+
+        this.observers = new int[squares][];
+        this.candidates = new int[3][];
+        this.lastAround = new int[3][aiPieces];
+        ArrayList<ArrayList<Integer>> allowed = new ArrayList<ArrayList<Integer>>();
+        for(int type = 0; type < 3; type++){
+            allowed.add(new ArrayList<Integer>());
+        }
+        for(int square = 0; square < squares; square++){
+            Cell cell = map.getCell(square);
+            ArrayList<Integer> around = new ArrayList<Integer>();
+            for(Cell neighbor : map.getNeighbors(square / size, square % size)){
+                int piece = aiAt[neighbor.getRow() * size + neighbor.getCol()];
+                if(piece >= 0){
+                    around.add(piece);
+                }
+            }
+            observers[square] = new int[around.size()];
+            for(int i = 0; i < around.size(); i++){
+                observers[square][i] = around.get(i);
+            }
+            if(cell.belongToPlayer() == '2' || cell.isPit()){
+                continue;
+            }
+            for(int type = 0; type < 3; type++){
+                boolean fits = true;
+                for(int piece : observers[square]){
+                    if((observed[piece] & (1 << type)) == 0){
+                        fits = false;
+                    }
+                }
+                if(fits){
+                    allowed.get(type).add(square);
+                }
+            }
+        }
+        this.required = new int[3][];
+        for(int type = 0; type < 3; type++){
+            candidates[type] = new int[allowed.get(type).size()];
+            Arrays.fill(lastAround[type], -1);
+            for(int i = 0; i < candidates[type].length; i++){
+                candidates[type][i] = allowed.get(type).get(i);
+                for(int piece : observers[candidates[type][i]]){
+                    lastAround[type][piece] = i;
+                }
+            }
+            int needed = 0;
+            for(int piece = 0; piece < aiPieces; piece++){
+                if((observed[piece] & (1 << type)) != 0){
+                    needed++;
+                }
+            }
+            required[type] = new int[needed];
+            needed = 0;
+            for(int piece = 0; piece < aiPieces; piece++){
+                if((observed[piece] & (1 << type)) != 0){
+                    required[type][needed++] = piece;
+                }
+            }
+        }
+
+        //Prefixes of the first pieces, the units of work the search is split into
+        this.prefixDepth = Math.min(SPLIT_DEPTH, slots);
+        Search search = new Search();
+        int[] found = new int[16];
+        int count = 0;
+        search.reset(null, 0);
+        while(search.next(prefixDepth)){
+            if(count + prefixDepth > found.length){
+                found = Arrays.copyOf(found, found.length * 2);
+            }
+            System.arraycopy(search.choice, 0, found, count, prefixDepth);
+            count += prefixDepth;
+        }
+        this.prefixes = Arrays.copyOf(found, count);
+
+        //An AI piece that observed a type no piece of that type can stand next to rules out every state
+        boolean impossible = false;
+        for(int type = 0; type < 3; type++){
+            for(int piece : required[type]){
+                impossible |= counts[type] == 0 || lastAround[type][piece] < 0;
+            }
+        }
+        this.prefixCount = impossible ? 0 : prefixDepth == 0 ? 1 : count / prefixDepth;
+    }
+
+    /**
+     * @return every consistent placement, found while the stream is consumed (parallel streams split the search)
+     */
+    public Stream<int[]> stream(){
+        return StreamSupport.stream(new PlacementSpliterator(0, prefixCount), false);
+    }
+
+    /**
+     * @return every consistent state as a Grid holding the AI pieces, the pits and the placed player pieces
+     */
+    public Stream<Grid> grids(){
+        return stream().map(this::toGrid);
+    }
+
+    /**
+     * Pushes every consistent placement to the consumer from all the threads of the common ForkJoinPool
+     * @param consumer called concurrently, must be thread safe
+     */
+    public void forEach(Consumer<int[]> consumer){
+        stream().parallel().forEach(consumer);
+    }
+
+    public Grid toGrid(int[] placement){
+        Grid state = new Grid(size, true);
+        for(int square = 0; square < size * size; square++){
+            Cell cell = map.getCell(square);
+            if(cell.isPit()){
+                state.getCell(square).setType('P');
+            }else if(cell.belongToPlayer() == '2'){
+                state.getCell(square).setType(cell.getType());
+                state.getCell(square).setPlayerPiece('2');
+            }else{
+                state.getCell(square).setType('E');
+            }
+        }
+        for(int slot = 0; slot < placement.length; slot++){
+            Cell cell = state.getCell(placement[slot]);
+            cell.setType(BitBoard.typeChar(slotType[slot]));
+            cell.setPlayerPiece('1');
+        }
+        state.rehash();
+        return state;
+    }
+
+    //Depth first search over the slots with the squares it uses, resumable so the Spliterator can advance one state at a time
+    private final class Search {
+        private final int[] choice = new int[slots]; // index into candidates of the slot's type
+        private final boolean[] used = new boolean[size * size];
+        private final int[][] cover = new int[3][aiPieces]; // pieces of a type next to every AI piece
+        private final int[] uncovered = new int[3]; // AI pieces that observed a type and have none of it next to them
+        private final int[] limit = new int[slots]; // first choice index each slot may not take
+        private final boolean[] placed = new boolean[slots];
+        private int fixed; // slots set by the prefix
+        private int depth;
+        private boolean started;
+
+        //Starts over with the first fixed slots taken from a prefix
+        private void reset(int[] prefix, int offset){
+            Arrays.fill(used, false);
+            Arrays.fill(placed, false);
+            for(int type = 0; type < 3; type++){
+                Arrays.fill(cover[type], 0);
+                uncovered[type] = required[type].length;
+            }
+            fixed = 0;
+            started = false;
+            if(prefix != null){
+                for(int slot = 0; slot < prefixDepth; slot++){
+                    choice[slot] = prefix[offset + slot];
+                    place(slot);
+                }
+                fixed = prefixDepth;
+            }
+        }
+
+        //Starts a slot before its first choice and bounds its choices
+        private void enter(int slot){
+            int type = slotType[slot];
+            choice[slot] = (firstOfType[slot] ? 0 : choice[slot - 1] + 1) - 1;
+            limit[slot] = candidates[type].length - remainingOfType[slot];
+            for(int piece : required[type]){
+                if(cover[type][piece] == 0){
+                    limit[slot] = Math.min(limit[slot], lastAround[type][piece] + 1); // later pieces of the type could not reach it
+                }
+            }
+        }
+
+        private void place(int slot){
+            int type = slotType[slot];
+            int square = candidates[type][choice[slot]];
+            used[square] = true;
+            placed[slot] = true;
+            for(int piece : observers[square]){
+                if(cover[type][piece]++ == 0 && isRequired(type, piece)){
+                    uncovered[type]--;
+                }
+            }
+        }
+
+        private void release(int slot){
+            int type = slotType[slot];
+            int square = candidates[type][choice[slot]];
+            used[square] = false;
+            placed[slot] = false;
+            for(int piece : observers[square]){
+                if(--cover[type][piece] == 0 && isRequired(type, piece)){
+                    uncovered[type]++;
+                }
+            }
+        }
+
+        private boolean isRequired(int type, int piece){
+            return Arrays.binarySearch(required[type], piece) >= 0;
+        }
+
+        /**
+         * Moves to the next consistent placement of slots [fixed, end)
+         * @param end slots to place, slots for a full state
+         * @return false once every placement was visited
+         */
+        private boolean next(int end){
+            if(end == fixed){
+                if(started){
+                    return false;
+                }
+                started = true;
+                return end < slots || allCovered();
+            }
+            if(!started){
+                started = true;
+                depth = fixed;
+                enter(depth);
+            }else{
+                depth = end - 1;
+            }
+            while(depth >= fixed){
+                int slot = depth;
+                int type = slotType[slot];
+                if(placed[slot]){
+                    release(slot);
+                }
+                choice[slot]++;
+                if(choice[slot] >= limit[slot]){
+                    depth--;
+                    continue;
+                }
+                if(used[candidates[type][choice[slot]]]){
+                    continue;
+                }
+                place(slot);
+                if(lastOfType[slot] && uncovered[type] != 0){
+                    continue;
+                }
+                if(slot == end - 1){
+                    if(end < slots || allCovered()){
+                        return true;
+                    }
+                    continue;
+                }
+                depth++;
+                enter(depth);
+            }
+            return false;
+        }
+
+        //Types with no pieces left never get their observations explained
+        private boolean allCovered(){
+            return uncovered[0] == 0 && uncovered[1] == 0 && uncovered[2] == 0;
+        }
+
+        private int[] placement(){
+            int[] placement = new int[slots];
+            for(int slot = 0; slot < slots; slot++){
+                placement[slot] = candidates[slotType[slot]][choice[slot]];
+            }
+            return placement;
+        }
+    }
+
+    //Hands out ranges of prefixes, every prefix is searched to the end by one thread
+    private final class PlacementSpliterator implements Spliterator<int[]> {
+        private final Search search = new Search();
+        private int current; // prefix being searched, or the next one to start
+        private int end;
+        private boolean active;
+
+        private PlacementSpliterator(int from, int end){
+            this.current = from;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action){
+            while(current < end){
+                if(!active){
+                    search.reset(prefixDepth == 0 ? null : prefixes, current * prefixDepth);
+                    active = true;
+                }
+                if(search.next(slots)){
+                    action.accept(search.placement());
+                    return true;
+                }
+                active = false;
+                current++;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit(){
+            int from = active ? current + 1 : current;
+            if(end - from < 2){
+                return null;
+            }
+            int middle = from + (end - from) / 2;
+            PlacementSpliterator split = new PlacementSpliterator(middle, end);
+            end = middle;
+            return split;
+        }
+
+        @Override
+        public long estimateSize(){
+            return end - current;
+        }
+
+        @Override
+        public int characteristics(){
+            return NONNULL | IMMUTABLE;
+        }
+    }
+}
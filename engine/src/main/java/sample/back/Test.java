@@ -38,5 +38,15 @@ public class Test {
         fogOfWar = search.render(true);
         fogOfWar.printMap();
         search.printObservations();
+
+        System.out.println("AI turn under fog of war");
+        fogOfWar = search.AInextTurn(0);
+        System.out.println("Best move: " + search.getBestMove());
+        fogOfWar.printMap();
+
+        System.out.println("Full board search");
+        double value = search.run(5);
+        System.out.println("The value is: " + value);
+        original.printMap();
     }
 }
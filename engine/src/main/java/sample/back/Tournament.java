@@ -0,0 +1,330 @@
+package sample.back;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Headless self-play. Plays seeded games between agents on a work-stealing pool and prints, per pairing, games per
+ * second, the win/draw rates from Logic.checkWin and the per move latency percentiles of both sides.
+ *
+ * Agents:
+ * <ul>
+ *     <li>policy: the AI turn under fog of war (Logic.playAITurn: belief update, policy(), belief update), AI side only</li>
+ *     <li>alphabeta0 ... alphabeta5: full information alphabeta to -depth with that calculateHeuristic index</li>
+ *     <li>random: a uniformly random legal move</li>
+ * </ul>
+ * Every agent of -ai plays every agent of -player, the player moves first like in the UI. Game g of every pairing is
+ * played on the board of seed -seed + g, so pairings are compared on the same boards and every game can be replayed.
+ * Games that reach -turns turns without a winner are counted as unfinished. With -corpus the games start from the
+ * scenarios of that size of a ScenarioCorpus file instead (game g from scenario g, cycling when there are fewer).
+ *
+ * Usage: Tournament [-size 9] [-games 1000] [-depth 2] [-turns 200] [-seed 1] [-workers cores] [-movement 0]
+ *                   [-ai policy,alphabeta5] [-player random,alphabeta5] [-corpus scenarios.bin]
+ */
+public class Tournament {
+    private static final int UNFINISHED = -1;
+
+    private final int size;
+    private final int games;
+    private final int depth;
+    private final int turns;
+    private final long seed;
+    private final int movement;
+    private final ForkJoinPool pool;
+    private List<ScenarioCorpus.Scenario> corpus;
+
+    public Tournament(int size, int games, int depth, int turns, long seed, int movement, int workers){
+        this.size = size;
+        this.games = games;
+        this.depth = depth;
+        this.turns = turns;
+        this.seed = seed;
+        this.movement = movement;
+        this.pool = new ForkJoinPool(workers);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int size = 9, games = 1000, depth = 2, turns = 200, movement = 0;
+        int workers = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        String[] ai = {"policy", "alphabeta5"};
+        String[] player = {"random", "alphabeta5"};
+        String corpus = null;
+        for(int i = 0; i + 1 < args.length; i += 2){
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-size": size = Integer.parseInt(value); break;
+                case "-games": games = Integer.parseInt(value); break;
+                case "-depth": depth = Integer.parseInt(value); break;
+                case "-turns": turns = Integer.parseInt(value); break;
+                case "-seed": seed = Long.parseLong(value); break;
+                case "-workers": workers = Integer.parseInt(value); break;
+                case "-movement": movement = Integer.parseInt(value); break;
+                case "-ai": ai = value.split(","); break;
+                case "-player": player = value.split(","); break;
+                case "-corpus": corpus = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        for(String name : player){
+            if(name.equals("policy")){
+                throw new IllegalArgumentException("policy only plays the AI side");
+            }
+        }
+
+        Tournament tournament = new Tournament(size, games, depth, turns, seed, movement, workers);
+        if(corpus != null){
+            List<ScenarioCorpus.Scenario> scenarios = ScenarioCorpus.read(corpus, size);
+            if(scenarios.isEmpty()){
+                throw new IllegalArgumentException("No " + size + "x" + size + " scenarios in " + corpus);
+            }
+            tournament.setCorpus(scenarios);
+        }
+        System.out.println("Board " + size + "x" + size + ", " + games + " games per pairing, depth " + depth + ", "
+                + turns + " turns, " + (corpus == null ? "seed " + seed : "corpus " + corpus) + ", " + workers + " workers");
+        System.out.printf("%-24s %9s %7s %7s %7s %7s   %-30s %-30s%n", "ai vs player", "games/s", "ai", "player", "draw",
+                "unfin.", "ai ms/move p50 p90 p99 max", "player ms/move p50 p90 p99 max");
+        for(String aiName : ai){
+            for(String playerName : player){
+                tournament.play(aiName, playerName).print();
+            }
+        }
+        tournament.shutdown();
+    }
+
+    /**
+     * Starts the games from these positions instead of new boards of the seed
+     */
+    public void setCorpus(List<ScenarioCorpus.Scenario> corpus){
+        this.corpus = corpus;
+    }
+
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    /**
+     * Plays every game of one pairing on the pool
+     * @param ai agent name of the AI side
+     * @param player agent name of the player side
+     * @return results of the pairing
+     */
+    public Result play(String ai, String player){
+        Agent aiAgent = agent(ai);
+        Agent playerAgent = agent(player);
+        long start = System.nanoTime();
+        ArrayList<ForkJoinTask<Game>> tasks = new ArrayList<ForkJoinTask<Game>>(games);
+        for(int game = 0; game < games; game++){
+            long boardSeed = seed + game;
+            ScenarioCorpus.Scenario scenario = corpus == null ? null : corpus.get(game % corpus.size());
+            tasks.add(pool.submit(() -> {
+                Game state = scenario == null ? new Game(new Grid(size, boardSeed), boardSeed)
+                        : new Game(scenario.toGrid(), scenario.getSeed() + scenario.getPly());
+                state.play(aiAgent, playerAgent);
+                return state;
+            }));
+        }
+        Result result = new Result(ai + " vs " + player);
+        for(ForkJoinTask<Game> task : tasks){
+            result.add(task.join());
+        }
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        return result;
+    }
+
+    //Plays one move for a side of a game, false if that side had no move
+    private interface Agent {
+        boolean play(Game game, char side);
+    }
+
+    private Agent agent(String name){
+        if(name.equals("policy")){
+            return (game, side) -> game.fogLogic().playAITurn(movement) != null;
+        }
+        if(name.equals("random")){
+            return Game::randomMove;
+        }
+        if(name.startsWith("alphabeta")){
+            int heuristic = Integer.parseInt(name.substring("alphabeta".length()));
+            if(heuristic < 0 || heuristic > 5){
+                throw new IllegalArgumentException("Unknown heuristic " + heuristic);
+            }
+            return (game, side) -> game.searchMove(side, heuristic);
+        }
+        throw new IllegalArgumentException("Unknown agent " + name);
+    }
+
+    //One game: the board, the Logic of each kind of agent made on first use, and the latencies of both sides
+    private final class Game {
+        private final Grid map;
+        private final SplittableRandom random;
+        private Logic fogLogic;
+        private Logic searchLogic;
+        private int result = UNFINISHED;
+        private final long[] aiNanos = new long[turns];
+        private final long[] playerNanos = new long[turns];
+        private int aiMoves;
+        private int playerMoves;
+
+        Game(Grid map, long randomSeed){
+            this.map = map;
+            this.random = new SplittableRandom(randomSeed);
+        }
+
+        void play(Agent ai, Agent player){
+            for(int turn = 0; turn < turns; turn++){
+                long start = System.nanoTime();
+                boolean moved = player.play(this, '1');
+                playerNanos[playerMoves++] = System.nanoTime() - start;
+                if(checkWin() != UNFINISHED){
+                    return;
+                }
+                start = System.nanoTime();
+                moved |= ai.play(this, '2');
+                aiNanos[aiMoves++] = System.nanoTime() - start;
+                if(checkWin() != UNFINISHED || !moved){
+                    return;
+                }
+            }
+        }
+
+        private int checkWin(){
+            result = logic().checkWin();
+            return result;
+        }
+
+        //Any Logic of the game, they all read the same board
+        private Logic logic(){
+            return searchLogic != null ? searchLogic : fogLogic();
+        }
+
+        Logic fogLogic(){
+            if(fogLogic == null){
+                fogLogic = new Logic(map, 1);
+            }
+            return fogLogic;
+        }
+
+        Logic searchLogic(){
+            if(searchLogic == null){
+                searchLogic = new Logic(map, depth);
+                searchLogic.setTranspositionTableSize(4);
+            }
+            return searchLogic;
+        }
+
+        boolean searchMove(char side, int heuristic){
+            Logic logic = searchLogic();
+            logic.alphabeta(map, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, side == '2', heuristic);
+            Move move = logic.getBestMove();
+            if(move == null){
+                return false;
+            }
+            logic.move(map.getCell(move.getOrigin().getRow(), move.getOrigin().getCol()),
+                    map.getCell(move.getGoal().getRow(), move.getGoal().getCol()));
+            return true;
+        }
+
+        boolean randomMove(char side){
+            Logic logic = logic();
+            ArrayList<Cell> pieces = side == '2' ? map.getAICells() : map.getPlayerCells();
+            ArrayList<Cell> origins = new ArrayList<Cell>();
+            ArrayList<Cell> goals = new ArrayList<Cell>();
+            for(Cell piece : pieces){
+                for(Cell goal : logic.possibleMoves(piece)){
+                    origins.add(piece);
+                    goals.add(goal);
+                }
+            }
+            if(goals.isEmpty()){
+                return false;
+            }
+            int pick = random.nextInt(goals.size());
+            logic.move(origins.get(pick), goals.get(pick));
+            return true;
+        }
+    }
+
+    /**
+     * Outcome counts and move latencies of one pairing
+     */
+    public static final class Result {
+        private final String name;
+        private int games;
+        private int aiWins;
+        private int playerWins;
+        private int draws;
+        private int unfinished;
+        private long[] aiNanos = new long[0];
+        private long[] playerNanos = new long[0];
+        private double seconds;
+
+        Result(String name){
+            this.name = name;
+        }
+
+        private void add(Game game){
+            games++;
+            switch (game.result) {
+                case 0:
+                    draws++;
+                    break;
+                case 1:
+                    playerWins++;
+                    break;
+                case 2:
+                    aiWins++;
+                    break;
+                default:
+                    unfinished++;
+            }
+            aiNanos = append(aiNanos, game.aiNanos, game.aiMoves);
+            playerNanos = append(playerNanos, game.playerNanos, game.playerMoves);
+        }
+
+        private static long[] append(long[] to, long[] from, int count){
+            long[] joined = Arrays.copyOf(to, to.length + count);
+            System.arraycopy(from, 0, joined, to.length, count);
+            return joined;
+        }
+
+        public int getGames(){ return games; }
+        public int getAIWins(){ return aiWins; }
+        public int getPlayerWins(){ return playerWins; }
+        public int getDraws(){ return draws; }
+        public int getUnfinished(){ return unfinished; }
+        public double getGamesPerSecond(){ return games / seconds; }
+
+        /**
+         * @param ai true for the AI side
+         * @param percentile 0 to 100
+         * @return move latency in milliseconds at that percentile (nearest rank), 0 without moves
+         */
+        public double getLatencyMillis(boolean ai, double percentile){
+            long[] nanos = ai ? aiNanos : playerNanos;
+            if(nanos.length == 0){
+                return 0;
+            }
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+        }
+
+        public void print(){
+            System.out.printf("%-24s %9.1f %6.1f%% %6.1f%% %6.1f%% %6.1f%%   %-30s %-30s%n", name, getGamesPerSecond(),
+                    100.0 * aiWins / games, 100.0 * playerWins / games, 100.0 * draws / games, 100.0 * unfinished / games,
+                    latencies(true), latencies(false));
+        }
+
+        private String latencies(boolean ai){
+            return String.format("%.3f %.3f %.3f %.3f", getLatencyMillis(ai, 50), getLatencyMillis(ai, 90),
+                    getLatencyMillis(ai, 99), getLatencyMillis(ai, 100));
+        }
+    }
+}
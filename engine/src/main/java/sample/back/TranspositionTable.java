@@ -0,0 +1,118 @@
+package sample.back;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for Logic.alphabeta, stored as parallel primitive arrays.
+ * Entries live in buckets of two slots: the first slot is depth-preferred (only replaced by an equal or deeper
+ * search, or by anything once the entry is from an older search), the second slot is always replaced.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1; // score is a lower bound (search failed high)
+    public static final int UPPER = 2; // score is an upper bound (search failed low)
+    public static final int NO_MOVE = -1;
+
+    //key + score + move + depth + bound + generation
+    private static final int ENTRY_BYTES = 8 + 8 + 4 + 1 + 1 + 1;
+
+    private final long[] keys;
+    private final double[] scores;
+    private final int[] moves;
+    private final byte[] depths;
+    private final byte[] bounds;
+    private final byte[] generations;
+    private final int mask;
+    private byte generation;
+
+    private long probes;
+    private long hits;
+    private long stores;
+
+    /**
+     * @param megabytes memory cap, the table uses the largest power of two number of entries that fits
+     */
+    public TranspositionTable(int megabytes){
+        long budget = Math.max(1, megabytes) * 1024L * 1024L;
+        int entries = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(2, budget / ENTRY_BYTES)));
+        this.keys = new long[entries];
+        this.scores = new double[entries];
+        this.moves = new int[entries];
+        this.depths = new byte[entries];
+        this.bounds = new byte[entries];
+        this.generations = new byte[entries];
+        this.mask = entries - 2; // bucket index, always even
+    }
+
+    /**
+     * Marks the start of a new search so entries from older searches become the first to be replaced
+     */
+    public void newSearch(){
+        generation++;
+    }
+
+    public void clear(){
+        Arrays.fill(keys, 0);
+        Arrays.fill(depths, (byte) 0);
+        probes = hits = stores = 0;
+    }
+
+    /**
+     * @param key position hash
+     * @return slot of the entry, -1 if the position is not in the table
+     */
+    public int probe(long key){
+        probes++;
+        int bucket = (int) key & mask;
+        if(keys[bucket] == key && depths[bucket] > 0){
+            hits++;
+            return bucket;
+        }
+        if(keys[bucket + 1] == key && depths[bucket + 1] > 0){
+            hits++;
+            return bucket + 1;
+        }
+        return -1;
+    }
+
+    public int getDepth(int slot){ return depths[slot]; }
+    public int getBound(int slot){ return bounds[slot]; }
+    public double getScore(int slot){ return scores[slot]; }
+    public int getMove(int slot){ return moves[slot]; }
+
+    /**
+     * @param key position hash
+     * @param depth remaining search depth of the result (must be at least 1)
+     * @param bound EXACT, LOWER or UPPER
+     * @param score result of the search
+     * @param move best move found, NO_MOVE if none
+     */
+    public void store(long key, int depth, int bound, double score, int move){
+        int bucket = (int) key & mask;
+        int slot;
+        if(keys[bucket] == key || depths[bucket] == 0 || depth >= depths[bucket] || generations[bucket] != generation){
+            slot = bucket;
+        }else{
+            slot = bucket + 1;
+        }
+        //Keep the old best move for ordering when the new search did not find one
+        if(move == NO_MOVE && keys[slot] == key){
+            move = moves[slot];
+        }
+        keys[slot] = key;
+        depths[slot] = (byte) Math.min(depth, Byte.MAX_VALUE);
+        bounds[slot] = (byte) bound;
+        scores[slot] = score;
+        moves[slot] = move;
+        generations[slot] = generation;
+        stores++;
+    }
+
+    public int capacity(){
+        return keys.length;
+    }
+
+    public long getProbes(){ return probes; }
+    public long getHits(){ return hits; }
+    public long getStores(){ return stores; }
+}
@@ -0,0 +1,34 @@
+package sample.back;
+
+/**
+ * Follows an AI turn of Logic.playAITurn from another thread: told when each phase starts and asked between phases
+ * whether to stop. A UI can show the progress and cancel a slow turn without the engine knowing about the UI.
+ */
+public interface TurnListener {
+    int PREDICT = 0; // belief update for the player's move
+    int OBSERVE = 1; // belief update for what the AI pieces observe
+    int POLICY = 2; // choosing the AI move
+    int AFTER_MOVE = 3; // belief update for the AI's own move
+    int PHASES = 4;
+
+    TurnListener NONE = new TurnListener() {
+        @Override
+        public void phase(int phase){
+        }
+
+        @Override
+        public boolean isCancelled(){
+            return false;
+        }
+    };
+
+    /**
+     * @param phase PREDICT, OBSERVE, POLICY or AFTER_MOVE, in that order
+     */
+    void phase(int phase);
+
+    /**
+     * @return true to stop the turn, checked before every phase (AFTER_MOVE starts before the move is played)
+     */
+    boolean isCancelled();
+}
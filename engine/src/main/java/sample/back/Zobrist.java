@@ -0,0 +1,77 @@
+package sample.back;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist keys for hashing board positions. One random key per (owner, piece type, square),
+ * plus keys for the side to move and the heuristic the position was scored with.
+ * Keys come from a fixed seed so hashes are the same in every run and every copy of a Grid.
+ * Pits never move during a game so they are not part of the hash.
+ */
+public class Zobrist {
+    private static final ConcurrentHashMap<Integer, Zobrist> KEYS = new ConcurrentHashMap<Integer, Zobrist>();
+
+    private final long[][][] pieceKeys; // [owner][type][square]
+    private final long sideKey;
+    private final long[] heuristicKeys;
+
+    private Zobrist(int size){
+        SplittableRandom random = new SplittableRandom(0x5EED_0F_3A7L + size);
+        this.pieceKeys = new long[2][3][size * size];
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                for(int square = 0; square < size * size; square++){
+                    pieceKeys[owner][type][square] = random.nextLong();
+                }
+            }
+        }
+        this.sideKey = random.nextLong();
+        this.heuristicKeys = new long[6];
+        for(int heuristic = 0; heuristic < heuristicKeys.length; heuristic++){
+            heuristicKeys[heuristic] = random.nextLong();
+        }
+    }
+
+    /**
+     * Keys are shared by every Grid of the same size
+     * @param size grid size
+     * @return keys for that size
+     */
+    public static Zobrist forSize(int size){
+        Zobrist keys = KEYS.get(size);
+        if(keys == null){
+            keys = KEYS.computeIfAbsent(size, Zobrist::new);
+        }
+        return keys;
+    }
+
+    /**
+     * @param cell cell to hash
+     * @param square index of the cell (row * size + col)
+     * @return key of the piece on the cell, 0 if the cell holds no piece
+     */
+    public long key(Cell cell, int square){
+        int owner = BitBoard.ownerCode(cell.belongToPlayer());
+        int type = BitBoard.typeCode(cell.getType());
+        if(owner < 0 || type < 0){
+            return 0;
+        }
+        return pieceKeys[owner][type][square];
+    }
+
+    public long key(int owner, int type, int square){
+        return pieceKeys[owner][type][square];
+    }
+
+    /**
+     * XORed in when the AI (maximizing player) is to move
+     */
+    public long side(){
+        return sideKey;
+    }
+
+    public long heuristic(int heuristic){
+        return heuristic >= 0 && heuristic < heuristicKeys.length ? heuristicKeys[heuristic] : 0;
+    }
+}
@@ -0,0 +1,70 @@
+package sample.back;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * DiffusionKernel with the row sweep on jdk.incubator.vector, as many columns per step as the CPU's widest double
+ * vector holds, the end of the row is done by the scalar sweep. Needs JDK 16 or newer and
+ * --add-modules jdk.incubator.vector, DiffusionKernel.forSize falls back to the scalar kernel without them.
+ */
+public class VectorDiffusionKernel extends DiffusionKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    public VectorDiffusionKernel(int size){
+        super(size);
+    }
+
+    @Override
+    public boolean isVectorized(){
+        return true;
+    }
+
+    @Override
+    protected void sweepRow(int row, double[][] in, double[][] out, double stay, double[][] weights, double[] totals){
+        int square = row * size;
+        int above = row * stride;
+        int middle = above + stride;
+        int below = middle + stride;
+        int bound = SPECIES.loopBound(size);
+        DoubleVector wumpusTotal = DoubleVector.zero(SPECIES);
+        DoubleVector heroTotal = DoubleVector.zero(SPECIES);
+        DoubleVector mageTotal = DoubleVector.zero(SPECIES);
+        int col = 0;
+        for(; col < bound; col += SPECIES.length()){
+            DoubleVector wumpus = DoubleVector.fromArray(SPECIES, in[0], square + col).mul(stay)
+                    .add(neighbors(wumpusFlow, above + col, middle + col, below + col));
+            DoubleVector hero = DoubleVector.fromArray(SPECIES, in[1], square + col).mul(stay)
+                    .add(neighbors(heroFlow, above + col, middle + col, below + col));
+            DoubleVector mage = DoubleVector.fromArray(SPECIES, in[2], square + col).mul(stay)
+                    .add(neighbors(mageFlow, above + col, middle + col, below + col));
+            if(weights != null){
+                wumpus = wumpus.mul(DoubleVector.fromArray(SPECIES, weights[0], square + col));
+                hero = hero.mul(DoubleVector.fromArray(SPECIES, weights[1], square + col));
+                mage = mage.mul(DoubleVector.fromArray(SPECIES, weights[2], square + col));
+            }
+            wumpus.intoArray(out[0], square + col);
+            hero.intoArray(out[1], square + col);
+            mage.intoArray(out[2], square + col);
+            wumpusTotal = wumpusTotal.add(wumpus);
+            heroTotal = heroTotal.add(hero);
+            mageTotal = mageTotal.add(mage);
+        }
+        totals[0] += wumpusTotal.reduceLanes(VectorOperators.ADD);
+        totals[1] += heroTotal.reduceLanes(VectorOperators.ADD);
+        totals[2] += mageTotal.reduceLanes(VectorOperators.ADD);
+        sweepColumns(row, col, in, out, stay, weights, totals);
+    }
+
+    private static DoubleVector neighbors(double[] flow, int above, int middle, int below){
+        return DoubleVector.fromArray(SPECIES, flow, above)
+                .add(DoubleVector.fromArray(SPECIES, flow, above + 1))
+                .add(DoubleVector.fromArray(SPECIES, flow, above + 2))
+                .add(DoubleVector.fromArray(SPECIES, flow, middle))
+                .add(DoubleVector.fromArray(SPECIES, flow, middle + 2))
+                .add(DoubleVector.fromArray(SPECIES, flow, below))
+                .add(DoubleVector.fromArray(SPECIES, flow, below + 1))
+                .add(DoubleVector.fromArray(SPECIES, flow, below + 2));
+    }
+}
@@ -0,0 +1,211 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentStatesTest {
+    private static final double LIMIT = 200000; // placements a brute force check may try
+
+    /**
+     * Every placement of the player pieces on the squares that are not AI pieces or pits, kept when each AI piece
+     * would observe exactly the types it observes on the board
+     */
+    static final class BruteForce {
+        final int size;
+        final int[] counts;
+        final boolean[] free;
+        final int[] aiSquares;
+        final int[] observed;
+        final int[] placement;
+        double total;
+        final double[][] marginals;
+
+        BruteForce(Grid grid){
+            size = grid.getMapSize();
+            counts = new int[]{grid.getNumOfPWumpus(), grid.getNumOfPHero(), grid.getNumOfPMage()};
+            free = new boolean[size * size];
+            ArrayList<Integer> ai = new ArrayList<Integer>();
+            for(int square = 0; square < size * size; square++){
+                Cell cell = grid.getCell(square);
+                if(cell.belongToPlayer() == '2'){
+                    ai.add(square);
+                }
+                free[square] = cell.belongToPlayer() != '2' && !cell.isPit();
+            }
+            aiSquares = new int[ai.size()];
+            observed = new int[ai.size()];
+            for(int i = 0; i < aiSquares.length; i++){
+                aiSquares[i] = ai.get(i);
+                for(int square : grid.getNeighborSquares(aiSquares[i])){
+                    Cell cell = grid.getCell(square);
+                    if(cell.belongToPlayer() == '1'){
+                        observed[i] |= 1 << BitBoard.typeCode(cell.getType());
+                    }
+                }
+            }
+            placement = new int[size * size];
+            Arrays.fill(placement, -1);
+            marginals = new double[3][size * size];
+        }
+
+        //Placements the enumeration tries, to skip the positions that take too long
+        double work(){
+            int squares = 0;
+            for(boolean f : free){
+                squares += f ? 1 : 0;
+            }
+            double work = 1;
+            for(int count : counts){
+                work *= binomial(squares, count);
+                squares -= count;
+            }
+            return work;
+        }
+
+        private static double binomial(int n, int k){
+            double result = 1;
+            for(int i = 0; i < k; i++){
+                result = result * (n - i) / (i + 1);
+            }
+            return result;
+        }
+
+        BruteForce run(){
+            place(0, 0, 0);
+            return this;
+        }
+
+        private void place(int type, int placed, int from){
+            if(type == 3){
+                for(int i = 0; i < aiSquares.length; i++){
+                    int mask = 0;
+                    for(int square : Neighbors.forSize(size).of(aiSquares[i])){
+                        if(placement[square] >= 0){
+                            mask |= 1 << placement[square];
+                        }
+                    }
+                    if(mask != observed[i]){
+                        return;
+                    }
+                }
+                total++;
+                for(int square = 0; square < placement.length; square++){
+                    if(placement[square] >= 0){
+                        marginals[placement[square]][square]++;
+                    }
+                }
+                return;
+            }
+            if(placed == counts[type]){
+                place(type + 1, 0, 0);
+                return;
+            }
+            for(int square = from; square < placement.length; square++){
+                if(free[square] && placement[square] < 0){
+                    placement[square] = type;
+                    place(type, placed + 1, square + 1);
+                    placement[square] = -1;
+                }
+            }
+        }
+    }
+
+    static void assertMatches(Grid grid, BruteForce brute){
+        ConsistentStates states = new ConsistentStates(grid);
+        int size = grid.getMapSize();
+        assertEquals(brute.total, states.count(), 1e-9 * Math.max(1, brute.total));
+        for(int type = 0; type < 3; type++){
+            for(int square = 0; square < size * size; square++){
+                double expected = brute.total == 0 ? 0 : brute.marginals[type][square] / brute.total;
+                assertEquals(expected, states.probability(square / size, square % size, BitBoard.typeChar(type)), 1e-9,
+                        "type " + type + " square " + square);
+            }
+        }
+    }
+
+    @Test
+    void memoKeysOfDifferentPositionsDoNotCollide(){
+        char[] types = new char[36];
+        char[] owners = new char[36];
+        Arrays.fill(types, 'E');
+        Arrays.fill(owners, '0');
+        int[][] ai = {{0, 1}, {0, 3}, {1, 1}, {2, 3}, {5, 0}};
+        char[] aiTypes = {'W', 'H', 'M', 'W', 'H'};
+        for(int i = 0; i < ai.length; i++){
+            types[ai[i][0] * 6 + ai[i][1]] = aiTypes[i];
+            owners[ai[i][0] * 6 + ai[i][1]] = '2';
+        }
+        types[1 * 6 + 2] = 'H';
+        owners[1 * 6 + 2] = '1';
+        Grid grid = new Grid(6, types, owners);
+        BruteForce brute = new BruteForce(grid).run();
+        assertEquals(1, brute.total);
+        assertMatches(grid, brute);
+    }
+
+    @Test
+    void matchesBruteForceOnRandomGames(){
+        SplittableRandom random = new SplittableRandom(10);
+        int checked = 0;
+        for(int size : new int[]{3, 6}){
+            for(int game = 0; game < 150; game++){
+                Grid grid = new Grid(size, random.nextLong());
+                for(int ply = 0; ply < 40; ply++){
+                    Cell[] move = GridTest.randomMove(grid, random);
+                    if(move == null){
+                        break;
+                    }
+                    grid.applyMove(move[0], move[1]);
+                    if(ply % 3 != 0 || grid.getPlayerCount() == 0){
+                        continue;
+                    }
+                    BruteForce brute = new BruteForce(grid);
+                    if(brute.work() > LIMIT){
+                        continue;
+                    }
+                    assertMatches(grid, brute.run());
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 500, "only " + checked + " positions checked");
+    }
+
+    @Test
+    void matchesBruteForceOnRandomLayouts(){
+        SplittableRandom random = new SplittableRandom(100);
+        for(int layout = 0; layout < 1000; layout++){
+            char[] types = new char[36];
+            char[] owners = new char[36];
+            Arrays.fill(types, 'E');
+            Arrays.fill(owners, '0');
+            place(types, owners, random, 2 + random.nextInt(7), '2');
+            place(types, owners, random, 1 + random.nextInt(4), '1');
+            for(int pits = random.nextInt(4); pits > 0; pits--){
+                int square = random.nextInt(36);
+                if(owners[square] == '0'){
+                    types[square] = 'P';
+                }
+            }
+            Grid grid = new Grid(6, types, owners);
+            assertMatches(grid, new BruteForce(grid).run());
+        }
+    }
+
+    static void place(char[] types, char[] owners, SplittableRandom random, int pieces, char owner){
+        while(pieces > 0){
+            int square = random.nextInt(types.length);
+            if(owners[square] == '0' && types[square] == 'E'){
+                types[square] = BitBoard.typeChar(random.nextInt(3));
+                owners[square] = owner;
+                pieces--;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GridTest {
+
+    //Random legal move of either side, null when neither side can move
+    static Cell[] randomMove(Grid grid, SplittableRandom random){
+        for(int attempt = 0; attempt < 2; attempt++){
+            ArrayList<Cell> pieces = random.nextBoolean() ? grid.getAICells() : grid.getPlayerCells();
+            if(pieces.isEmpty()){
+                continue;
+            }
+            Cell start = pieces.get(random.nextInt(pieces.size()));
+            ArrayList<Cell> goals = new ArrayList<Cell>();
+            for(Cell goal : grid.getNeighbors(start.getRow(), start.getCol())){
+                if(goal.belongToPlayer() != start.belongToPlayer()){
+                    goals.add(goal);
+                }
+            }
+            if(!goals.isEmpty()){
+                return new Cell[]{start, goals.get(random.nextInt(goals.size()))};
+            }
+        }
+        return null;
+    }
+
+    //Everything makeMove/unmakeMove has to restore, as one string per square plus the counters
+    static String state(Grid grid){
+        StringBuilder state = new StringBuilder();
+        for(int square = 0; square < grid.getMapSize() * grid.getMapSize(); square++){
+            Cell cell = grid.getCell(square);
+            state.append(cell.getType()).append(cell.belongToPlayer());
+        }
+        return state.append(' ').append(grid.getPlayerCount()).append(' ').append(grid.getAICount())
+                .append(' ').append(grid.getNumOfPWumpus()).append(grid.getNumOfPHero()).append(grid.getNumOfPMage())
+                .append(' ').append(grid.getNumOfAWumpus()).append(grid.getNumOfAHero()).append(grid.getNumOfAMage())
+                .append(' ').append(grid.getPlayerDeadPieces()).append(grid.getAIDeadPieces()).toString();
+    }
+
+    private static int[][] pieceSquares(Grid grid){
+        int[][] squares = new int[6][];
+        for(int owner = 0; owner < 2; owner++){
+            for(int type = 0; type < 3; type++){
+                int count = grid.getPieceCount(owner, type);
+                squares[owner * 3 + type] = Arrays.copyOf(grid.getPieceSquares(owner, type), count);
+            }
+        }
+        return squares;
+    }
+
+    @Test
+    void unmakeMoveRestoresEveryMakeMove(){
+        SplittableRandom random = new SplittableRandom(3);
+        for(int size : new int[]{3, 6, 9, 12}){
+            for(int game = 0; game < 20; game++){
+                Grid grid = new Grid(size, random.nextLong());
+                grid.useIncrementalEvaluator();
+                String start = state(grid);
+                long hash = grid.getHash();
+                int[][] squares = pieceSquares(grid);
+                int made = 0;
+                for(int ply = 0; ply < 12; ply++){
+                    Cell[] move = randomMove(grid, random);
+                    if(move == null){
+                        break;
+                    }
+                    grid.makeMove(move[0], move[1]);
+                    made++;
+                }
+                assertEquals(made, grid.getUndoDepth());
+                while(grid.getUndoDepth() > 0){
+                    grid.unmakeMove();
+                }
+                assertEquals(start, state(grid));
+                assertEquals(hash, grid.getHash());
+                assertEquals(hash, grid.rehash());
+                assertArrayEquals(squares, pieceSquares(grid));
+            }
+        }
+    }
+
+    @Test
+    void hashFollowsEveryMove(){
+        SplittableRandom random = new SplittableRandom(4);
+        for(int game = 0; game < 30; game++){
+            Grid grid = new Grid(9, random.nextLong());
+            for(int ply = 0; ply < 40; ply++){
+                Cell[] move = randomMove(grid, random);
+                if(move == null){
+                    break;
+                }
+                grid.makeMove(move[0], move[1]);
+                long hash = grid.getHash();
+                assertEquals(hash, grid.rehash());
+            }
+        }
+    }
+
+    @Test
+    void pieceIndexFollowsEveryMove(){
+        SplittableRandom random = new SplittableRandom(5);
+        for(int game = 0; game < 30; game++){
+            Grid grid = new Grid(9, random.nextLong());
+            for(int ply = 0; ply < 40; ply++){
+                Cell[] move = randomMove(grid, random);
+                if(move == null){
+                    break;
+                }
+                grid.makeMove(move[0], move[1]);
+                int[][] squares = pieceSquares(grid);
+                grid.rehash(); // rebuilds the PieceIndex from the Cells
+                assertArrayEquals(squares, pieceSquares(grid));
+            }
+        }
+    }
+
+    @Test
+    void bitBoardFollowsEveryMove(){
+        SplittableRandom random = new SplittableRandom(6);
+        for(int size : new int[]{6, 9, 12}){
+            for(int game = 0; game < 20; game++){
+                Grid grid = new Grid(size, random.nextLong());
+                for(int ply = 0; ply < 40; ply++){
+                    Cell[] move = randomMove(grid, random);
+                    if(move == null){
+                        break;
+                    }
+                    grid.makeMove(move[0], move[1]);
+                    if(ply % 4 == 3){
+                        grid.unmakeMove();
+                    }
+                    BitBoard rebuilt = new BitBoard(size);
+                    rebuilt.rebuild(grid);
+                    BitBoard bitBoard = grid.getBitBoard();
+                    for(int owner = 0; owner < 2; owner++){
+                        for(int type = 0; type < 3; type++){
+                            assertArrayEquals(rebuilt.getPieces(owner, type), bitBoard.getPieces(owner, type));
+                        }
+                    }
+                    assertArrayEquals(rebuilt.getPits(), bitBoard.getPits());
+                    for(int square = 0; square < size * size; square++){
+                        Cell piece = grid.getCell(square);
+                        int owner = BitBoard.ownerCode(piece.belongToPlayer());
+                        ArrayList<Integer> expected = new ArrayList<Integer>();
+                        for(int goal : grid.getNeighborSquares(square)){
+                            if(owner < 0 || grid.getCell(goal).belongToPlayer() != piece.belongToPlayer()){
+                                expected.add(goal);
+                            }
+                        }
+                        ArrayList<Integer> targets = new ArrayList<Integer>();
+                        long[] mask = bitBoard.moveTargets(square, owner);
+                        for(int goal = BitBoard.nextSetBit(mask, 0); goal >= 0; goal = BitBoard.nextSetBit(mask, goal + 1)){
+                            targets.add(goal);
+                        }
+                        assertEquals(expected, targets);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalEvaluatorTest {
+
+    private static void assertMatchesFull(Logic logic, Grid grid){
+        for(boolean AI : new boolean[]{true, false}){
+            double full = logic.calculateFullHeuristic(5, AI);
+            assertEquals(full, grid.getIncrementalEvaluator().evaluate(AI), 1e-9, AI ? "AI" : "player");
+            assertEquals(full, logic.calculateHeuristic(5, AI), 1e-9, AI ? "AI" : "player");
+        }
+    }
+
+    @Test
+    void matchesFullHeuristicOverMakeAndUnmake(){
+        SplittableRandom random = new SplittableRandom(6);
+        for(int size : new int[]{3, 6, 9, 12}){
+            for(int game = 0; game < 20; game++){
+                Grid grid = new Grid(size, random.nextLong());
+                Logic logic = new Logic(grid, 1);
+                assertMatchesFull(logic, grid);
+                for(int turn = 0; turn < 30; turn++){
+                    // a few plies of search, checked on the way down and on the way back up
+                    double AI = grid.getIncrementalEvaluator().evaluate(true);
+                    double player = grid.getIncrementalEvaluator().evaluate(false);
+                    for(int ply = 0; ply < 6; ply++){
+                        Cell[] move = GridTest.randomMove(grid, random);
+                        if(move == null){
+                            break;
+                        }
+                        grid.makeMove(move[0], move[1]);
+                        assertMatchesFull(logic, grid);
+                    }
+                    while(grid.getUndoDepth() > 0){
+                        grid.unmakeMove();
+                        assertMatchesFull(logic, grid);
+                    }
+                    // undoing restores the fixed point sums exactly
+                    assertEquals(AI, grid.getIncrementalEvaluator().evaluate(true));
+                    assertEquals(player, grid.getIncrementalEvaluator().evaluate(false));
+                    Cell[] move = GridTest.randomMove(grid, random);
+                    if(move == null){
+                        break;
+                    }
+                    grid.applyMove(move[0], move[1]);
+                    assertMatchesFull(logic, grid);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesFullHeuristicAfterInvalidate(){
+        SplittableRandom random = new SplittableRandom(66);
+        Grid grid = new Grid(9, random.nextLong());
+        Logic logic = new Logic(grid, 1);
+        for(int ply = 0; ply < 20; ply++){
+            Cell[] move = GridTest.randomMove(grid, random);
+            if(move == null){
+                break;
+            }
+            grid.applyMove(move[0], move[1]);
+            grid.getIncrementalEvaluator().invalidate();
+            assertMatchesFull(logic, grid);
+        }
+    }
+}
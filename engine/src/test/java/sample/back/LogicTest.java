@@ -0,0 +1,43 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogicTest {
+
+    //Search of one position with a number of workers, returns the root value and the best move it played
+    private static String search(Grid position, int depth, int workers){
+        Logic logic = new Logic(new Grid(position), depth);
+        logic.setSearchWorkers(workers);
+        try{
+            double value = logic.run(5);
+            return value + " " + logic.getBestMove();
+        }finally{
+            logic.setSearchWorkers(1); // shuts the pool down
+        }
+    }
+
+    @Test
+    void parallelRootSearchMatchesSequential(){
+        SplittableRandom random = new SplittableRandom(7);
+        for(int size : new int[]{6, 9}){
+            for(int game = 0; game < 4; game++){
+                Grid position = new Grid(size, random.nextLong());
+                // a few random plies so the positions are not all start positions
+                for(int ply = 0, plies = random.nextInt(8); ply < plies; ply++){
+                    Cell[] move = GridTest.randomMove(position, random);
+                    if(move == null){
+                        break;
+                    }
+                    position.applyMove(move[0], move[1]);
+                }
+                for(int depth = 2; depth <= 4; depth++){
+                    assertEquals(search(position, depth, 1), search(position, depth, 4), size + "x" + size + " game " + game + " depth " + depth);
+                }
+            }
+        }
+    }
+}
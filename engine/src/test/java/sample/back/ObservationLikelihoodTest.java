@@ -0,0 +1,59 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObservationLikelihoodTest {
+
+    //ObservationLikelihood against getObservationGivenPiece, which copies the map for every hypothesis of every cell
+    private static void assertMatchesReference(Logic logic, Grid map){
+        Grid fogOfWar = logic.generateObservations(false);
+        ArrayList<Cell> observations = logic.getObservations();
+        ArrayList<Cell> pieces = map.getAICells();
+        ObservationLikelihood likelihood = new ObservationLikelihood(logic, map, fogOfWar, observations, pieces);
+        assertEquals(logic.calculateFullLogObservationProbability(map, observations, pieces), likelihood.getLogEvidence());
+
+        double[] given = new double[4];
+        for(int row = 0; row < map.getMapSize(); row++){
+            for(int col = 0; col < map.getMapSize(); col++){
+                assertEquals(pieces.contains(map.getCell(row, col)), likelihood.isPiece(row, col));
+                if(likelihood.isPiece(row, col)){
+                    continue;
+                }
+                likelihood.given(row, col, given);
+                assertArrayEquals(logic.getObservationGivenPiece(row, col, observations, pieces, fogOfWar), given,
+                        "[" + row + ", " + col + "]");
+            }
+        }
+    }
+
+    @Test
+    void matchesReferenceLikelihoodOnRandomGames(){
+        SplittableRandom random = new SplittableRandom(8);
+        int checked = 0;
+        for(int size : new int[]{3, 6, 9}){
+            for(int game = 0; game < 10; game++){
+                Grid grid = new Grid(size, random.nextLong());
+                Logic logic = new Logic(grid, 1);
+                for(int ply = 0; ply < 20; ply++){
+                    if(grid.getAICount() > 0){
+                        assertMatchesReference(logic, grid);
+                        checked++;
+                    }
+                    Cell[] move = GridTest.randomMove(grid, random);
+                    if(move == null){
+                        break;
+                    }
+                    grid.applyMove(move[0], move[1]);
+                }
+            }
+        }
+        assertTrue(checked > 100, "only " + checked + " positions checked");
+    }
+}
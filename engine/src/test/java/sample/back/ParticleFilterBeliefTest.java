@@ -0,0 +1,37 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ParticleFilterBeliefTest {
+
+    private static Logic game(long seed){
+        Grid grid = new Grid(6, seed);
+        Logic logic = new Logic(grid, 1);
+        logic.setBeliefEngine(new ParticleFilterBelief(logic, grid, 300, seed));
+        return logic;
+    }
+
+    private static void assertSameBeliefs(Logic expected, Logic actual){
+        for(int type = 0; type < 4; type++){
+            assertArrayEquals(expected.getFullState().getBeliefs().getPlane(type), actual.getFullState().getBeliefs().getPlane(type));
+        }
+    }
+
+    @Test
+    void copyLeavesTheSourceUntouched(){
+        Logic copied = game(9);
+        Logic untouched = game(9);
+        BeliefEngine copy = copied.getBeliefEngine().copy();
+        copied.getBeliefEngine().predict(copied.getFullState(), 0);
+        untouched.getBeliefEngine().predict(untouched.getFullState(), 0);
+        assertSameBeliefs(untouched, copied);
+
+        // the copy carries on like the engine it was made from
+        Logic fromCopy = game(9);
+        fromCopy.setBeliefEngine(copy);
+        copy.predict(fromCopy.getFullState(), 0);
+        assertSameBeliefs(untouched, fromCopy);
+    }
+}
@@ -0,0 +1,86 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateEnumeratorTest {
+    private static final double LIMIT = 100000; // consistent states a check may enumerate
+
+    //Same states as ConsistentStates counts, each exactly once, with the same marginals, sequential and parallel
+    private static void assertMatches(Grid grid){
+        ConsistentStates states = new ConsistentStates(grid);
+        StateEnumerator enumerator = new StateEnumerator(grid);
+        List<int[]> placements = enumerator.stream().collect(Collectors.toList());
+        assertEquals(states.count(), placements.size(), 1e-9);
+        assertEquals(placements.size(), enumerator.stream().parallel().count());
+
+        HashSet<String> distinct = new HashSet<String>();
+        int size = grid.getMapSize();
+        int wumpus = grid.getNumOfPWumpus();
+        int hero = grid.getNumOfPHero();
+        double[][] marginals = new double[3][size * size];
+        for(int[] placement : placements){
+            assertTrue(distinct.add(Arrays.toString(placement)), "placement found twice");
+            for(int i = 0; i < placement.length; i++){
+                int type = i < wumpus ? BitBoard.WUMPUS : i < wumpus + hero ? BitBoard.HERO : BitBoard.MAGE;
+                marginals[type][placement[i]]++;
+            }
+        }
+        for(int type = 0; type < 3; type++){
+            for(int square = 0; square < size * size; square++){
+                double expected = placements.isEmpty() ? 0 : marginals[type][square] / placements.size();
+                assertEquals(expected, states.probability(square / size, square % size, BitBoard.typeChar(type)), 1e-9,
+                        "type " + type + " square " + square);
+            }
+        }
+    }
+
+    @Test
+    void matchesConsistentStatesOnRandomGames(){
+        SplittableRandom random = new SplittableRandom(11);
+        int checked = 0;
+        for(int size : new int[]{3, 6, 9}){
+            for(int game = 0; game < 30; game++){
+                Grid grid = new Grid(size, random.nextLong());
+                for(int ply = 0; ply < 40; ply++){
+                    Cell[] move = GridTest.randomMove(grid, random);
+                    if(move == null){
+                        break;
+                    }
+                    grid.applyMove(move[0], move[1]);
+                    if(ply % 4 != 0 || new ConsistentStates(grid).count() > LIMIT){
+                        continue;
+                    }
+                    assertMatches(grid);
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 100, "only " + checked + " positions checked");
+    }
+
+    @Test
+    void matchesConsistentStatesOnRandomLayouts(){
+        SplittableRandom random = new SplittableRandom(111);
+        for(int layout = 0; layout < 300; layout++){
+            char[] types = new char[36];
+            char[] owners = new char[36];
+            Arrays.fill(types, 'E');
+            Arrays.fill(owners, '0');
+            ConsistentStatesTest.place(types, owners, random, 2 + random.nextInt(7), '2');
+            ConsistentStatesTest.place(types, owners, random, 1 + random.nextInt(4), '1');
+            Grid grid = new Grid(6, types, owners);
+            if(new ConsistentStates(grid).count() <= LIMIT){
+                assertMatches(grid);
+            }
+        }
+    }
+}
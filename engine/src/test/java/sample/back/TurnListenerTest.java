@@ -0,0 +1,126 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TurnListenerTest {
+
+    private static Logic game(long seed, boolean particles){
+        Grid grid = new Grid(6, seed);
+        Logic logic = new Logic(grid, 1);
+        if(particles){
+            logic.setBeliefEngine(new ParticleFilterBelief(logic, grid, 300, seed));
+        }
+        return logic;
+    }
+
+    //Plays a few AI turns and random player moves so the beliefs are no longer the start beliefs
+    private static void warmUp(Logic logic, long seed){
+        SplittableRandom random = new SplittableRandom(seed);
+        for(int turn = 0; turn < 3 && logic.checkWin() == -1; turn++){
+            logic.playAITurn(1);
+            Cell[] move = GridTest.randomMove(logic.getFullState(), random);
+            if(move == null){
+                break;
+            }
+            logic.move(move[0], move[1]);
+        }
+    }
+
+    private static double[][] planes(Logic logic){
+        double[][] planes = new double[4][];
+        for(int type = 0; type < 4; type++){
+            planes[type] = logic.getFullState().getBeliefs().getPlane(type).clone();
+        }
+        return planes;
+    }
+
+    //Cancels the turn before one phase starts, counts the phases that did start
+    private static final class CancelAt implements TurnListener {
+        private final int phase;
+        private int started;
+
+        CancelAt(int phase){
+            this.phase = phase;
+        }
+
+        @Override
+        public void phase(int phase){
+            assertEquals(started, phase);
+            started++;
+        }
+
+        @Override
+        public boolean isCancelled(){
+            return started == phase;
+        }
+    }
+
+    @Test
+    void cancelledTurnChangesNothing(){
+        for(boolean particles : new boolean[]{false, true}){
+            for(int phase = TurnListener.PREDICT; phase < TurnListener.PHASES; phase++){
+                String name = (particles ? "particle filter" : "marginal beliefs") + " cancelled before phase " + phase;
+                Logic cancelled = game(3, particles);
+                Logic plain = game(3, particles);
+                warmUp(cancelled, 33);
+                warmUp(plain, 33);
+                Grid board = cancelled.getFullState();
+                double[][] planes = planes(cancelled);
+                String state = GridTest.state(board);
+                long hash = board.getHash();
+
+                CancelAt listener = new CancelAt(phase);
+                assertThrows(CancellationException.class, () -> cancelled.playAITurn(1, listener), name);
+                assertEquals(phase, listener.started, name);
+                assertArrayEquals(planes, planes(cancelled), name);
+                assertEquals(state, GridTest.state(board), name);
+                assertEquals(hash, board.getHash(), name);
+
+                // played again, the turn is the one a game that was never cancelled plays
+                assertEquals(String.valueOf(plain.playAITurn(1)), String.valueOf(cancelled.playAITurn(1)), name);
+                assertArrayEquals(planes(plain), planes(cancelled), name);
+            }
+        }
+    }
+
+    @Test
+    void listenedTurnPlaysLikeThePlainTurn(){
+        TurnListener listener = new TurnListener() {
+            @Override
+            public void phase(int phase){
+            }
+
+            @Override
+            public boolean isCancelled(){
+                return false;
+            }
+        };
+        for(boolean particles : new boolean[]{false, true}){
+            Logic plain = game(4, particles);
+            Logic listened = game(4, particles);
+            SplittableRandom plainMoves = new SplittableRandom(44);
+            SplittableRandom listenedMoves = new SplittableRandom(44);
+            for(int turn = 0; turn < 10 && plain.checkWin() == -1; turn++){
+                Move expected = plain.playAITurn(1);
+                Move actual = listened.playAITurn(1, listener);
+                assertEquals(String.valueOf(expected), String.valueOf(actual));
+                assertArrayEquals(planes(plain), planes(listened));
+
+                Cell[] move = GridTest.randomMove(plain.getFullState(), plainMoves);
+                Cell[] same = GridTest.randomMove(listened.getFullState(), listenedMoves);
+                if(move == null){
+                    break;
+                }
+                plain.move(move[0], move[1]);
+                listened.move(same[0], same[1]);
+            }
+        }
+    }
+}
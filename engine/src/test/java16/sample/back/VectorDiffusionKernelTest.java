@@ -0,0 +1,65 @@
+package sample.back;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorDiffusionKernelTest {
+    private static final double TOLERANCE = 1e-12;
+
+    private static double[][] planes(int size, SplittableRandom random){
+        double[][] planes = new double[3][size * size];
+        for(double[] plane : planes){
+            for(int square = 0; square < plane.length; square++){
+                plane[square] = random.nextDouble();
+            }
+        }
+        return planes;
+    }
+
+    private static void assertSamePlanes(double[][] expected, double[][] actual){
+        for(int type = 0; type < 3; type++){
+            for(int square = 0; square < expected[type].length; square++){
+                assertEquals(expected[type][square], actual[type][square], TOLERANCE, "plane " + type + " square " + square);
+            }
+        }
+    }
+
+    @Test
+    void forSizeLoadsTheVectorKernel(){
+        assertTrue(DiffusionKernel.forSize(9).isVectorized());
+    }
+
+    @Test
+    void matchesTheScalarKernel(){
+        SplittableRandom random = new SplittableRandom(8);
+        for(int size : new int[]{3, 6, 9, 12, 15, 24}){
+            DiffusionKernel scalar = new DiffusionKernel(size);
+            DiffusionKernel vector = new VectorDiffusionKernel(size);
+            for(int round = 0; round < 5; round++){
+                double[][] in = planes(size, random);
+                double[][] weights = round % 2 == 0 ? null : planes(size, random);
+                double stay = random.nextDouble();
+                double moveShare = 1 - stay;
+
+                double[][] expected = new double[3][size * size];
+                double[] expectedTotals = new double[3];
+                scalar.diffuse(in, expected, stay, moveShare, weights, expectedTotals);
+                double[][] actual = new double[3][size * size];
+                double[] actualTotals = new double[3];
+                vector.diffuse(in, actual, stay, moveShare, weights, actualTotals);
+                assertSamePlanes(expected, actual);
+                for(int type = 0; type < 3; type++){
+                    assertEquals(expectedTotals[type], actualTotals[type], TOLERANCE);
+                }
+
+                // in place, like the belief update
+                vector.diffuse(in, in, stay, moveShare, weights, actualTotals);
+                assertSamePlanes(expected, in);
+            }
+        }
+    }
+}
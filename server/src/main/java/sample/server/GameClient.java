@@ -0,0 +1,281 @@
+package sample.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of the GameServer protocol, one request at a time over one connection.
+ *
+ * Run as a program it is a local load test: -connections clients each play their share of -games games, the player
+ * making random legal moves from its fog view and asking for the AI turn after each one, and it prints requests per
+ * second, AI turn latency percentiles and how many requests the server refused. With -local it starts a server in the
+ * same JVM on a free port first.
+ *
+ * Usage: GameClient [-host 127.0.0.1] [-port 7440] [-local] [-connections 16] [-games 200] [-size 9] [-turns 50]
+ *                   [-seed 1]
+ */
+public class GameClient implements AutoCloseable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    public GameClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends one request and waits for its response
+     */
+    public Map<String, Object> call(Json.Writer request) throws IOException {
+        out.write(request.toString());
+        out.write('\n');
+        out.flush();
+        String line = in.readLine();
+        if(line == null){
+            throw new IOException("Server closed the connection");
+        }
+        return Json.parseObject(line);
+    }
+
+    public Map<String, Object> create(int size, long seed) throws IOException {
+        return call(new Json.Writer().put("op", "create").put("size", size).put("seed", seed));
+    }
+
+    public Map<String, Object> move(long game, int fromRow, int fromCol, int toRow, int toCol) throws IOException {
+        return call(new Json.Writer().put("op", "move").put("game", game).put("from", Arrays.asList(fromRow, fromCol))
+                .put("to", Arrays.asList(toRow, toCol)));
+    }
+
+    public Map<String, Object> ai(long game) throws IOException {
+        return call(new Json.Writer().put("op", "ai").put("game", game));
+    }
+
+    public Map<String, Object> view(long game) throws IOException {
+        return call(new Json.Writer().put("op", "view").put("game", game));
+    }
+
+    public Map<String, Object> closeGame(long game) throws IOException {
+        return call(new Json.Writer().put("op", "close").put("game", game));
+    }
+
+    public Map<String, Object> stats() throws IOException {
+        return call(new Json.Writer().put("op", "stats"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    public static boolean ok(Map<String, Object> response){
+        return Boolean.TRUE.equals(response.get("ok"));
+    }
+
+    public static boolean retry(Map<String, Object> response){
+        return Boolean.TRUE.equals(response.get("retry"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = 7440, clients = 16, games = 200, size = 9, turns = 50;
+        long seed = 1;
+        boolean local = false;
+        for(int i = 0; i < args.length; i++){
+            if(args[i].equals("-local")){
+                local = true;
+                continue;
+            }
+            if(i + 1 == args.length){
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "-host": host = value; break;
+                case "-port": port = Integer.parseInt(value); break;
+                case "-connections": clients = Integer.parseInt(value); break;
+                case "-games": games = Integer.parseInt(value); break;
+                case "-size": size = Integer.parseInt(value); break;
+                case "-turns": turns = Integer.parseInt(value); break;
+                case "-seed": seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+
+        GameServer server = null;
+        if(local){
+            int cores = Runtime.getRuntime().availableProcessors();
+            server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), clients, cores, 4 * cores,
+                    new SessionRegistry(512L * 1024 * 1024, 24), 0);
+            port = server.getPort();
+        }
+
+        LoadTest test = new LoadTest(host, port, size, turns);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> running = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for(int c = 0; c < clients; c++){
+            int first = c, stride = clients, count = games;
+            long base = seed;
+            running.add(pool.submit(() -> {
+                for(int game = first; game < count; game += stride){
+                    test.play(base + game);
+                }
+                return null;
+            }));
+        }
+        try{
+            for(Future<?> client : running){
+                client.get();
+            }
+        }finally{
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        test.print(games, seconds);
+        try(GameClient client = new GameClient(host, port)){
+            System.out.println("Server stats: " + client.stats());
+        }
+        if(server != null){
+            server.close();
+        }
+    }
+
+    //Plays games, one connection per game, and collects the numbers of all of them
+    private static final class LoadTest {
+        private final String host;
+        private final int port;
+        private final int size;
+        private final int turns;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong refused = new AtomicLong();
+        private final AtomicLong finished = new AtomicLong();
+        private final List<Long> aiNanos = new ArrayList<Long>();
+
+        LoadTest(String host, int port, int size, int turns){
+            this.host = host;
+            this.port = port;
+            this.size = size;
+            this.turns = turns;
+        }
+
+        void play(long seed) throws IOException, InterruptedException {
+            SplittableRandom random = new SplittableRandom(seed);
+            List<Long> latencies = new ArrayList<Long>();
+            try(GameClient client = new GameClient(host, port)){
+                Map<String, Object> created = send(client, () -> client.create(size, seed));
+                long game = ((Double) created.get("game")).longValue();
+                int status = -1;
+                for(int turn = 0; turn < turns && status == -1; turn++){
+                    Map<String, Object> view = send(client, () -> client.view(game));
+                    int[] move = randomMove(view, random);
+                    if(move == null){
+                        break;
+                    }
+                    Map<String, Object> moved = send(client, () -> client.move(game, move[0], move[1], move[2], move[3]));
+                    status = ((Double) moved.get("status")).intValue();
+                    if(status != -1){
+                        break;
+                    }
+                    long start = System.nanoTime();
+                    Map<String, Object> ai = send(client, () -> client.ai(game));
+                    latencies.add(System.nanoTime() - start);
+                    status = ((Double) ai.get("status")).intValue();
+                }
+                if(status != -1){
+                    finished.incrementAndGet();
+                }
+                send(client, () -> client.closeGame(game));
+            }
+            synchronized(aiNanos){
+                aiNanos.addAll(latencies);
+            }
+        }
+
+        private interface Request {
+            Map<String, Object> send() throws IOException;
+        }
+
+        //Sends until the server accepts, backing off while it refuses for load
+        private Map<String, Object> send(GameClient client, Request request) throws IOException, InterruptedException {
+            for(long backoff = 1; ; backoff = Math.min(100, backoff * 2)){
+                requests.incrementAndGet();
+                Map<String, Object> response = request.send();
+                if(ok(response)){
+                    return response;
+                }
+                if(!retry(response)){
+                    throw new IOException("Request failed: " + response.get("error"));
+                }
+                refused.incrementAndGet();
+                Thread.sleep(backoff);
+            }
+        }
+
+        //Random move of a player piece of the fog view to a neighbour square without a player piece
+        private static int[] randomMove(Map<String, Object> view, SplittableRandom random){
+            @SuppressWarnings("unchecked")
+            List<String> rows = (List<String>) view.get("rows");
+            int size = rows.size();
+            List<int[]> moves = new ArrayList<int[]>();
+            for(int row = 0; row < size; row++){
+                for(int col = 0; col < size; col++){
+                    if(!isPlayerPiece(rows.get(row).charAt(col))){
+                        continue;
+                    }
+                    for(int r = Math.max(0, row - 1); r <= Math.min(size - 1, row + 1); r++){
+                        for(int c = Math.max(0, col - 1); c <= Math.min(size - 1, col + 1); c++){
+                            if(!isPlayerPiece(rows.get(r).charAt(c))){
+                                moves.add(new int[]{row, col, r, c});
+                            }
+                        }
+                    }
+                }
+            }
+            return moves.isEmpty() ? null : moves.get(random.nextInt(moves.size()));
+        }
+
+        private static boolean isPlayerPiece(char square){
+            return square == 'W' || square == 'H' || square == 'M';
+        }
+
+        void print(int games, double seconds){
+            long[] sorted = new long[aiNanos.size()];
+            for(int i = 0; i < sorted.length; i++){
+                sorted[i] = aiNanos.get(i);
+            }
+            Arrays.sort(sorted);
+            System.out.printf("%d games (%d finished) in %.2f s, %.0f requests/s, %d refused with retry%n", games,
+                    finished.get(), seconds, requests.get() / seconds, refused.get());
+            System.out.printf("AI turn ms p50 %.3f p90 %.3f p99 %.3f max %.3f%n", percentile(sorted, 50),
+                    percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        }
+
+        private static double percentile(long[] sorted, double percentile){
+            if(sorted.length == 0){
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package sample.server;
+
+import sample.back.Move;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many games in one JVM behind a local socket. The protocol is newline delimited JSON, one request object per
+ * line and one response object per line, in order:
+ * <pre>
+ * {"op":"create","size":9,"seed":7,"movement":0}       {"ok":true,"game":1,"size":9,"bytes":22820}
+ * {"op":"move","game":1,"from":[0,1],"to":[1,1]}       {"ok":true,"status":-1}
+ * {"op":"ai","game":1}                                 {"ok":true,"move":{"from":[5,0],"to":[4,1]},"status":-1}
+ * {"op":"view","game":1}                               {"ok":true,"rows":["?W?H..",...],"observations":[...],"status":-1}
+ * {"op":"close","game":1}                              {"ok":true}
+ * {"op":"stats"}                                       {"ok":true,"games":1,"bytes":22820,...}
+ * </pre>
+ * A request may carry an "id" that is copied to its response. Failures answer {"ok":false,"error":"..."}, with
+ * "retry":true when the request was refused for load (AI pool full, game busy, memory budget used up) and can be sent
+ * again later. Status is Logic.checkWin: -1 playing, 0 draw, 1 player wins, 2 AI wins.
+ *
+ * Every connection gets its own thread, a virtual thread when the JVM has them (Java 21+) and a pooled platform thread
+ * otherwise; connection threads only parse, look up the session and write, they block cheaply. AI turns are CPU bound
+ * and run on a fixed pool of platform threads with a bounded queue so a burst of slow searches can not starve the
+ * connections. Backpressure comes from three places: a connection is read one request at a time (a client that sends
+ * faster fills its socket buffers), connections past -connections wait in the accept backlog, and AI turns past the
+ * queue are refused with retry.
+ *
+ * Usage: GameServer [-host 127.0.0.1] [-port 7440] [-connections 10000] [-aiThreads cores] [-aiQueue 4*cores]
+ *                   [-memory 512] [-maxSize 24] [-idle 30]
+ * (-memory in megabytes for all the games together, -idle in minutes before an unused game is dropped)
+ */
+public class GameServer implements AutoCloseable {
+    private static final int MAX_LINE = 4096;
+
+    private final SessionRegistry registry;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final ThreadPoolExecutor aiPool;
+    private final ScheduledExecutorService expiry;
+    private final Semaphore connectionSlots;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Binds the socket and starts accepting
+     * @param address address to listen on, port 0 for any free port
+     * @param maxConnections connections served at the same time
+     * @param aiThreads platform threads running AI turns
+     * @param aiQueue AI turns that can wait for a thread before new ones are refused
+     * @param registry the hosted games
+     * @param idleMinutes minutes after which an unused game is dropped, 0 to keep games until closed
+     */
+    public GameServer(InetSocketAddress address, int maxConnections, int aiThreads, int aiQueue, SessionRegistry registry,
+                      long idleMinutes) throws IOException {
+        this.registry = registry;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(address, 1024);
+        this.connections = connectionExecutor();
+        this.aiPool = new ThreadPoolExecutor(aiThreads, aiThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(aiQueue), daemonThreads("ai-turn"));
+        this.expiry = Executors.newSingleThreadScheduledExecutor(daemonThreads("game-expiry"));
+        if(idleMinutes > 0){
+            expiry.scheduleWithFixedDelay(() -> registry.expire(idleMinutes, TimeUnit.MINUTES), 1, 1, TimeUnit.MINUTES);
+        }
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.acceptor = daemonThreads("game-acceptor").newThread(this::acceptLoop);
+        this.acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = 7440, maxConnections = 10000, maxSize = 24;
+        int aiThreads = Runtime.getRuntime().availableProcessors();
+        int aiQueue = 4 * aiThreads;
+        long memory = 512, idle = 30;
+        for(int i = 0; i + 1 < args.length; i += 2){
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-host": host = value; break;
+                case "-port": port = Integer.parseInt(value); break;
+                case "-connections": maxConnections = Integer.parseInt(value); break;
+                case "-aiThreads": aiThreads = Integer.parseInt(value); break;
+                case "-aiQueue": aiQueue = Integer.parseInt(value); break;
+                case "-memory": memory = Long.parseLong(value); break;
+                case "-maxSize": maxSize = Integer.parseInt(value); break;
+                case "-idle": idle = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        SessionRegistry registry = new SessionRegistry(memory * 1024 * 1024, maxSize);
+        GameServer server = new GameServer(new InetSocketAddress(InetAddress.getByName(host), port), maxConnections,
+                aiThreads, aiQueue, registry, idle);
+        System.out.println("Serving games on " + host + ":" + server.getPort() + " with " + aiThreads + " AI threads, "
+                + memory + " MB for games, connection threads: " + (isVirtual(server.connections) ? "virtual" : "platform"));
+    }
+
+    /**
+     * One virtual thread per task when the JVM has them, found by reflection so the engine still builds for Java 8,
+     * else a cached pool of platform threads
+     */
+    static ExecutorService connectionExecutor(){
+        try{
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }catch(ReflectiveOperationException e){
+            return Executors.newCachedThreadPool(daemonThreads("game-connection"));
+        }
+    }
+
+    private static boolean isVirtual(ExecutorService executor){
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    private static ThreadFactory daemonThreads(String name){
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    public SessionRegistry getRegistry(){
+        return registry;
+    }
+
+    private void acceptLoop(){
+        while(!closed){
+            try{
+                connectionSlots.acquire();
+                Socket socket;
+                try{
+                    socket = serverSocket.accept();
+                }catch(IOException | RuntimeException e){
+                    connectionSlots.release();
+                    throw e;
+                }
+                connections.execute(() -> serve(socket));
+            }catch(InterruptedException e){
+                return;
+            }catch(IOException | RejectedExecutionException e){
+                if(closed){
+                    return;
+                }
+                System.err.println("Accept failed: " + e);
+            }
+        }
+    }
+
+    //Answers the requests of one connection in order until the client closes it
+    private void serve(Socket socket){
+        openConnections.incrementAndGet();
+        try(Socket client = socket){
+            client.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8));
+            StringBuilder line = new StringBuilder();
+            while(readLine(in, line)){
+                if(line.length() == 0){
+                    continue;
+                }
+                out.write(respond(line.toString()));
+                out.write('\n');
+                out.flush();
+            }
+        }catch(IOException e){
+            // client went away or sent a line that was too long, nothing to answer
+        }finally{
+            openConnections.decrementAndGet();
+            connectionSlots.release();
+        }
+    }
+
+    //Reads one line into line, false at the end of the stream. Lines are bounded so a client can not grow the buffer.
+    private static boolean readLine(BufferedReader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while((c = in.read()) != -1){
+            if(c == '\n'){
+                return true;
+            }
+            if(c != '\r'){
+                if(line.length() == MAX_LINE){
+                    throw new IOException("Request longer than " + MAX_LINE + " characters");
+                }
+                line.append((char) c);
+            }
+        }
+        return line.length() > 0;
+    }
+
+    /**
+     * @param request one request line
+     * @return the response line, without the newline
+     */
+    public String respond(String request){
+        requests.incrementAndGet();
+        Object id = null;
+        Json.Writer response = new Json.Writer();
+        try{
+            Map<String, Object> fields = Json.parseObject(request);
+            id = fields.get("id");
+            if(id != null){
+                response.put("id", id);
+            }
+            handle(fields, response.put("ok", true));
+            return response.toString();
+        }catch(Refused e){
+            refused.incrementAndGet();
+            return error(id, e.getMessage()).put("retry", true).toString();
+        }catch(IllegalArgumentException | IllegalStateException e){
+            return error(id, e.getMessage()).toString();
+        }catch(RuntimeException e){
+            // an engine bug fails this request only, the connection and the other games go on
+            return error(id, "Internal error: " + e).toString();
+        }
+    }
+
+    private static Json.Writer error(Object id, String message){
+        Json.Writer error = new Json.Writer();
+        if(id != null){
+            error.put("id", id);
+        }
+        return error.put("ok", false).put("error", message);
+    }
+
+    private void handle(Map<String, Object> request, Json.Writer response){
+        String op = string(request, "op");
+        switch (op) {
+            case "create": {
+                int size = integer(request, "size", 9);
+                long seed = request.containsKey("seed") ? (long) number(request, "seed") : System.nanoTime();
+                GameSession session = registry.create(size, seed, integer(request, "movement", 0));
+                response.put("game", session.getId()).put("size", session.getSize()).put("bytes", session.getBytes());
+                break;
+            }
+            case "move": {
+                int[] from = square(request, "from");
+                int[] to = square(request, "to");
+                response.put("status", session(request).playerMove(from[0], from[1], to[0], to[1]));
+                break;
+            }
+            case "ai": {
+                GameSession.Turn turn = aiTurn(session(request));
+                Move move = turn.move;
+                response.put("move", move == null ? null : new Json.Writer()
+                        .put("from", square(move.getOrigin().getRow(), move.getOrigin().getCol()))
+                        .put("to", square(move.getGoal().getRow(), move.getGoal().getCol())));
+                response.put("status", turn.status);
+                break;
+            }
+            case "view": {
+                GameSession.View view = session(request).view();
+                response.put("rows", view.rows).put("observations", view.observations).put("status", view.status);
+                break;
+            }
+            case "close":
+                if(!registry.remove((long) number(request, "game"))){
+                    throw new IllegalArgumentException("No game " + (long) number(request, "game"));
+                }
+                break;
+            case "stats":
+                response.put("games", registry.getCount()).put("bytes", registry.getBytes())
+                        .put("budget", registry.getBudget()).put("connections", openConnections.get())
+                        .put("aiActive", aiPool.getActiveCount()).put("aiQueued", aiPool.getQueue().size())
+                        .put("requests", requests.get()).put("refused", refused.get());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown op " + op);
+        }
+    }
+
+    //Runs the AI turn on the AI pool, the connection thread waits for it
+    private GameSession.Turn aiTurn(GameSession session){
+        Future<GameSession.Turn> turn;
+        try{
+            turn = aiPool.submit(session::aiTurn);
+        }catch(RejectedExecutionException e){
+            throw new Refused("AI pool is full");
+        }
+        try{
+            return turn.get();
+        }catch(InterruptedException e){
+            turn.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("AI turn failed: " + e.getCause());
+        }
+    }
+
+    private GameSession session(Map<String, Object> request){
+        return registry.get((long) number(request, "game"));
+    }
+
+    private static List<Integer> square(int row, int col){
+        return Arrays.asList(row, col);
+    }
+
+    private static int[] square(Map<String, Object> request, String name){
+        Object value = request.get(name);
+        if(!(value instanceof List) || ((List<?>) value).size() != 2){
+            throw new IllegalArgumentException("Field " + name + " must be [row, col]");
+        }
+        List<?> square = (List<?>) value;
+        if(!(square.get(0) instanceof Double) || !(square.get(1) instanceof Double)){
+            throw new IllegalArgumentException("Field " + name + " must be [row, col]");
+        }
+        return new int[]{((Double) square.get(0)).intValue(), ((Double) square.get(1)).intValue()};
+    }
+
+    private static String string(Map<String, Object> request, String name){
+        Object value = request.get(name);
+        if(!(value instanceof String)){
+            throw new IllegalArgumentException("Missing string field " + name);
+        }
+        return (String) value;
+    }
+
+    private static double number(Map<String, Object> request, String name){
+        Object value = request.get(name);
+        if(!(value instanceof Double)){
+            throw new IllegalArgumentException("Missing number field " + name);
+        }
+        return (Double) value;
+    }
+
+    private static int integer(Map<String, Object> request, String name, int otherwise){
+        return request.containsKey(name) ? (int) number(request, name) : otherwise;
+    }
+
+    /**
+     * Stops accepting, closes the pools; games stay in the registry
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        acceptor.interrupt();
+        connections.shutdownNow();
+        aiPool.shutdownNow();
+        expiry.shutdownNow();
+    }
+}
@@ -0,0 +1,199 @@
+package sample.server;
+
+import sample.back.Cell;
+import sample.back.Grid;
+import sample.back.Logic;
+import sample.back.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One hosted game: the board and the Logic of the AI, like one Controller. Logic is not thread safe, so every call
+ * holds the session lock; a request that finds the game busy (an AI turn of another connection) is refused instead of
+ * waiting, the client retries.
+ */
+public class GameSession {
+    //Retained heap of a session after 3 to 10 AI turns and views (board, fog of war Grid the observations point into,
+    //belief planes, BitBoards, Logic and its evaluator), fitted to 3x3 to 24x24 boards on a 64 bit JVM with compressed oops.
+    //Within 2.6% from 6x6 up and never under, a 3x3 session is overcounted by 10%.
+    private static final long BASE_BYTES = 5200;
+    private static final long BYTES_PER_SQUARE = 195;
+
+    private final long id;
+    private final int movement;
+    private final Grid map;
+    private final Logic logic;
+    private final long bytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long lastUsed = System.nanoTime();
+    private int turns;
+
+    /**
+     * @param id registry id
+     * @param size board size
+     * @param seed board seed, see Grid(int, long)
+     * @param movement player movement model of the AI belief update (0 random, 1 towards the AI pieces)
+     */
+    public GameSession(long id, int size, long seed, int movement){
+        this.id = id;
+        this.movement = movement;
+        this.map = new Grid(size, seed);
+        this.logic = new Logic(map, 1);
+        this.bytes = estimateBytes(size);
+    }
+
+    /**
+     * @return heap a session of this board size is accounted for
+     */
+    public static long estimateBytes(int size){
+        return BASE_BYTES + BYTES_PER_SQUARE * size * size;
+    }
+
+    public long getId(){ return id; }
+    public int getSize(){ return map.getMapSize(); }
+    public long getBytes(){ return bytes; }
+    public long getLastUsed(){ return lastUsed; }
+
+    //Runs one action on the game, refused if another connection is using it. Package-private so tests can hold a game busy.
+    <T> T locked(Action<T> action){
+        if(!lock.tryLock()){
+            throw new Refused("Game " + id + " is busy");
+        }
+        try{
+            lastUsed = System.nanoTime();
+            return action.run();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    interface Action<T> {
+        T run();
+    }
+
+    /**
+     * @return -1 while the game goes on, 0 draw, 1 player wins, 2 AI wins (Logic.checkWin)
+     */
+    public int status(){
+        return locked(logic::checkWin);
+    }
+
+    /**
+     * Plays a move of the player
+     * @throws IllegalArgumentException if the game is over or the move is not a legal player move
+     */
+    public int playerMove(int fromRow, int fromCol, int toRow, int toCol){
+        return locked(() -> {
+            checkPlaying();
+            int size = map.getMapSize();
+            if(!inside(fromRow, size) || !inside(fromCol, size) || !inside(toRow, size) || !inside(toCol, size)){
+                throw new IllegalArgumentException("Square outside the " + size + "x" + size + " board");
+            }
+            Cell origin = map.getCell(fromRow, fromCol);
+            Cell goal = map.getCell(toRow, toCol);
+            if(!logic.validPlayerMove(origin, goal)){
+                throw new IllegalArgumentException("Illegal move");
+            }
+            logic.move(origin, goal);
+            return logic.checkWin();
+        });
+    }
+
+    private static boolean inside(int index, int size){
+        return index >= 0 && index < size;
+    }
+
+    private void checkPlaying(){
+        if(logic.checkWin() != -1){
+            throw new IllegalArgumentException("Game " + id + " is over");
+        }
+    }
+
+    /**
+     * The AI turn under fog of war (Logic.playAITurn), CPU heavy, run it on the AI pool
+     * @return the move played and the status after it, read under the same lock
+     */
+    public Turn aiTurn(){
+        return locked(() -> {
+            checkPlaying();
+            turns++;
+            Move move = logic.playAITurn(movement);
+            return new Turn(move, logic.checkWin());
+        });
+    }
+
+    public int getTurns(){
+        return turns;
+    }
+
+    /**
+     * The player's fog of war view: one string per row, '?' for unseen squares, '.' for empty squares, 'P' for pits
+     * and W/H/M for the player's pieces (lower case for AI pieces)
+     */
+    public View view(){
+        return locked(() -> {
+            Grid fog = logic.render(true);
+            int size = fog.getMapSize();
+            List<String> rows = new ArrayList<String>(size);
+            for(int row = 0; row < size; row++){
+                char[] squares = new char[size];
+                for(int col = 0; col < size; col++){
+                    squares[col] = square(fog.getCell(row, col));
+                }
+                rows.add(new String(squares));
+            }
+            List<Json.Writer> observations = new ArrayList<Json.Writer>();
+            for(Cell cell : logic.getObservations()){
+                StringBuilder kinds = new StringBuilder();
+                for(char kind : cell.getObservations()){
+                    kinds.append(kind);
+                }
+                observations.add(new Json.Writer().put("row", cell.getRow()).put("col", cell.getCol())
+                        .put("kinds", kinds.toString()));
+            }
+            return new View(rows, observations, logic.checkWin());
+        });
+    }
+
+    private static char square(Cell cell){
+        char type = cell.getType();
+        switch (type) {
+            case 'E': return '.';
+            case 'W':
+            case 'H':
+            case 'M':
+                return cell.belongToPlayer() == '2' ? Character.toLowerCase(type) : type;
+            default: return type;
+        }
+    }
+
+    /**
+     * Snapshot of the player view, made under the lock so it can be written out after
+     */
+    public static final class View {
+        public final List<String> rows;
+        public final List<Json.Writer> observations;
+        public final int status;
+
+        View(List<String> rows, List<Json.Writer> observations, int status){
+            this.rows = rows;
+            this.observations = observations;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Result of an AI turn, made under the lock so no other request can change the game in between
+     */
+    public static final class Turn {
+        public final Move move; // null if the AI had no move
+        public final int status;
+
+        Turn(Move move, int status){
+            this.move = move;
+            this.status = status;
+        }
+    }
+}
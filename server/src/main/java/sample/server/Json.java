@@ -0,0 +1,269 @@
+package sample.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The little JSON the game protocol needs: parse one line into Maps, Lists, Strings, Doubles, Booleans and null, and
+ * build response objects field by field. Not a general purpose library, there is no JSON dependency on purpose.
+ */
+public final class Json {
+    private static final int MAX_DEPTH = 64; // nested objects and arrays, deeper input is refused before the stack runs out
+
+    private final String text;
+    private int position;
+    private int depth;
+
+    private Json(String text){
+        this.text = text;
+    }
+
+    /**
+     * @param text one JSON value
+     * @return the value, a Map for objects
+     * @throws IllegalArgumentException if text is not valid JSON
+     */
+    public static Object parse(String text){
+        Json parser = new Json(text);
+        Object value = parser.value();
+        parser.skipSpaces();
+        if(parser.position != text.length()){
+            throw parser.error("end of input");
+        }
+        return value;
+    }
+
+    /**
+     * @return text parsed as a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text){
+        Object value = parse(text);
+        if(!(value instanceof Map)){
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private Object value(){
+        skipSpaces();
+        if(position == text.length()){
+            throw error("a value");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default: return number();
+        }
+    }
+
+    private Map<String, Object> object(){
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        enter();
+        skipSpaces();
+        if(peek('}')){
+            depth--;
+            return object;
+        }
+        do{
+            skipSpaces();
+            if(position == text.length() || text.charAt(position) != '"'){
+                throw error("a field name");
+            }
+            String name = string();
+            skipSpaces();
+            expect(':');
+            object.put(name, value());
+            skipSpaces();
+        }while(peek(','));
+        expect('}');
+        depth--;
+        return object;
+    }
+
+    private List<Object> array(){
+        List<Object> array = new ArrayList<Object>();
+        enter();
+        skipSpaces();
+        if(peek(']')){
+            depth--;
+            return array;
+        }
+        do{
+            array.add(value());
+            skipSpaces();
+        }while(peek(','));
+        expect(']');
+        depth--;
+        return array;
+    }
+
+    //Steps into an object or array
+    private void enter(){
+        if(++depth > MAX_DEPTH){
+            throw new IllegalArgumentException("Invalid JSON, nested deeper than " + MAX_DEPTH + " at " + position);
+        }
+        position++;
+    }
+
+    private String string(){
+        StringBuilder builder = new StringBuilder();
+        position++;
+        while(position < text.length()){
+            char c = text.charAt(position++);
+            if(c == '"'){
+                return builder.toString();
+            }
+            if(c != '\\'){
+                builder.append(c);
+                continue;
+            }
+            if(position == text.length()){
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    if(position + 4 > text.length()){
+                        throw error("4 hex digits");
+                    }
+                    builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default: builder.append(escaped);
+            }
+        }
+        throw error("end of string");
+    }
+
+    private Object literal(String word, Object value){
+        if(!text.startsWith(word, position)){
+            throw error(word);
+        }
+        position += word.length();
+        return value;
+    }
+
+    private Double number(){
+        int start = position;
+        while(position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0){
+            position++;
+        }
+        if(start == position){
+            throw error("a value");
+        }
+        try{
+            return Double.valueOf(text.substring(start, position));
+        }catch(NumberFormatException e){
+            throw error("a number");
+        }
+    }
+
+    private void skipSpaces(){
+        while(position < text.length() && Character.isWhitespace(text.charAt(position))){
+            position++;
+        }
+    }
+
+    private boolean peek(char c){
+        if(position < text.length() && text.charAt(position) == c){
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c){
+        if(!peek(c)){
+            throw error("'" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String expected){
+        return new IllegalArgumentException("Invalid JSON, expected " + expected + " at " + position);
+    }
+
+    /**
+     * @return s as a JSON string literal
+     */
+    public static String quote(String s){
+        StringBuilder builder = new StringBuilder(s.length() + 2).append('"');
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if(c < 0x20){
+                        builder.append(String.format("\\u%04x", (int) c));
+                    }else{
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * One JSON object written field by field, toString gives the line to send
+     */
+    public static final class Writer {
+        private final StringBuilder builder = new StringBuilder("{");
+
+        public Writer put(String name, Object value){
+            if(builder.length() > 1){
+                builder.append(',');
+            }
+            builder.append(quote(name)).append(':');
+            append(builder, value);
+            return this;
+        }
+
+        private static void append(StringBuilder builder, Object value){
+            if(value == null){
+                builder.append("null");
+            }else if(value instanceof Writer){
+                builder.append(value);
+            }else if(value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())){
+                builder.append("null");
+            }else if(value instanceof Double && (Double) value == Math.rint((Double) value) && Math.abs((Double) value) < 1e15){
+                builder.append(((Double) value).longValue()); // parsed numbers echo back as they were sent
+            }else if(value instanceof Number || value instanceof Boolean){
+                builder.append(value);
+            }else if(value instanceof Iterable){
+                builder.append('[');
+                boolean first = true;
+                for(Object element : (Iterable<?>) value){
+                    if(!first){
+                        builder.append(',');
+                    }
+                    append(builder, element);
+                    first = false;
+                }
+                builder.append(']');
+            }else{
+                builder.append(quote(value.toString()));
+            }
+        }
+
+        @Override
+        public String toString(){
+            return builder + "}";
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package sample.server;
+
+/**
+ * A request turned away for load: the game is busy, the AI pool is full or the memory budget is used up. Nothing was
+ * changed, so GameServer answers it with "retry":true and the client may send the same request again later.
+ */
+public class Refused extends RuntimeException {
+    public Refused(String message){
+        super(message);
+    }
+}
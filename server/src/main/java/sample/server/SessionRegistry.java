@@ -0,0 +1,106 @@
+package sample.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Games hosted by the server by id. Every session is accounted for with GameSession.estimateBytes and a new game is
+ * refused when it would take the total over the memory budget, so a burst of creates can not run the JVM out of heap.
+ */
+public class SessionRegistry {
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<Long, GameSession>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong bytes = new AtomicLong();
+    private final long budget;
+    private final int maxSize;
+
+    /**
+     * @param budgetBytes heap all the sessions together may use
+     * @param maxSize largest board size a game can be created with
+     */
+    public SessionRegistry(long budgetBytes, int maxSize){
+        this.budget = budgetBytes;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a bad size or movement model
+     * @throws Refused if the memory budget is used up
+     */
+    public GameSession create(int size, long seed, int movement){
+        if(size < 3 || size % 3 != 0 || size > maxSize){
+            throw new IllegalArgumentException("Board size must be a multiple of 3 from 3 to " + maxSize);
+        }
+        if(movement != 0 && movement != 1){
+            throw new IllegalArgumentException("Movement model must be 0 or 1");
+        }
+        long needed = GameSession.estimateBytes(size);
+        long used;
+        do{
+            used = bytes.get();
+            if(used + needed > budget){
+                throw new Refused("Memory budget used up (" + used + " of " + budget + " bytes)");
+            }
+        }while(!bytes.compareAndSet(used, used + needed));
+        try{
+            GameSession session = new GameSession(nextId.getAndIncrement(), size, seed, movement);
+            sessions.put(session.getId(), session);
+            return session;
+        }catch(RuntimeException | Error e){
+            bytes.addAndGet(-needed);
+            throw e;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such game
+     */
+    public GameSession get(long id){
+        GameSession session = sessions.get(id);
+        if(session == null){
+            throw new IllegalArgumentException("No game " + id);
+        }
+        return session;
+    }
+
+    /**
+     * @return false if there was no such game
+     */
+    public boolean remove(long id){
+        GameSession session = sessions.remove(id);
+        if(session == null){
+            return false;
+        }
+        bytes.addAndGet(-session.getBytes());
+        return true;
+    }
+
+    /**
+     * Drops the games nobody used for a while, clients that went away do not hold memory forever
+     * @return games removed
+     */
+    public int expire(long idle, TimeUnit unit){
+        long oldest = System.nanoTime() - unit.toNanos(idle);
+        int removed = 0;
+        for(GameSession session : sessions.values()){
+            if(session.getLastUsed() - oldest < 0 && sessions.remove(session.getId(), session)){
+                bytes.addAndGet(-session.getBytes());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int getCount(){
+        return sessions.size();
+    }
+
+    public long getBytes(){
+        return bytes.get();
+    }
+
+    public long getBudget(){
+        return budget;
+    }
+}
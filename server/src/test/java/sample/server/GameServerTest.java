@@ -0,0 +1,118 @@
+package sample.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+
+    private static GameServer start(SessionRegistry registry) throws IOException {
+        return new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4, 1, 1, registry, 0);
+    }
+
+    private static GameClient connect(GameServer server) throws IOException {
+        return new GameClient(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort());
+    }
+
+    private static long game(Map<String, Object> created){
+        assertTrue(GameClient.ok(created), created.toString());
+        return ((Double) created.get("game")).longValue();
+    }
+
+    private static void assertRefused(Map<String, Object> response){
+        assertFalse(GameClient.ok(response), response.toString());
+        assertTrue(GameClient.retry(response), response.toString());
+    }
+
+    private static void assertFailed(Map<String, Object> response){
+        assertFalse(GameClient.ok(response), response.toString());
+        assertFalse(GameClient.retry(response), response.toString());
+    }
+
+    @Test
+    void playsAGameOverTheSocket() throws IOException {
+        SessionRegistry registry = new SessionRegistry(64L * 1024 * 1024, 24);
+        try(GameServer server = start(registry); GameClient client = connect(server)){
+            Map<String, Object> created = client.create(6, 3);
+            long game = game(created);
+            assertEquals(6.0, created.get("size"));
+            assertEquals((double) GameSession.estimateBytes(6), created.get("bytes"));
+
+            Map<String, Object> view = client.view(game);
+            assertTrue(GameClient.ok(view), view.toString());
+            @SuppressWarnings("unchecked")
+            List<String> rows = (List<String>) view.get("rows");
+            assertEquals(6, rows.size());
+            assertEquals("WHMWHM", rows.get(0));
+            assertEquals(-1.0, view.get("status"));
+
+            Map<String, Object> moved = client.move(game, 0, 1, 1, 1);
+            assertTrue(GameClient.ok(moved), moved.toString());
+            assertEquals(-1.0, moved.get("status"));
+            assertFailed(client.move(game, 0, 3, 0, 4)); // onto its own piece
+            assertFailed(client.move(game, 0, 0, 3, 3)); // not a neighbour
+
+            Map<String, Object> ai = client.ai(game);
+            assertTrue(GameClient.ok(ai), ai.toString());
+            assertNotNull(ai.get("move"));
+            assertEquals(1, registry.get(game).getTurns());
+
+            Map<String, Object> stats = client.stats();
+            assertEquals(1.0, stats.get("games"));
+            assertEquals((double) GameSession.estimateBytes(6), stats.get("bytes"));
+            assertEquals(0.0, stats.get("refused"));
+
+            assertTrue(GameClient.ok(client.closeGame(game)));
+            assertEquals(0.0, client.stats().get("games"));
+            assertFailed(client.closeGame(game));
+            assertFailed(client.view(game));
+        }
+    }
+
+    @Test
+    void busyGameIsRefusedWithRetry() throws IOException {
+        SessionRegistry registry = new SessionRegistry(64L * 1024 * 1024, 24);
+        try(GameServer server = start(registry); GameClient client = connect(server)){
+            long game = game(client.create(6, 3));
+            // the test thread holds the game while the server's threads ask for it
+            registry.get(game).locked(() -> {
+                try{
+                    assertRefused(client.view(game));
+                    assertRefused(client.ai(game));
+                    assertRefused(client.move(game, 0, 1, 1, 1));
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            assertEquals(3.0, client.stats().get("refused"));
+            assertTrue(GameClient.ok(client.view(game)));
+            assertTrue(GameClient.ok(client.ai(game)));
+        }
+    }
+
+    @Test
+    void fullMemoryBudgetIsRefusedWithRetry() throws IOException {
+        SessionRegistry registry = new SessionRegistry(2 * GameSession.estimateBytes(9), 24);
+        try(GameServer server = start(registry); GameClient client = connect(server)){
+            long first = game(client.create(9, 1));
+            game(client.create(9, 2));
+            assertRefused(client.create(9, 3));
+            assertFailed(client.create(10, 3)); // a bad size is an error, sending it again does not help
+
+            assertTrue(GameClient.ok(client.closeGame(first)));
+            game(client.create(9, 3));
+            assertEquals(2.0, client.stats().get("games"));
+        }
+    }
+}